@@ -0,0 +1,205 @@
+package com.feniksovich.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
+
+import java.time.Duration;
+
+/**
+ * Параметры операций с картами.
+ */
+@ConfigurationProperties(prefix = "cards")
+public class CardProperties {
+
+    private final ConcurrencyProperties concurrency;
+    private final LedgerProperties ledger;
+    private final IdempotencyProperties idempotency;
+    private final LockingProperties locking;
+    private final AsyncProperties async;
+    private final EngineProperties engine;
+    private final CacheProperties cache;
+
+    @ConstructorBinding
+    public CardProperties(
+            ConcurrencyProperties concurrency,
+            LedgerProperties ledger,
+            IdempotencyProperties idempotency,
+            LockingProperties locking,
+            AsyncProperties async,
+            EngineProperties engine,
+            CacheProperties cache
+    ) {
+        this.concurrency = concurrency;
+        this.ledger = ledger;
+        this.idempotency = idempotency;
+        this.locking = locking;
+        this.async = async;
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    public ConcurrencyProperties concurrency() {
+        return concurrency;
+    }
+
+    public LedgerProperties ledger() {
+        return ledger;
+    }
+
+    public IdempotencyProperties idempotency() {
+        return idempotency;
+    }
+
+    public LockingProperties locking() {
+        return locking;
+    }
+
+    public AsyncProperties async() {
+        return async;
+    }
+
+    public EngineProperties engine() {
+        return engine;
+    }
+
+    public CacheProperties cache() {
+        return cache;
+    }
+
+    /**
+     * Управление конкурентным доступом к картам.
+     *
+     * @param mode           режим управления конкурентным доступом
+     * @param maxAttempts    максимальное число попыток операции в оптимистичном режиме
+     * @param initialBackoff начальная задержка перед повторной попыткой
+     * @param maxBackoff     максимальная задержка перед повторной попыткой
+     */
+    public record ConcurrencyProperties(
+            ConcurrencyMode mode,
+            int maxAttempts,
+            Duration initialBackoff,
+            Duration maxBackoff
+    ) {}
+
+    /**
+     * Журнал операций по картам.
+     *
+     * @param deferredCredits   зачислять переводы только записью в журнал, без изменения строки карты;
+     *                          зачисления применяются к балансу фоновым процессом
+     * @param snapshotBatchSize максимальное число записей журнала, применяемых за один запрос
+     * @param snapshotInterval  интервал между запусками применения отложенных зачислений
+     */
+    public record LedgerProperties(
+            boolean deferredCredits,
+            int snapshotBatchSize,
+            Duration snapshotInterval
+    ) {}
+
+    /**
+     * Ключи идемпотентности переводов.
+     *
+     * @param ttl            время хранения ключа идемпотентности перевода
+     * @param cacheSize      максимальное число ключей, хранимых в памяти
+     * @param purgeBatchSize максимальное число истекших ключей, удаляемых за один запрос
+     * @param purgeInterval  интервал между запусками удаления истекших ключей
+     */
+    public record IdempotencyProperties(
+            Duration ttl,
+            int cacheSize,
+            int purgeBatchSize,
+            Duration purgeInterval
+    ) {}
+
+    /**
+     * Внутрипроцессные блокировки карт.
+     *
+     * @param enabled включить внутрипроцессные блокировки карт перед обращением к БД
+     * @param stripes число блокировок, между которыми распределяются карты (округляется до степени двойки)
+     * @param ordered захватывать блокировки нескольких карт в фиксированном порядке
+     * @param timeout максимальное время ожидания блокировки
+     */
+    public record LockingProperties(
+            boolean enabled,
+            int stripes,
+            boolean ordered,
+            Duration timeout
+    ) {}
+
+    /**
+     * Асинхронные переводы.
+     *
+     * @param partitions        число очередей асинхронных переводов; переводы с одной карты
+     *                          попадают в одну очередь и выполняются по порядку одним обработчиком
+     * @param queueCapacity     максимальное число переводов в очереди; не поместившиеся переводы
+     *                          выполняются при восстановлении
+     * @param recoveryInterval  интервал между запусками восстановления: повторной постановки в очередь
+     *                          переводов, ожидающих дольше этого интервала
+     * @param recoveryBatchSize максимальное число переводов, восстанавливаемых за один запуск
+     */
+    public record AsyncProperties(
+            int partitions,
+            int queueCapacity,
+            Duration recoveryInterval,
+            int recoveryBatchSize
+    ) {}
+
+    /**
+     * Движок переводов по разделам.
+     *
+     * @param partitions число разделов движка переводов, у каждого из которых свой поток-писатель
+     * @param bufferSize емкость кольцевого буфера раздела (округляется до степени двойки)
+     * @param batchSize  максимальное число команд, фиксируемых писателем одной транзакцией
+     * @param timeout    максимальное время ожидания места в буфере и завершения перевода
+     */
+    public record EngineProperties(
+            int partitions,
+            int bufferSize,
+            int batchSize,
+            Duration timeout
+    ) {}
+
+    /**
+     * Кэш списков карт пользователей.
+     *
+     * @param enabled  кэшировать списки карт пользователей в памяти; выключается
+     *                 для сравнения производительности с чтением из БД
+     * @param maxUsers максимальное число пользователей, списки карт которых хранятся в памяти
+     * @param maxCards максимальное число карт пользователя, при котором его список кэшируется
+     * @param ttl      время хранения списка; ограничивает устаревание списка
+     *                 при изменении карт на других узлах
+     */
+    public record CacheProperties(
+            boolean enabled,
+            int maxUsers,
+            int maxCards,
+            Duration ttl
+    ) {}
+
+    /**
+     * Режим управления конкурентным доступом к картам.
+     */
+    public enum ConcurrencyMode {
+        /**
+         * Строки карт блокируются на запись (SELECT ... FOR UPDATE) до конца транзакции.
+         */
+        PESSIMISTIC,
+        /**
+         * Карты читаются без блокировок, конфликты обнаруживаются по версии
+         * при фиксации, и операция повторяется.
+         */
+        OPTIMISTIC,
+        /**
+         * Балансы при переводе изменяются условными UPDATE без предварительного чтения:
+         * успех определяется числом измененных строк. Остальные операции блокируют
+         * строки карт, как в пессимистичном режиме.
+         */
+        CONDITIONAL,
+        /**
+         * Одиночные переводы выполняются движком {@code PartitionedTransferEngine}:
+         * у каждого раздела карт один поток-писатель, фиксирующий переводы пакетами.
+         * Остальные операции блокируют строки карт, как в пессимистичном режиме.
+         */
+        PARTITIONED
+    }
+
+}
@@ -44,14 +44,15 @@ public class JwtJoseComponentsConfigurer {
     }
 
     /**
-     * Десериализатор access-токена на основе Json Web Signature.
+     * Десериализатор access-токена на основе Json Web Signature с кэшем проверенных токенов.
      */
     @Bean
     public AccessTokenDeserializer accessTokenJwsDeserializer() throws JOSEException, ParseException {
         final OctetSequenceKey sequenceKey = OctetSequenceKey.parse(securityProperties.accessToken().jwk());
         final MACVerifier verifier = new MACVerifier(sequenceKey);
 
-        return new AccessTokenDeserializer(verifier);
+        final SecurityProperties.TokenCacheProperties tokenCache = securityProperties.tokenCache();
+        return new AccessTokenDeserializer(verifier, tokenCache.enabled() ? tokenCache.maxSize() : 0);
     }
 
     /**
@@ -1,10 +1,15 @@
 package com.feniksovich.bankcards.config;
 
 import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.security.AccessTokenDenylist;
 import com.feniksovich.bankcards.security.BearerJwtAuthenticationTokenConverter;
 import com.feniksovich.bankcards.security.ExtendedUserDetailsService;
 import com.feniksovich.bankcards.security.JwtAuthenticationProvider;
+import com.feniksovich.bankcards.security.PrincipalCache;
+import com.feniksovich.bankcards.security.TokenGenerationRegistry;
+import com.feniksovich.bankcards.security.UserRevocationRegistry;
 import com.feniksovich.bankcards.security.crypto.AesGcmCryptoService;
+import com.feniksovich.bankcards.security.crypto.BoundedPasswordEncoder;
 import com.feniksovich.bankcards.security.crypto.CryptoService;
 import com.feniksovich.bankcards.service.auth.UserRefreshTokenService;
 import org.springframework.context.annotation.Bean;
@@ -26,9 +31,13 @@ import org.springframework.security.web.authentication.AuthenticationFilter;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfigurationSource;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
@@ -40,9 +49,14 @@ import java.util.Base64;
 public class SecurityConfigurer {
 
     private static final int PASSWORD_ENCODER_BCRYPT_ROUNDS = 12;
+    private static final String[] PUBLIC_PATHS = {
+            "/auth/signup", "/auth/signin", "/swagger-ui/**", "/v3/api-docs/**"
+    };
 
     /**
      * Конфигурирует цепочку фильтров безопасности и правила авторизации.
+     * Фильтр JWT-аутентификации не применяется к публичным путям: токены,
+     * переданные вместе с такими запросами, не разбираются.
      */
     @Bean
     public SecurityFilterChain filterChain(
@@ -52,7 +66,7 @@ public class SecurityConfigurer {
             CorsConfigurationSource corsConfigurationSource
     ) throws Exception {
         final AuthenticationFilter jwtAuthenticationFilter = new AuthenticationFilter(authenticationManager, bearerJwtConverter);
-        jwtAuthenticationFilter.setRequestMatcher(PathPatternRequestMatcher.withDefaults().matcher("/**"));
+        jwtAuthenticationFilter.setRequestMatcher(new NegatedRequestMatcher(publicPathsMatcher()));
         jwtAuthenticationFilter.setSuccessHandler((_, _, _) -> {});
         return httpSecurity
                 .csrf(AbstractHttpConfigurer::disable)
@@ -68,17 +82,27 @@ public class SecurityConfigurer {
                     registry.requestMatchers("/cards/**").hasRole(Role.ADMIN.name());
                     registry.requestMatchers("/users/**").hasRole(Role.ADMIN.name());
 
-                    registry.requestMatchers("/auth/signup", "/auth/signin").permitAll();
+                    registry.requestMatchers(PUBLIC_PATHS).permitAll();
                     registry.requestMatchers("/auth/signout").hasAuthority("jwt:signout");
                     registry.requestMatchers("/auth/tokens").hasAuthority("jwt:refresh");
 
-                    registry.requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll();
+                    registry.requestMatchers("/actuator/**").hasRole(Role.ADMIN.name());
                     registry.anyRequest().authenticated();
                 })
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
+    /**
+     * Сопоставитель публичных путей, доступных без аутентификации.
+     */
+    private static RequestMatcher publicPathsMatcher() {
+        final PathPatternRequestMatcher.Builder builder = PathPatternRequestMatcher.withDefaults();
+        return new OrRequestMatcher(Arrays.stream(PUBLIC_PATHS)
+                .map(builder::matcher)
+                .toArray(RequestMatcher[]::new));
+    }
+
     /**
      * Иерархия ролей (ADMIN > USER).
      */
@@ -88,11 +112,19 @@ public class SecurityConfigurer {
     }
 
     /**
-     * Кодировщик паролей BCrypt.
+     * Кодировщик паролей BCrypt, выполняющий хеширование в ограниченном пуле потоков
+     * вместо потоков запросов.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(PASSWORD_ENCODER_BCRYPT_ROUNDS);
+    public PasswordEncoder passwordEncoder(SecurityProperties securityProperties) {
+        final SecurityProperties.PasswordHashingProperties hashing = securityProperties.passwordHashing();
+        final int threads = hashing.threads() > 0 ? hashing.threads() : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(PASSWORD_ENCODER_BCRYPT_ROUNDS),
+                threads,
+                hashing.queueCapacity(),
+                hashing.retryAfter()
+        );
     }
 
     /**
@@ -102,7 +134,12 @@ public class SecurityConfigurer {
     public AuthenticationManager authenticationManager(
             PasswordEncoder passwordEncoder,
             ExtendedUserDetailsService userDetailsService,
-            UserRefreshTokenService refreshTokenService
+            UserRefreshTokenService refreshTokenService,
+            PrincipalCache principalCache,
+            UserRevocationRegistry revocationRegistry,
+            TokenGenerationRegistry generationRegistry,
+            AccessTokenDenylist accessTokenDenylist,
+            SecurityProperties securityProperties
     ) {
         // Username and password authentication provider
         final DaoAuthenticationProvider daoAuthenticationProvider =
@@ -110,8 +147,10 @@ public class SecurityConfigurer {
         daoAuthenticationProvider.setPasswordEncoder(passwordEncoder);
 
         // Register along with JWT authentication provider
-        final JwtAuthenticationProvider jwtAuthenticationProvider =
-                new JwtAuthenticationProvider(userDetailsService, refreshTokenService);
+        final JwtAuthenticationProvider jwtAuthenticationProvider = new JwtAuthenticationProvider(
+                userDetailsService, refreshTokenService, principalCache, revocationRegistry, generationRegistry,
+                accessTokenDenylist, securityProperties.authentication().mode()
+        );
         return new ProviderManager(daoAuthenticationProvider, jwtAuthenticationProvider);
     }
 
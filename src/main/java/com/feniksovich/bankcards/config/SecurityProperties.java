@@ -14,16 +14,31 @@ public class SecurityProperties {
     private final TokenProperties accessToken;
     private final TokenProperties refreshToken;
     private final CryptoProperties crypto;
+    private final AuthenticationProperties authentication;
+    private final TokenCacheProperties tokenCache;
+    private final PrincipalCacheProperties principalCache;
+    private final RefreshTokenRegistryProperties refreshTokenRegistry;
+    private final PasswordHashingProperties passwordHashing;
 
     @ConstructorBinding
     public SecurityProperties(
             TokenProperties accessToken,
             TokenProperties refreshToken,
-            CryptoProperties crypto
+            CryptoProperties crypto,
+            AuthenticationProperties authentication,
+            TokenCacheProperties tokenCache,
+            PrincipalCacheProperties principalCache,
+            RefreshTokenRegistryProperties refreshTokenRegistry,
+            PasswordHashingProperties passwordHashing
     ) {
         this.accessToken = accessToken;
         this.refreshToken = refreshToken;
         this.crypto = crypto;
+        this.authentication = authentication;
+        this.tokenCache = tokenCache;
+        this.principalCache = principalCache;
+        this.refreshTokenRegistry = refreshTokenRegistry;
+        this.passwordHashing = passwordHashing;
     }
 
     public TokenProperties accessToken() {
@@ -38,6 +53,26 @@ public class SecurityProperties {
         return crypto;
     }
 
+    public AuthenticationProperties authentication() {
+        return authentication;
+    }
+
+    public TokenCacheProperties tokenCache() {
+        return tokenCache;
+    }
+
+    public PrincipalCacheProperties principalCache() {
+        return principalCache;
+    }
+
+    public RefreshTokenRegistryProperties refreshTokenRegistry() {
+        return refreshTokenRegistry;
+    }
+
+    public PasswordHashingProperties passwordHashing() {
+        return passwordHashing;
+    }
+
     public record TokenProperties(
             String jwk,
             Duration expiration
@@ -47,4 +82,127 @@ public class SecurityProperties {
             String aesKeyBase64
     ) {}
 
+    /**
+     * Аутентификация по access-токену и обновление реестров отзыва.
+     *
+     * @param mode                      режим аутентификации по access-токену
+     * @param revocationRefreshInterval интервал между обновлениями отзывов доступа из БД
+     *                                  в режиме без чтения пользователя
+     * @param generationRefreshInterval интервал между обновлениями поколений токенов из БД;
+     *                                  ограничивает задержку применения глобального выхода,
+     *                                  выполненного на другом узле
+     * @param denylistRefreshInterval   интервал между перестроениями списка отозванных
+     *                                  access-токенов из БД; ограничивает задержку применения
+     *                                  выхода, выполненного на другом узле
+     */
+    public record AuthenticationProperties(
+            AuthenticationMode mode,
+            Duration revocationRefreshInterval,
+            Duration generationRefreshInterval,
+            Duration denylistRefreshInterval
+    ) {}
+
+    /**
+     * Кэш проверенных access-токенов.
+     *
+     * @param enabled кэшировать проверенные access-токены до истечения их срока действия
+     * @param maxSize максимальное число токенов, хранимых в памяти
+     */
+    public record TokenCacheProperties(
+            boolean enabled,
+            int maxSize
+    ) {}
+
+    /**
+     * Кэш аутентифицированных пользователей.
+     *
+     * @param enabled кэшировать пользователей, аутентифицированных по JWT, вместо чтения из БД на каждый запрос
+     * @param maxSize максимальное число пользователей, хранимых в памяти
+     * @param ttl     время хранения пользователя; ограничивает задержку применения изменений,
+     *                выполненных на других узлах
+     */
+    public record PrincipalCacheProperties(
+            boolean enabled,
+            int maxSize,
+            Duration ttl
+    ) {}
+
+    /**
+     * Реестр действующих refresh-токенов.
+     *
+     * @param flushInterval  интервал между сохранениями выпущенных и инвалидированных refresh-токенов в БД;
+     *                       изменения за последний интервал теряются при аварийной остановке
+     * @param reloadInterval интервал между перечитываниями действующих refresh-токенов из БД;
+     *                       ограничивает задержку применения инвалидаций, выполненных на других узлах
+     * @param purgeInterval  интервал между обслуживаниями таблицы: созданием месячных партиций
+     *                       на срок жизни refresh-токена вперед и удалением истекших токенов
+     * @param purgeBatchSize число истекших токенов, удаляемых из партиции по умолчанию за одну транзакцию
+     * @param store          хранилище действующих refresh-токенов
+     * @param mappedIndex    настройки индекса вне кучи для хранилища {@link RefreshTokenStore#MAPPED}
+     */
+    public record RefreshTokenRegistryProperties(
+            Duration flushInterval,
+            Duration reloadInterval,
+            Duration purgeInterval,
+            int purgeBatchSize,
+            RefreshTokenStore store,
+            MappedIndexProperties mappedIndex
+    ) {}
+
+    /**
+     * Индекс refresh-токенов вне кучи.
+     *
+     * @param path     путь к файлу индекса
+     * @param capacity число ячеек таблицы, округляемое вверх до степени двойки;
+     *                 индекс вмещает до трех четвертей этого числа токенов
+     */
+    public record MappedIndexProperties(
+            String path,
+            long capacity
+    ) {}
+
+    /**
+     * Ограниченный пул проверки и хеширования паролей.
+     *
+     * @param threads       число потоков проверки и хеширования паролей; 0 — по числу ядер процессора
+     * @param queueCapacity число проверок и хеширований, ожидающих свободного потока;
+     *                      при заполненной очереди запрос отклоняется со статусом 503
+     * @param retryAfter    время, через которое клиенту предлагается повторить отклоненный запрос
+     */
+    public record PasswordHashingProperties(
+            int threads,
+            int queueCapacity,
+            Duration retryAfter
+    ) {}
+
+    /**
+     * Режим аутентификации по access-токену.
+     */
+    public enum AuthenticationMode {
+        /**
+         * Пользователь читается из БД (через кэш) на каждый запрос.
+         */
+        LOOKUP,
+        /**
+         * Пользователь строится из утверждений токена без обращения к БД.
+         * Токены удаленных пользователей отклоняются по отзывам доступа,
+         * которые периодически загружаются из БД в память.
+         */
+        STATELESS
+    }
+
+    /**
+     * Хранилище действующих refresh-токенов.
+     */
+    public enum RefreshTokenStore {
+        /**
+         * Токены хранятся в БД, а их идентификаторы — в памяти с отложенной записью.
+         */
+        DATABASE,
+        /**
+         * Токены хранятся в отображенном в память локальном файле вне кучи.
+         */
+        MAPPED
+    }
+
 }
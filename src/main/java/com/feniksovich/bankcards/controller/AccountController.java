@@ -1,27 +1,43 @@
 package com.feniksovich.bankcards.controller;
 
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransactionItemResult;
 import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.dto.card.TransactionResult;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
 import com.feniksovich.bankcards.dto.user.UserData;
 import com.feniksovich.bankcards.dto.user.UserUpdateRequest;
 import com.feniksovich.bankcards.security.UserPrincipal;
 import com.feniksovich.bankcards.service.card.CardService;
 import com.feniksovich.bankcards.service.user.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @Validated
@@ -34,6 +50,11 @@ public class AccountController {
     private final UserService userService;
     private final CardService cardService;
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     public AccountController(UserService userService, CardService cardService) {
         this.userService = userService;
@@ -84,6 +105,30 @@ public class AccountController {
         return cardService.getAllOwned(principal.getId(), pageable);
     }
 
+    @GetMapping("/cards/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Scroll user cards",
+            description = "Returns user cards page by an opaque cursor without counting all cards; " +
+                    "pass the returned next cursor to get the following page"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cards list successfully retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required")
+    })
+    public CursorPage<CardData> scrollCards(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @Parameter(description = "Next cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Page size must be positive")
+            @Max(value = MAX_PAGE_SIZE, message = "Page size must not exceed 100")
+            int size
+    ) {
+        return cardService.scrollAllOwned(principal.getId(), cursor, size);
+    }
+
     @GetMapping("/cards/{cardId}")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get card by ID", description = "Returns data of a specific user card")
@@ -99,6 +144,36 @@ public class AccountController {
         return cardService.getOwnById(principal.getId(), cardId);
     }
 
+    @GetMapping("/cards/{cardId}/transactions")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Get card transactions",
+            description = "Returns card transactions from newest to oldest; " +
+                    "pass the returned next cursor to get the following page"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Card transactions successfully retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public CursorPage<CardTransactionData> getCardTransactions(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable UUID cardId,
+            @Parameter(description = "First day of the period, inclusive")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day of the period, inclusive")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Next cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Page size must be positive")
+            @Max(value = MAX_PAGE_SIZE, message = "Page size must not exceed 100")
+            int size
+    ) {
+        return cardService.getOwnTransactions(principal.getId(), cardId, from, to, cursor, size);
+    }
+
     @PostMapping("/cards/{cardId}/block")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Block card", description = "Blocks user card")
@@ -121,13 +196,88 @@ public class AccountController {
             @ApiResponse(responseCode = "204", description = "Transaction successfully executed"),
             @ApiResponse(responseCode = "400", description = "Invalid request data"),
             @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "409", description = "Idempotency key was used for a different transaction"),
             @ApiResponse(responseCode = "422", description = "Insufficient funds or card blocked")
     })
     public void performTransaction(
             @AuthenticationPrincipal UserPrincipal principal,
-            @RequestBody @Valid TransactionRequest request
+            @Parameter(description = "Client-generated key; a retried request with the same key is not executed twice")
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+            @Size(min = 1, max = 255, message = "Idempotency key must be 1 to 255 characters long")
+            String idempotencyKey,
+            @RequestBody @Valid TransactionRequest request,
+            HttpServletResponse response
+    ) {
+        if (idempotencyKey == null) {
+            cardService.performTransaction(principal.getId(), request);
+            return;
+        }
+        final TransactionResult result = cardService.performTransaction(principal.getId(), request, idempotencyKey);
+        if (result.isReplayed()) {
+            response.setHeader(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+    }
+
+    @PostMapping(path = "/transactions")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Perform transactions batch",
+            description = "Executes transactions between user cards in one database transaction " +
+                    "and returns a result for each of them in request order"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions batch processed"),
+            @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "401", description = "Authentication required")
+    })
+    public List<TransactionItemResult> performTransactions(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestBody
+            @NotEmpty(message = "At least one transaction required")
+            @Size(max = MAX_BATCH_SIZE, message = "Too many transactions in one batch")
+            List<@Valid TransactionRequest> requests
+    ) {
+        return cardService.performTransactions(principal.getId(), requests);
+    }
+
+    @PostMapping(path = "/transactions/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(
+            summary = "Submit transaction",
+            description = "Accepts transaction between user cards for asynchronous execution " +
+                    "and returns its ID to poll the status"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transaction accepted"),
+            @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "401", description = "Authentication required")
+    })
+    public TransferOrderData submitTransaction(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestBody @Valid TransactionRequest request,
+            HttpServletResponse response
+    ) {
+        final TransferOrderData order = cardService.submitTransaction(principal.getId(), request);
+        response.setHeader(HttpHeaders.LOCATION, ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/account/transactions/{transferId}")
+                .buildAndExpand(order.getId())
+                .toUriString());
+        return order;
+    }
+
+    @GetMapping("/transactions/{transferId}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get transaction status", description = "Returns status of an asynchronously submitted transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transaction status successfully retrieved"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "404", description = "Transaction not found")
+    })
+    public TransferOrderData getTransaction(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable UUID transferId
     ) {
-        cardService.performTransaction(principal.getId(), request);
+        return cardService.getTransaction(principal.getId(), transferId);
     }
 
 }
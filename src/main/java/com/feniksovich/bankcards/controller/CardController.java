@@ -1,14 +1,18 @@
 package com.feniksovich.bankcards.controller;
 
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardCreateRequest;
 import com.feniksovich.bankcards.dto.card.CardData;
 import com.feniksovich.bankcards.service.card.CardService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -26,6 +30,8 @@ import java.util.UUID;
 @SecurityRequirement(name = "Bearer Authentication")
 public class CardController {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final CardService cardService;
 
     @Autowired
@@ -45,6 +51,32 @@ public class CardController {
         return cardService.getAll(pageable);
     }
 
+    @GetMapping("/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Scroll all cards",
+            description = "Returns cards page by an opaque cursor without counting all cards; " +
+                    "the approximate total is taken from database statistics on request"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cards list successfully retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    })
+    public CursorPage<CardData> scrollAllCards(
+            @Parameter(description = "Next cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Page size must be positive")
+            @Max(value = MAX_PAGE_SIZE, message = "Page size must not exceed 100")
+            int size,
+            @Parameter(description = "Include the approximate total from database statistics")
+            @RequestParam(defaultValue = "false") boolean approximateTotal
+    ) {
+        return cardService.scrollAll(cursor, size, approximateTotal);
+    }
+
     @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Search cards by user ID", description = "Returns cards belonging to a specific user")
@@ -57,6 +89,30 @@ public class CardController {
         return cardService.getAllOwned(userId, pageable);
     }
 
+    @GetMapping("/search/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Scroll cards by user ID",
+            description = "Returns cards of a specific user page by an opaque cursor without counting all cards"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User cards successfully retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    })
+    public CursorPage<CardData> scrollCardsByUserId(
+            @RequestParam UUID userId,
+            @Parameter(description = "Next cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Page size must be positive")
+            @Max(value = MAX_PAGE_SIZE, message = "Page size must not exceed 100")
+            int size
+    ) {
+        return cardService.scrollAllOwned(userId, cursor, size);
+    }
+
     @GetMapping("/{cardId}")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get card by ID", description = "Returns data of a specific card")
@@ -109,6 +165,30 @@ public class CardController {
         cardService.setBlockedById(cardId, true);
     }
 
+    @PutMapping("/{cardId}/balance-shards")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(
+            summary = "Set card balance shards",
+            description = "Splits the balance of a card that receives many credits into sub-balances; " +
+                    "0 disables splitting"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Card balance shards successfully updated"),
+            @ApiResponse(responseCode = "400", description = "Invalid shards count"),
+            @ApiResponse(responseCode = "401", description = "Authentication required"),
+            @ApiResponse(responseCode = "403", description = "Insufficient permissions"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public void setBalanceShards(
+            @PathVariable UUID cardId,
+            @RequestParam
+            @Min(value = 0, message = "Shards count must not be negative")
+            @Max(value = 64, message = "Shards count must not exceed 64")
+            int count
+    ) {
+        cardService.setBalanceShards(cardId, count);
+    }
+
     @DeleteMapping("/{cardId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Delete card", description = "Deletes a card from the system")
@@ -0,0 +1,29 @@
+package com.feniksovich.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница постраничной выборки по ключу. Вместо общего числа записей содержит
+ * непрозрачный курсор следующей страницы; {@code null}, если страница последняя.
+ * Приблизительное общее число записей заполняется только по запросу.
+ *
+ * @param <T> тип элементов
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private Long approximateTotal;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this(content, nextCursor, null);
+    }
+}
@@ -0,0 +1,22 @@
+package com.feniksovich.bankcards.dto.card;
+
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CardTransactionData {
+    private UUID transferId;
+    private LedgerDirection direction;
+    private BigDecimal amount;
+    private ZonedDateTime createdAt;
+}
@@ -0,0 +1,23 @@
+package com.feniksovich.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionItemResult {
+    private Status status;
+    private UUID transferId;
+    private String message;
+
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+}
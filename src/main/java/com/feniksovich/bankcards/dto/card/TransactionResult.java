@@ -0,0 +1,17 @@
+package com.feniksovich.bankcards.dto.card;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionResult {
+    private UUID transferId;
+    private boolean replayed;
+}
@@ -0,0 +1,26 @@
+package com.feniksovich.bankcards.dto.card;
+
+import com.feniksovich.bankcards.entity.TransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransferOrderData {
+    private UUID id;
+    private String fromPanLast4;
+    private String toPanLast4;
+    private BigDecimal amount;
+    private TransferStatus status;
+    private String message;
+    private ZonedDateTime createdAt;
+    private ZonedDateTime processedAt;
+}
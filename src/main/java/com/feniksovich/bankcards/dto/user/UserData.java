@@ -1,11 +1,13 @@
 package com.feniksovich.bankcards.dto.user;
 
 import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.mapper.DateTimeMappings;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
@@ -24,4 +26,21 @@ public class UserData {
     private Role role;
     private ZonedDateTime createdAt;
     private ZonedDateTime updatedAt;
+
+    /**
+     * Конструктор для проекций запросов: отметки времени сущности переводятся
+     * в часовой пояс системы тем же {@link DateTimeMappings}, что и при маппинге сущности.
+     */
+    public UserData(
+            UUID id,
+            String lastName,
+            String firstName,
+            String phoneNumber,
+            Role role,
+            Instant createdAt,
+            Instant updatedAt
+    ) {
+        this(id, lastName, firstName, phoneNumber, role,
+                DateTimeMappings.toZonedDateTime(createdAt), DateTimeMappings.toZonedDateTime(updatedAt));
+    }
 }
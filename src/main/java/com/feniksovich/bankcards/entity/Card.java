@@ -48,10 +48,26 @@ public class Card {
     @Column(name = "blocked", nullable = false)
     private boolean blocked = false;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Число суб-балансов карты; 0 — баланс хранится только в строке карты.
+     * Зачисления на карту с суб-балансами распределяются по строкам {@link CardBalanceShard},
+     * и полный баланс карты равен сумме баланса строки карты и всех суб-балансов.
+     */
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = "fk_cards_user"))
     private User user;
 
+    public boolean isSharded() {
+        return balanceShards > 0;
+    }
+
     @PrePersist
     @PreUpdate
     private void normalizeExpirationDate() {
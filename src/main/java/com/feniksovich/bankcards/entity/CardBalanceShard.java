@@ -0,0 +1,42 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Суб-баланс карты. Зачисления на карту с суб-балансами изменяют случайный
+ * суб-баланс вместо строки карты, что снимает конкуренцию за одну строку.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "card_balance_shards")
+public class CardBalanceShard {
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    public CardBalanceShard(UUID cardId, int shard) {
+        this(new Key(cardId, shard), BigDecimal.ZERO);
+    }
+
+    @Embeddable
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class Key implements Serializable {
+        @Column(name = "card_id", nullable = false)
+        private UUID cardId;
+
+        @Column(name = "shard", nullable = false)
+        private int shard;
+    }
+}
@@ -0,0 +1,52 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Запись журнала операций по карте. Журнал только дополняется:
+ * записи создаются пакетной вставкой JDBC и не изменяются, за исключением
+ * признака применения отложенного зачисления к балансу карты.
+ */
+@Entity
+@Immutable
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Table(name = "card_ledger", indexes = {
+        @Index(name = "idx_card_ledger_card_created", columnList = "card_id, created_at, id")
+})
+public class CardLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private UUID cardId;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, length = 6)
+    private LedgerDirection direction;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "transfer_id", nullable = false)
+    private UUID transferId;
+
+    /**
+     * Признак того, что сумма записи уже учтена в балансе карты.
+     */
+    @Column(name = "applied", nullable = false)
+    private boolean applied;
+}
@@ -0,0 +1,15 @@
+package com.feniksovich.bankcards.entity;
+
+/**
+ * Направление движения средств в журнале операций по карте.
+ */
+public enum LedgerDirection {
+    /**
+     * Списание с карты.
+     */
+    DEBIT,
+    /**
+     * Зачисление на карту.
+     */
+    CREDIT
+}
@@ -0,0 +1,28 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Отозванный access-токен: не принимается до истечения своего срока действия,
+ * после чего запись удаляется.
+ */
+@Entity
+@Immutable
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Table(name = "revoked_access_tokens")
+public class RevokedAccessToken {
+    @Id
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
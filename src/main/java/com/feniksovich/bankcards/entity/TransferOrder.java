@@ -0,0 +1,56 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Заявка на асинхронный перевод между картами пользователя. Идентификатор заявки
+ * становится идентификатором перевода в журнале операций. Состояние заявки
+ * изменяется только условными UPDATE из состояния {@link TransferStatus#PENDING}.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Table(name = "transfer_orders")
+public class TransferOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "from_pan_last4", nullable = false, length = 4)
+    private String fromPanLast4;
+
+    @Column(name = "to_pan_last4", nullable = false, length = 4)
+    private String toPanLast4;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 9)
+    private TransferStatus status;
+
+    /**
+     * Причина отклонения перевода.
+     */
+    @Column(name = "message")
+    private String message;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,19 @@
+package com.feniksovich.bankcards.entity;
+
+/**
+ * Состояние перевода, принятого к асинхронному выполнению.
+ */
+public enum TransferStatus {
+    /**
+     * Перевод принят и ожидает выполнения.
+     */
+    PENDING,
+    /**
+     * Перевод выполнен.
+     */
+    COMPLETED,
+    /**
+     * Перевод отклонен проверками; причина сохраняется в заявке.
+     */
+    REJECTED
+}
@@ -0,0 +1,29 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Отзыв доступа пользователя: access-токены, выпущенные до момента отзыва,
+ * больше не принимаются. Хранится не дольше срока жизни access-токена,
+ * поэтому не ссылается на пользователя и переживает его удаление.
+ */
+@Entity
+@Immutable
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Table(name = "user_revocations")
+public class UserRevocation {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
@@ -0,0 +1,32 @@
+package com.feniksovich.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Текущее поколение токенов пользователя. Увеличивается при глобальном выходе:
+ * токены предыдущих поколений больше не принимаются. Пользователи без записи
+ * находятся в нулевом поколении.
+ */
+@Entity
+@Immutable
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@Table(name = "user_token_generations")
+public class UserTokenGeneration {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "generation", nullable = false)
+    private int generation;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
@@ -5,6 +5,7 @@ import com.feniksovich.bankcards.dto.validation.ValidationErrorResponse;
 import com.feniksovich.bankcards.dto.validation.Violation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -85,6 +86,20 @@ public class GlobalExceptionHandler {
                 .build();
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> onServiceOverloadedException(ServiceOverloadedException ex) {
+        log.debug("Service overloaded: {}", ex.getMessage());
+        // Retry-After is whole seconds, rounded up so that clients do not retry too early
+        final long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(ErrorResponse.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .error("Service Unavailable")
+                        .message(ex.getMessage())
+                        .build());
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<ErrorResponse> onResponseStatusException(ResponseStatusException ex) {
         log.debug("Response status exception: {}", ex.getMessage());
@@ -0,0 +1,20 @@
+package com.feniksovich.bankcards.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Исключение перегрузки: запрос отклонен, не дожидаясь свободных ресурсов.
+ * Соответствует статусу HTTP 503 (Service Unavailable) с заголовком Retry-After.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,22 @@
+package com.feniksovich.bankcards.mapper;
+
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.CardLedgerEntry;
+import com.feniksovich.bankcards.entity.TransferOrder;
+import org.mapstruct.Mapper;
+
+/**
+ * Маппер сущностей карт и переводов в DTO.
+ */
+@Mapper(config = MappingConfig.class)
+public interface CardMapper {
+
+    CardData toCardData(Card card);
+
+    CardTransactionData toCardTransactionData(CardLedgerEntry entry);
+
+    TransferOrderData toTransferOrderData(TransferOrder order);
+}
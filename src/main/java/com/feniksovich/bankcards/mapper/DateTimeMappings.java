@@ -0,0 +1,21 @@
+package com.feniksovich.bankcards.mapper;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Преобразования даты и времени для мапперов: отметки времени сущностей
+ * переводятся в часовой пояс системы, определенный при запуске приложения.
+ */
+public final class DateTimeMappings {
+
+    private static final ZoneId ZONE_ID = ZoneId.systemDefault();
+
+    private DateTimeMappings() {
+    }
+
+    public static ZonedDateTime toZonedDateTime(Instant instant) {
+        return instant != null ? instant.atZone(ZONE_ID) : null;
+    }
+}
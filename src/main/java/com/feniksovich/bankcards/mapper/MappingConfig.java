@@ -0,0 +1,20 @@
+package com.feniksovich.bankcards.mapper;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.MapperConfig;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Общая конфигурация мапперов, генерируемых при сборке. Неотображенное свойство
+ * целевого типа считается ошибкой компиляции: новое поле DTO или сущности
+ * должно быть либо отображено, либо явно проигнорировано.
+ */
+@MapperConfig(
+        componentModel = MappingConstants.ComponentModel.SPRING,
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR,
+        uses = DateTimeMappings.class
+)
+public interface MappingConfig {
+}
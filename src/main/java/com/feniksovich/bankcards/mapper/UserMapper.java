@@ -0,0 +1,48 @@
+package com.feniksovich.bankcards.mapper;
+
+import com.feniksovich.bankcards.dto.auth.SignUpRequest;
+import com.feniksovich.bankcards.dto.user.UserData;
+import com.feniksovich.bankcards.dto.user.UserUpdateRequest;
+import com.feniksovich.bankcards.entity.User;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
+
+/**
+ * Маппер пользователей и запросов на их создание и изменение.
+ */
+@Mapper(config = MappingConfig.class)
+public interface UserMapper {
+
+    UserData toUserData(User user);
+
+    /**
+     * Создает нового пользователя по запросу на регистрацию. Идентификатор, роль
+     * и отметки времени заполняются при сохранении.
+     *
+     * @param request запрос на регистрацию
+     * @return новый пользователь
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "role", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    User toUser(SignUpRequest request);
+
+    /**
+     * Частично обновляет пользователя: поля запроса со значением {@code null} не изменяются.
+     *
+     * @param request запрос на обновление
+     * @param user    изменяемый пользователь
+     */
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "phoneNumber", ignore = true)
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "role", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    void updateUser(UserUpdateRequest request, @MappingTarget User user);
+}
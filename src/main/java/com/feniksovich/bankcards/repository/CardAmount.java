@@ -0,0 +1,13 @@
+package com.feniksovich.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Проекция суммы, сгруппированной по карте.
+ */
+public interface CardAmount {
+    UUID getCardId();
+
+    BigDecimal getAmount();
+}
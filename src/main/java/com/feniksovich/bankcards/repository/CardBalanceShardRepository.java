@@ -0,0 +1,132 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.CardBalanceShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий суб-балансов карт {@link CardBalanceShard}.
+ */
+public interface CardBalanceShardRepository extends JpaRepository<CardBalanceShard, CardBalanceShard.Key> {
+
+    /**
+     * Суммирует суб-балансы указанных карт.
+     *
+     * @param cardIds идентификаторы карт
+     * @return суммы суб-балансов по картам, у которых они есть
+     */
+    @Query("""
+            SELECT s.key.cardId AS cardId, SUM(s.balance) AS amount FROM CardBalanceShard s
+            WHERE s.key.cardId IN :cardIds
+            GROUP BY s.key.cardId
+            """)
+    List<CardAmount> sumByCardIds(@Param("cardIds") Collection<UUID> cardIds);
+
+    /**
+     * Зачисляет сумму на суб-баланс карты, блокируя только строку этого суб-баланса.
+     *
+     * @param cardId идентификатор карты
+     * @param shard  номер суб-баланса
+     * @param amount сумма зачисления
+     * @return 1, если суб-баланс существует и изменен, иначе 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE card_balance_shards SET balance = balance + :amount
+            WHERE card_id = :cardId AND shard = :shard
+            """)
+    int credit(@Param("cardId") UUID cardId, @Param("shard") int shard, @Param("amount") BigDecimal amount);
+
+    /**
+     * Зачисляет сумму на суб-баланс карты пользователя, если карта разделена на суб-балансы,
+     * не заблокирована и не истекла. Строка карты при этом не блокируется.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @param amount   сумма зачисления
+     * @param today    текущая дата для проверки срока действия
+     * @param seed     случайное неотрицательное число для выбора суб-баланса
+     * @return 1, если суб-баланс изменен, иначе 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE card_balance_shards s SET balance = s.balance + :amount
+            FROM cards c
+            WHERE c.id = s.card_id AND c.user_id = :userId AND c.pan_last_4 = :panLast4
+              AND c.balance_shards > 0 AND s.shard = MOD(:seed, c.balance_shards)
+              AND NOT c.blocked AND c.expires_at >= :today
+            """)
+    int creditIfActive(
+            @Param("userId") UUID userId,
+            @Param("panLast4") String panLast4,
+            @Param("amount") BigDecimal amount,
+            @Param("today") LocalDate today,
+            @Param("seed") int seed
+    );
+
+    /**
+     * Обнуляет суб-балансы карты и возвращает их сумму для переноса в строку карты.
+     * Суб-балансы блокируются на время транзакции, параллельные зачисления ожидают.
+     *
+     * @param cardId идентификатор карты
+     * @return сумма обнуленных суб-балансов
+     */
+    @Query(nativeQuery = true, value = """
+            WITH locked AS (
+                SELECT shard, balance FROM card_balance_shards
+                WHERE card_id = :cardId
+                FOR UPDATE
+            ), drained AS (
+                UPDATE card_balance_shards s SET balance = 0
+                FROM locked l
+                WHERE s.card_id = :cardId AND s.shard = l.shard AND l.balance <> 0
+                RETURNING l.balance
+            )
+            SELECT COALESCE(SUM(balance), 0) FROM drained
+            """)
+    BigDecimal drain(@Param("cardId") UUID cardId);
+
+    /**
+     * Переносит суб-балансы карты пользователя в строку карты одним запросом.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return 1, если баланс карты изменен, иначе 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH locked AS (
+                SELECT s.card_id, s.shard, s.balance FROM card_balance_shards s
+                JOIN cards c ON c.id = s.card_id
+                WHERE c.user_id = :userId AND c.pan_last_4 = :panLast4
+                FOR UPDATE OF s
+            ), drained AS (
+                UPDATE card_balance_shards s SET balance = 0
+                FROM locked l
+                WHERE s.card_id = l.card_id AND s.shard = l.shard AND l.balance <> 0
+                RETURNING l.card_id, l.balance
+            )
+            UPDATE cards c
+            SET balance = c.balance + d.total, version = c.version + 1
+            FROM (SELECT card_id, SUM(balance) AS total FROM drained GROUP BY card_id) d
+            WHERE c.id = d.card_id
+            """)
+    int consolidate(@Param("userId") UUID userId, @Param("panLast4") String panLast4);
+
+    /**
+     * Удаляет все суб-балансы карты.
+     *
+     * @param cardId идентификатор карты
+     */
+    @Modifying
+    @Query("DELETE FROM CardBalanceShard s WHERE s.key.cardId = :cardId")
+    void deleteAllByCardId(@Param("cardId") UUID cardId);
+}
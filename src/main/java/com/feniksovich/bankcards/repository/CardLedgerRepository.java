@@ -0,0 +1,128 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.CardLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий журнала операций по картам {@link CardLedgerEntry}.
+ */
+public interface CardLedgerRepository extends JpaRepository<CardLedgerEntry, Long>, CardLedgerRepositoryCustom {
+
+    /**
+     * Находит страницу истории операций по карте от новых к старым, начиная после
+     * записи с указанным ключом (created_at, id). Выборка идет по индексу
+     * {@code idx_card_ledger_card_created} без OFFSET, поэтому ее стоимость
+     * не зависит от глубины страницы.
+     *
+     * @param cardId         идентификатор карты
+     * @param from           начало периода (включительно)
+     * @param to             конец периода (не включительно)
+     * @param afterCreatedAt время создания последней записи предыдущей страницы
+     * @param afterId        идентификатор последней записи предыдущей страницы
+     * @param limit          максимальное число записей
+     * @return записи журнала, упорядоченные по убыванию (created_at, id)
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM card_ledger
+            WHERE card_id = :cardId
+              AND created_at >= :from AND created_at < :to
+              AND (created_at, id) < (:afterCreatedAt, :afterId)
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """)
+    List<CardLedgerEntry> findHistoryPage(
+            @Param("cardId") UUID cardId,
+            @Param("from") Instant from,
+            @Param("to") Instant to,
+            @Param("afterCreatedAt") Instant afterCreatedAt,
+            @Param("afterId") long afterId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Суммирует еще не примененные к балансу зачисления по указанным картам.
+     *
+     * @param cardIds идентификаторы карт
+     * @return суммы отложенных зачислений по картам, у которых они есть
+     */
+    @Query("""
+            SELECT e.cardId AS cardId, SUM(e.amount) AS amount FROM CardLedgerEntry e
+            WHERE e.cardId IN :cardIds AND e.applied = false
+            GROUP BY e.cardId
+            """)
+    List<CardAmount> sumPendingCredits(@Param("cardIds") Collection<UUID> cardIds);
+
+    /**
+     * Применяет к балансам карт пакет отложенных зачислений одним запросом:
+     * помечает записи примененными и прибавляет их суммы к балансам карт.
+     * Записи, заблокированные параллельным применением, пропускаются. Строки карт
+     * блокируются до изменения в порядке идентификаторов, как и при переводах,
+     * поэтому применение не образует с ними взаимной блокировки.
+     *
+     * @param batchSize максимальное число записей журнала в пакете
+     * @return число карт, балансы которых были изменены
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH batch AS (
+                SELECT id, card_id, amount FROM card_ledger
+                WHERE NOT applied AND direction = 'CREDIT'
+                ORDER BY id
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            ), marked AS (
+                UPDATE card_ledger l SET applied = TRUE
+                FROM batch b WHERE l.id = b.id
+                RETURNING b.card_id, b.amount
+            ), totals AS (
+                SELECT card_id, SUM(amount) AS total FROM marked GROUP BY card_id
+            ), locked AS MATERIALIZED (
+                SELECT id FROM cards
+                WHERE id IN (SELECT card_id FROM totals)
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE cards c
+            SET balance = c.balance + s.total, version = c.version + 1
+            FROM totals s JOIN locked l ON l.id = s.card_id
+            WHERE c.id = s.card_id
+            """)
+    int foldPendingCredits(@Param("batchSize") int batchSize);
+
+    /**
+     * Применяет к балансам карт отложенные зачисления указанных переводов одним запросом.
+     * Зачисления, уже примененные фоновым процессом, пропускаются. Строки карт
+     * блокируются до изменения в порядке идентификаторов, как и при переводах.
+     *
+     * @param transferIds идентификаторы переводов
+     * @return число карт, балансы которых были изменены
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH marked AS (
+                UPDATE card_ledger SET applied = TRUE
+                WHERE transfer_id IN (:transferIds) AND direction = 'CREDIT' AND NOT applied
+                RETURNING card_id, amount
+            ), totals AS (
+                SELECT card_id, SUM(amount) AS total FROM marked GROUP BY card_id
+            ), locked AS MATERIALIZED (
+                SELECT id FROM cards
+                WHERE id IN (SELECT card_id FROM totals)
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE cards c
+            SET balance = c.balance + s.total, version = c.version + 1
+            FROM totals s JOIN locked l ON l.id = s.card_id
+            WHERE c.id = s.card_id
+            """)
+    int applyPendingCredits(@Param("transferIds") Collection<UUID> transferIds);
+}
@@ -0,0 +1,42 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.LedgerDirection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Операции журнала операций по картам, выполняемые напрямую через JDBC.
+ */
+public interface CardLedgerRepositoryCustom {
+
+    /**
+     * Добавляет проводки в журнал одним пакетом JDBC в текущей транзакции.
+     * Проводка записывается, только если ее карта существует; если хотя бы одна
+     * проводка не записана, выбрасывается исключение и транзакция откатывается.
+     *
+     * @param postings проводки
+     */
+    void appendAll(Collection<Posting> postings);
+
+    /**
+     * Проводка по карте для записи в журнал.
+     *
+     * @param transferId идентификатор перевода, общий для всех его проводок
+     * @param cardId     идентификатор карты
+     * @param amount     сумма (положительная)
+     * @param direction  направление движения средств
+     * @param applied    учтена ли сумма в балансе карты
+     * @param createdAt  момент проводки
+     */
+    record Posting(
+            UUID transferId,
+            UUID cardId,
+            BigDecimal amount,
+            LedgerDirection direction,
+            boolean applied,
+            Instant createdAt
+    ) {}
+}
@@ -0,0 +1,51 @@
+package com.feniksovich.bankcards.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+/**
+ * Реализация JDBC-операций журнала операций по картам.
+ */
+public class CardLedgerRepositoryCustomImpl implements CardLedgerRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_POSTING_SQL = """
+            INSERT INTO card_ledger (card_id, amount, direction, created_at, transfer_id, applied)
+            SELECT id, ?, ?, ?, ?, ? FROM cards WHERE id = ?
+            """;
+
+    @Autowired
+    public CardLedgerRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void appendAll(Collection<Posting> postings) {
+        if (postings.isEmpty()) {
+            return;
+        }
+        final int[][] counts = jdbcTemplate.batchUpdate(INSERT_POSTING_SQL, postings, postings.size(),
+                (ps, posting) -> {
+                    ps.setBigDecimal(1, posting.amount());
+                    ps.setString(2, posting.direction().name());
+                    ps.setTimestamp(3, Timestamp.from(posting.createdAt()));
+                    ps.setObject(4, posting.transferId());
+                    ps.setBoolean(5, posting.applied());
+                    ps.setObject(6, posting.cardId());
+                });
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 1) {
+                    // The card was deleted after the transfer had read it
+                    throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(INSERT_POSTING_SQL, 1, count);
+                }
+            }
+        }
+    }
+}
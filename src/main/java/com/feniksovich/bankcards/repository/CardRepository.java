@@ -1,10 +1,20 @@
 package com.feniksovich.bankcards.repository;
 
 import com.feniksovich.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,6 +31,122 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
      */
     Page<Card> findAllByUserId(UUID userId, Pageable pageable);
 
+    /**
+     * Находит проекцию карты по идентификатору.
+     *
+     * @param cardId идентификатор карты
+     * @return проекция карты
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c WHERE c.id = :cardId
+            """)
+    Optional<CardView> findViewById(@Param("cardId") UUID cardId);
+
+    /**
+     * Находит проекцию карты по идентификатору пользователя и идентификатору карты.
+     *
+     * @param userId идентификатор пользователя
+     * @param cardId идентификатор карты
+     * @return проекция карты
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c WHERE c.user.id = :userId AND c.id = :cardId
+            """)
+    Optional<CardView> findViewByUserIdAndId(@Param("userId") UUID userId, @Param("cardId") UUID cardId);
+
+    /**
+     * Находит проекции всех карт с пагинацией.
+     *
+     * @param pageable параметры пагинации
+     * @return страница проекций карт
+     */
+    @Query(value = """
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c
+            """, countQuery = "SELECT COUNT(c) FROM Card c")
+    Page<CardView> findAllViews(Pageable pageable);
+
+    /**
+     * Находит проекции карт пользователя с пагинацией.
+     *
+     * @param userId   идентификатор пользователя
+     * @param pageable параметры пагинации
+     * @return страница проекций карт
+     */
+    @Query(value = """
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c WHERE c.user.id = :userId
+            """, countQuery = "SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId")
+    Page<CardView> findAllViewsByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * Находит проекции карт, следующих за ключом (user_id, id), в порядке этого ключа
+     * без подсчета общего числа записей.
+     *
+     * @param afterUserId идентификатор владельца последней карты предыдущей страницы
+     * @param afterId     идентификатор последней карты предыдущей страницы
+     * @param limit       максимальное число карт
+     * @return проекции карт, упорядоченные по владельцу и идентификатору
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c
+            WHERE (c.user.id, c.id) > (:afterUserId, :afterId)
+            ORDER BY c.user.id, c.id
+            """)
+    List<CardView> findViewsAfter(
+            @Param("afterUserId") UUID afterUserId,
+            @Param("afterId") UUID afterId,
+            Limit limit
+    );
+
+    /**
+     * Находит проекции карт пользователя, следующих за указанной, в порядке идентификатора
+     * без подсчета общего числа записей.
+     *
+     * @param userId  идентификатор пользователя
+     * @param afterId идентификатор последней карты предыдущей страницы
+     * @param limit   максимальное число карт
+     * @return проекции карт, упорядоченные по идентификатору
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.repository.CardView(
+                c.id, c.user.id, c.panLast4, c.expiresAt, c.cardHolder, c.balance, c.blocked, c.balanceShards
+            )
+            FROM Card c
+            WHERE c.user.id = :userId AND c.id > :afterId
+            ORDER BY c.id
+            """)
+    List<CardView> findViewsByUserIdAfter(
+            @Param("userId") UUID userId,
+            @Param("afterId") UUID afterId,
+            Limit limit
+    );
+
+    /**
+     * Возвращает приблизительное число карт по статистике планировщика PostgreSQL
+     * без сканирования таблицы. Значение обновляется при ANALYZE и автоочистке.
+     *
+     * @return приблизительное число карт; 0, если статистика еще не собрана
+     */
+    @Query(value = """
+            SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) FROM pg_class
+            WHERE oid = to_regclass('public.cards')
+            """, nativeQuery = true)
+    long approximateCount();
+
     /**
      * Находит карту по идентификатору пользователя и идентификатору карты.
      *
@@ -30,6 +156,26 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
      */
     Optional<Card> findByUserIdAndId(UUID userId, UUID cardId);
 
+    /**
+     * Находит карту по идентификатору и блокирует ее строку на запись до конца транзакции.
+     *
+     * @param cardId идентификатор карты
+     * @return карта
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Card> findLockedById(UUID cardId);
+
+    /**
+     * Находит карту по идентификатору пользователя и идентификатору карты
+     * и блокирует ее строку на запись до конца транзакции.
+     *
+     * @param userId идентификатор пользователя
+     * @param cardId идентификатор карты
+     * @return карта
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Card> findLockedByUserIdAndId(UUID userId, UUID cardId);
+
     /**
      * Находит карту по идентификатору пользователя и последним 4 цифрам PAN.
      *
@@ -39,6 +185,147 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
      */
     Optional<Card> findByUserIdAndPanLast4(UUID userId, String panLast4);
 
+    /**
+     * Находит карты пользователя по набору последних 4 цифр PAN одним запросом
+     * и блокирует их строки на запись (SELECT ... FOR UPDATE) до конца транзакции.
+     * Строки блокируются в порядке возрастания идентификатора, поэтому встречные
+     * переводы между одними и теми же картами не приводят к взаимной блокировке.
+     *
+     * @param userId    идентификатор пользователя
+     * @param panLast4s последние 4 цифры PAN искомых карт
+     * @return заблокированные карты, упорядоченные по идентификатору
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Card> findAllByUserIdAndPanLast4InOrderByIdAsc(UUID userId, Collection<String> panLast4s);
+
+    /**
+     * Находит и блокирует на запись карты перевода в порядке идентификаторов.
+     * Карта-назначение с суб-балансами не блокируется и не возвращается:
+     * зачисление на нее изменяет только суб-баланс.
+     *
+     * @param userId       идентификатор пользователя
+     * @param panLast4s    последние 4 цифры PAN карт перевода
+     * @param fromPanLast4 последние 4 цифры PAN карты-источника
+     * @return заблокированные карты, упорядоченные по идентификатору
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT c FROM Card c
+            WHERE c.user.id = :userId AND c.panLast4 IN :panLast4s
+              AND (c.balanceShards = 0 OR c.panLast4 = :fromPanLast4)
+            ORDER BY c.id
+            """)
+    List<Card> findAllForTransfer(
+            @Param("userId") UUID userId,
+            @Param("panLast4s") Collection<String> panLast4s,
+            @Param("fromPanLast4") String fromPanLast4
+    );
+
+    /**
+     * Находит карты пользователя по набору последних 4 цифр PAN одним запросом без блокировок.
+     *
+     * @param userId    идентификатор пользователя
+     * @param panLast4s последние 4 цифры PAN искомых карт
+     * @return найденные карты
+     */
+    List<Card> findAllByUserIdAndPanLast4In(UUID userId, Collection<String> panLast4s);
+
+    /**
+     * Находит идентификаторы карт пользователя по набору последних 4 цифр PAN без загрузки карт.
+     *
+     * @param userId    идентификатор пользователя
+     * @param panLast4s последние 4 цифры PAN искомых карт
+     * @return идентификаторы найденных карт
+     */
+    @Query("SELECT c.id FROM Card c WHERE c.user.id = :userId AND c.panLast4 IN :panLast4s")
+    List<UUID> findIdsByUserIdAndPanLast4In(
+            @Param("userId") UUID userId,
+            @Param("panLast4s") Collection<String> panLast4s
+    );
+
+    /**
+     * Находит карту по идентификатору пользователя и последним 4 цифрам PAN
+     * и блокирует ее строку на запись до конца транзакции.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return карта
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Card> findLockedByUserIdAndPanLast4(UUID userId, String panLast4);
+
+    /**
+     * Находит карту по идентификатору пользователя и последним 4 цифрам PAN и блокирует
+     * ее строку на чтение (SELECT ... FOR SHARE) до конца транзакции: карту нельзя изменить
+     * или удалить, но другие транзакции могут заблокировать ее так же.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return карта
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    Optional<Card> findSharedByUserIdAndPanLast4(UUID userId, String panLast4);
+
+    /**
+     * Находит последние 4 цифры PAN карт пользователя в порядке возрастания идентификатора,
+     * в котором строки карт блокируются, без загрузки карт.
+     *
+     * @param userId    идентификатор пользователя
+     * @param panLast4s последние 4 цифры PAN искомых карт
+     * @return последние 4 цифры PAN найденных карт, упорядоченные по идентификатору карты
+     */
+    @Query("""
+            SELECT c.panLast4 FROM Card c
+            WHERE c.user.id = :userId AND c.panLast4 IN :panLast4s
+            ORDER BY c.id
+            """)
+    List<String> findPanLast4sInLockOrder(
+            @Param("userId") UUID userId,
+            @Param("panLast4s") Collection<String> panLast4s
+    );
+
+    /**
+     * Находит идентификатор карты по идентификатору пользователя и последним 4 цифрам PAN
+     * без загрузки карты.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return идентификатор карты
+     */
+    @Query("SELECT c.id FROM Card c WHERE c.user.id = :userId AND c.panLast4 = :panLast4")
+    Optional<UUID> findIdByUserIdAndPanLast4(@Param("userId") UUID userId, @Param("panLast4") String panLast4);
+
+    /**
+     * Проверяет, что карта пользователя существует, не заблокирована и не истекла,
+     * и блокирует ее строку на чтение (SELECT ... FOR SHARE) до конца транзакции,
+     * чтобы карту нельзя было удалить до записи зачисления в журнал.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @param today    текущая дата для проверки срока действия
+     * @return идентификатор карты, если она доступна для зачисления
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT id FROM cards
+            WHERE user_id = :userId AND pan_last_4 = :panLast4
+              AND NOT blocked AND expires_at >= :today
+            FOR SHARE
+            """)
+    Optional<UUID> lockIfActive(
+            @Param("userId") UUID userId,
+            @Param("panLast4") String panLast4,
+            @Param("today") LocalDate today
+    );
+
+    /**
+     * Проверяет существование карты пользователя по идентификатору.
+     *
+     * @param userId идентификатор пользователя
+     * @param cardId идентификатор карты
+     * @return true, если карта существует и принадлежит пользователю
+     */
+    boolean existsByUserIdAndId(UUID userId, UUID cardId);
+
     /**
      * Проверяет существование карты по пользователю и последним 4 цифрам PAN.
      *
@@ -47,4 +334,50 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
      * @return true, если карта существует
      */
     boolean existsByUserIdAndPanLast4(UUID userId, String panLast4);
+
+    /**
+     * Списывает сумму с карты пользователя одним условным UPDATE: списание выполняется,
+     * только если карта не заблокирована, не истекла и на ней достаточно средств.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN карты-источника
+     * @param amount   сумма списания
+     * @param today    текущая дата для проверки срока действия
+     * @return число измененных строк: 1 при успехе, 0 если условие не выполнено
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Card c SET c.balance = c.balance - :amount, c.version = c.version + 1
+            WHERE c.user.id = :userId AND c.panLast4 = :panLast4
+              AND c.balance >= :amount AND c.blocked = false AND c.expiresAt >= :today
+            """)
+    int debitIfAvailable(
+            @Param("userId") UUID userId,
+            @Param("panLast4") String panLast4,
+            @Param("amount") BigDecimal amount,
+            @Param("today") LocalDate today
+    );
+
+    /**
+     * Зачисляет сумму на карту пользователя одним условным UPDATE: зачисление выполняется,
+     * только если карта не заблокирована, не истекла и не разделена на суб-балансы.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN карты-назначения
+     * @param amount   сумма зачисления
+     * @param today    текущая дата для проверки срока действия
+     * @return число измененных строк: 1 при успехе, 0 если условие не выполнено
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Card c SET c.balance = c.balance + :amount, c.version = c.version + 1
+            WHERE c.user.id = :userId AND c.panLast4 = :panLast4
+              AND c.blocked = false AND c.expiresAt >= :today AND c.balanceShards = 0
+            """)
+    int creditIfActive(
+            @Param("userId") UUID userId,
+            @Param("panLast4") String panLast4,
+            @Param("amount") BigDecimal amount,
+            @Param("today") LocalDate today
+    );
 }
@@ -0,0 +1,39 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.dto.card.CardData;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Проекция карты для чтения: выбирается запросом напрямую в конструктор,
+ * без загрузки сущности в контекст персистентности.
+ *
+ * @param id            идентификатор карты
+ * @param userId        идентификатор владельца
+ * @param panLast4      последние 4 цифры PAN
+ * @param expiresAt     срок действия
+ * @param cardHolder    имя держателя
+ * @param balance       баланс строки карты без отложенных зачислений и суб-балансов
+ * @param blocked       признак блокировки
+ * @param balanceShards число суб-балансов
+ */
+public record CardView(
+        UUID id,
+        UUID userId,
+        String panLast4,
+        LocalDate expiresAt,
+        String cardHolder,
+        BigDecimal balance,
+        boolean blocked,
+        int balanceShards
+) {
+    public boolean isSharded() {
+        return balanceShards > 0;
+    }
+
+    public CardData toCardData() {
+        return new CardData(id, panLast4, expiresAt, cardHolder, balance, blocked);
+    }
+}
@@ -0,0 +1,49 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.RevokedAccessToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий отозванных access-токенов {@link RevokedAccessToken}.
+ */
+public interface RevokedAccessTokenRepository extends JpaRepository<RevokedAccessToken, UUID> {
+
+    /**
+     * Отзывает access-токен. Повторный отзыв того же токена ничего не меняет.
+     *
+     * @param id        идентификатор токена
+     * @param expiresAt момент истечения срока действия токена
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO revoked_access_tokens (id, expires_at)
+            VALUES (:id, :expiresAt)
+            ON CONFLICT (id) DO NOTHING
+            """)
+    void revoke(@Param("id") UUID id, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Находит отозванные токены, срок действия которых истекает после указанного момента.
+     *
+     * @param after момент, после которого истекают токены
+     * @return отозванные токены
+     */
+    List<RevokedAccessToken> findAllByExpiresAtAfter(Instant after);
+
+    /**
+     * Удаляет отозванные токены, срок действия которых истек до указанного момента.
+     *
+     * @param before момент, до которого истекли токены
+     * @return число удаленных токенов
+     */
+    @Modifying
+    @Query("DELETE FROM RevokedAccessToken t WHERE t.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") Instant before);
+}
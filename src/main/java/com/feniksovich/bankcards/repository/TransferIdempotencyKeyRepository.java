@@ -0,0 +1,79 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.TransferIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий ключей идемпотентности переводов {@link TransferIdempotencyKey}.
+ */
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, Long> {
+
+    /**
+     * Находит ключ идемпотентности пользователя.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @return ключ идемпотентности
+     */
+    Optional<TransferIdempotencyKey> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    /**
+     * Занимает ключ идемпотентности для перевода. Истекший, но еще не удаленный ключ
+     * занимается повторно. Если ключ занят незавершенной транзакцией, запрос ожидает
+     * ее завершения на уникальном индексе.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param requestHash    отпечаток параметров перевода
+     * @param transferId     идентификатор перевода
+     * @param createdAt      время создания ключа
+     * @param expiresAt      время истечения ключа
+     * @return 1, если ключ занят этим запросом, иначе 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO transfer_idempotency_keys
+                (user_id, idempotency_key, request_hash, transfer_id, created_at, expires_at)
+            VALUES (:userId, :idempotencyKey, :requestHash, :transferId, :createdAt, :expiresAt)
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+            SET request_hash = EXCLUDED.request_hash,
+                transfer_id = EXCLUDED.transfer_id,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE transfer_idempotency_keys.expires_at < EXCLUDED.created_at
+            """)
+    int claim(
+            @Param("userId") UUID userId,
+            @Param("idempotencyKey") String idempotencyKey,
+            @Param("requestHash") String requestHash,
+            @Param("transferId") UUID transferId,
+            @Param("createdAt") Instant createdAt,
+            @Param("expiresAt") Instant expiresAt
+    );
+
+    /**
+     * Удаляет пакет истекших ключей идемпотентности.
+     *
+     * @param now       текущее время
+     * @param batchSize максимальное число удаляемых ключей
+     * @return число удаленных ключей
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM transfer_idempotency_keys
+            WHERE id IN (
+                SELECT id FROM transfer_idempotency_keys
+                WHERE expires_at < :now
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """)
+    int deleteExpired(@Param("now") Instant now, @Param("batchSize") int batchSize);
+}
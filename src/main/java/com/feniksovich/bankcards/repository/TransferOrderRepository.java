@@ -0,0 +1,68 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.TransferOrder;
+import com.feniksovich.bankcards.entity.TransferStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий заявок на асинхронные переводы {@link TransferOrder}.
+ */
+public interface TransferOrderRepository extends JpaRepository<TransferOrder, UUID> {
+
+    /**
+     * Находит заявку пользователя по идентификатору.
+     *
+     * @param id     идентификатор заявки
+     * @param userId идентификатор пользователя
+     * @return заявка
+     */
+    Optional<TransferOrder> findByIdAndUserId(UUID id, UUID userId);
+
+    /**
+     * Находит самые старые ожидающие выполнения заявки, созданные до указанного момента.
+     *
+     * @param before момент, до которого созданы заявки
+     * @param limit  максимальное число заявок
+     * @return заявки в порядке создания
+     */
+    @Query("""
+            SELECT o FROM TransferOrder o
+            WHERE o.status = com.feniksovich.bankcards.entity.TransferStatus.PENDING
+              AND o.createdAt < :before
+            ORDER BY o.createdAt
+            """)
+    List<TransferOrder> findPendingCreatedBefore(@Param("before") Instant before, Limit limit);
+
+    /**
+     * Переводит ожидающую выполнения заявку в итоговое состояние. Строка заявки блокируется
+     * до конца транзакции, поэтому конкурирующий обработчик той же заявки ожидает
+     * ее завершения и не изменяет ни одной строки.
+     *
+     * @param id          идентификатор заявки
+     * @param status      итоговое состояние
+     * @param message     причина отклонения
+     * @param processedAt время обработки
+     * @return 1, если заявка ожидала выполнения, иначе 0
+     */
+    @Modifying
+    @Query("""
+            UPDATE TransferOrder o
+            SET o.status = :status, o.message = :message, o.processedAt = :processedAt
+            WHERE o.id = :id AND o.status = com.feniksovich.bankcards.entity.TransferStatus.PENDING
+            """)
+    int complete(
+            @Param("id") UUID id,
+            @Param("status") TransferStatus status,
+            @Param("message") String message,
+            @Param("processedAt") Instant processedAt
+    );
+}
@@ -2,19 +2,58 @@ package com.feniksovich.bankcards.repository;
 
 import com.feniksovich.bankcards.entity.UserRefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Репозиторий для работы с сущностями {@link com.feniksovich.bankcards.entity.UserRefreshToken}.
  */
 @Repository
-public interface UserRefreshTokenRepository extends JpaRepository<UserRefreshToken, UUID> {
+public interface UserRefreshTokenRepository
+        extends JpaRepository<UserRefreshToken, UUID>, UserRefreshTokenRepositoryCustom {
+
+    /**
+     * Находит refresh-токены, срок действия которых истекает после указанного момента.
+     *
+     * @param after момент, после которого истекает срок действия
+     * @return действующие refresh-токены
+     */
+    List<UserRefreshToken> findAllByExpiresAtAfter(Instant after);
+
+    /**
+     * Удаляет все refresh-токены, связанные с пользователями, одним запросом.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return число удаленных токенов
+     */
+    @Modifying
+    @Query("DELETE FROM UserRefreshToken t WHERE t.userId IN :userIds")
+    int deleteAllByUserIdIn(@Param("userIds") Collection<UUID> userIds);
+
     /**
-     * Удаляет все refresh-токены, связанные с пользователем.
+     * Удаляет пакет истекших refresh-токенов из партиции по умолчанию.
+     * Месячные партиции удаляются целиком после истечения всех их токенов.
      *
-     * @param userId идентификатор пользователя
+     * @param now       текущий момент
+     * @param batchSize максимальное число удаляемых токенов
+     * @return число удаленных токенов
      */
-    void deleteAllByUserId(UUID userId);
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM refresh_tokens_default
+            WHERE id IN (
+                SELECT id FROM refresh_tokens_default
+                WHERE expires_at < :now
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """)
+    int deleteExpiredUnpartitioned(@Param("now") Instant now, @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,47 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.UserRefreshToken;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Операции с refresh-токенами и партициями их таблицы, выполняемые напрямую через JDBC.
+ * <p>
+ * Таблица {@code refresh_tokens} секционирована по сроку действия токена: каждая
+ * месячная партиция содержит токены, истекающие в этом месяце, а токены вне созданных
+ * партиций попадают в партицию по умолчанию.
+ */
+public interface UserRefreshTokenRepositoryCustom {
+
+    /**
+     * Сохраняет refresh-токены одним пакетом JDBC в текущей транзакции.
+     * Уже сохраненные токены и токены удаленных пользователей пропускаются.
+     *
+     * @param tokens refresh-токены
+     */
+    void insertAll(Collection<UserRefreshToken> tokens);
+
+    /**
+     * Находит месяцы, для которых созданы партиции.
+     *
+     * @return месяцы истечения срока действия
+     */
+    List<YearMonth> findMonthlyPartitions();
+
+    /**
+     * Создает партицию для токенов, истекающих в указанном месяце, и переносит в нее
+     * такие токены из партиции по умолчанию. Должен вызываться в транзакции.
+     *
+     * @param month месяц истечения срока действия
+     */
+    void createMonthlyPartition(YearMonth month);
+
+    /**
+     * Удаляет партицию вместе со всеми ее токенами.
+     *
+     * @param month месяц истечения срока действия
+     */
+    void dropMonthlyPartition(YearMonth month);
+}
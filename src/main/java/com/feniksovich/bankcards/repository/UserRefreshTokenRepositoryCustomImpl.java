@@ -0,0 +1,99 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.UserRefreshToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Реализация JDBC-операций с refresh-токенами и партициями их таблицы.
+ */
+public class UserRefreshTokenRepositoryCustomImpl implements UserRefreshTokenRepositoryCustom {
+
+    private static final String PARTITION_PREFIX = "refresh_tokens_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Conflicts are detected by the primary key (id, expires_at) required by partitioning
+    private static final String INSERT_TOKEN_SQL = """
+            INSERT INTO refresh_tokens (id, user_id, expires_at)
+            SELECT ?, id, ? FROM users WHERE id = ?
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String FIND_PARTITIONS_SQL = """
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'refresh_tokens'::regclass
+            """;
+
+    private static final String MOVE_FROM_DEFAULT_SQL = """
+            WITH moved AS (
+                DELETE FROM refresh_tokens_default
+                WHERE expires_at >= ? AND expires_at < ?
+                RETURNING id, user_id, expires_at
+            )
+            INSERT INTO %s (id, user_id, expires_at)
+            SELECT id, user_id, expires_at FROM moved
+            """;
+
+    @Autowired
+    public UserRefreshTokenRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void insertAll(Collection<UserRefreshToken> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TOKEN_SQL, tokens, tokens.size(), (ps, token) -> {
+            ps.setObject(1, token.getId());
+            ps.setTimestamp(2, Timestamp.from(token.getExpiresAt()));
+            ps.setObject(3, token.getUserId());
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<YearMonth> findMonthlyPartitions() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS_SQL, String.class).stream()
+                .filter(name -> name.startsWith(PARTITION_PREFIX))
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+                .toList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void createMonthlyPartition(YearMonth month) {
+        final String partition = partitionName(month);
+        final LocalDateTime from = month.atDay(1).atStartOfDay();
+        final LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        // Attaching validates that the default partition holds no rows of the new range
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE refresh_tokens INCLUDING DEFAULTS)");
+        jdbcTemplate.update(MOVE_FROM_DEFAULT_SQL.formatted(partition), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE refresh_tokens ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(partition, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void dropMonthlyPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    private static String partitionName(YearMonth month) {
+        // Generated from the month only, so the name is safe to embed in DDL
+        return PARTITION_PREFIX + Objects.requireNonNull(month).format(PARTITION_SUFFIX);
+    }
+}
@@ -1,7 +1,12 @@
 package com.feniksovich.bankcards.repository;
 
+import com.feniksovich.bankcards.dto.user.UserData;
 import com.feniksovich.bankcards.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -25,4 +30,46 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      * @return true, если пользователь существует
      */
     boolean existsByPhoneNumber(String phoneNumber);
+
+    /**
+     * Находит данные пользователя по идентификатору без загрузки сущности.
+     *
+     * @param id идентификатор пользователя
+     * @return опционал с данными пользователя
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.dto.user.UserData(
+                u.id, u.lastName, u.firstName, u.phoneNumber, u.role, u.createdAt, u.updatedAt
+            )
+            FROM User u WHERE u.id = :id
+            """)
+    Optional<UserData> findDataById(@Param("id") UUID id);
+
+    /**
+     * Находит данные пользователя по номеру телефона без загрузки сущности.
+     *
+     * @param phoneNumber номер телефона
+     * @return опционал с данными пользователя
+     */
+    @Query("""
+            SELECT new com.feniksovich.bankcards.dto.user.UserData(
+                u.id, u.lastName, u.firstName, u.phoneNumber, u.role, u.createdAt, u.updatedAt
+            )
+            FROM User u WHERE u.phoneNumber = :phoneNumber
+            """)
+    Optional<UserData> findDataByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+
+    /**
+     * Находит данные всех пользователей с пагинацией без загрузки сущностей.
+     *
+     * @param pageable параметры пагинации
+     * @return страница с данными пользователей
+     */
+    @Query(value = """
+            SELECT new com.feniksovich.bankcards.dto.user.UserData(
+                u.id, u.lastName, u.firstName, u.phoneNumber, u.role, u.createdAt, u.updatedAt
+            )
+            FROM User u
+            """, countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserData> findAllData(Pageable pageable);
 }
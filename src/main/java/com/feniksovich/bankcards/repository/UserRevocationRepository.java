@@ -0,0 +1,50 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.UserRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий отзывов доступа пользователей {@link UserRevocation}.
+ */
+public interface UserRevocationRepository extends JpaRepository<UserRevocation, UUID> {
+
+    /**
+     * Отзывает доступ пользователя, сдвигая момент отзыва, если доступ уже был отозван.
+     *
+     * @param userId    идентификатор пользователя
+     * @param revokedAt момент отзыва
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO user_revocations (user_id, revoked_at)
+            VALUES (:userId, :revokedAt)
+            ON CONFLICT (user_id) DO UPDATE
+            SET revoked_at = GREATEST(user_revocations.revoked_at, EXCLUDED.revoked_at)
+            """)
+    void revoke(@Param("userId") UUID userId, @Param("revokedAt") Instant revokedAt);
+
+    /**
+     * Находит отзывы, выполненные после указанного момента.
+     *
+     * @param after момент, после которого выполнены отзывы
+     * @return отзывы доступа
+     */
+    List<UserRevocation> findAllByRevokedAtAfter(Instant after);
+
+    /**
+     * Удаляет отзывы, выполненные до указанного момента.
+     *
+     * @param before момент, до которого выполнены отзывы
+     * @return число удаленных отзывов
+     */
+    @Modifying
+    @Query("DELETE FROM UserRevocation r WHERE r.revokedAt < :before")
+    int deleteRevokedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,40 @@
+package com.feniksovich.bankcards.repository;
+
+import com.feniksovich.bankcards.entity.UserTokenGeneration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий поколений токенов пользователей {@link UserTokenGeneration}.
+ */
+public interface UserTokenGenerationRepository extends JpaRepository<UserTokenGeneration, UUID> {
+
+    /**
+     * Увеличивает поколение токенов пользователя на единицу.
+     *
+     * @param userId    идентификатор пользователя
+     * @param changedAt момент изменения
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO user_token_generations (user_id, generation, changed_at)
+            VALUES (:userId, 1, :changedAt)
+            ON CONFLICT (user_id) DO UPDATE
+            SET generation = user_token_generations.generation + 1, changed_at = EXCLUDED.changed_at
+            """)
+    void advance(@Param("userId") UUID userId, @Param("changedAt") Instant changedAt);
+
+    /**
+     * Находит поколения, измененные после указанного момента.
+     *
+     * @param after момент, после которого изменены поколения
+     * @return поколения токенов
+     */
+    List<UserTokenGeneration> findAllByChangedAtAfter(Instant after);
+}
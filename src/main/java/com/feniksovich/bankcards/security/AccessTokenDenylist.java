@@ -0,0 +1,112 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.RevokedAccessToken;
+import com.feniksovich.bankcards.repository.RevokedAccessTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Список отозванных access-токенов. Токены хранятся в таблице до истечения своего
+ * срока действия, а в памяти — в точном наборе, перед которым стоит фильтр Блума:
+ * проверка токена, которого нет в списке, обходится фильтром без блокировок
+ * и выделения памяти, а к набору обращаются только положительные ответы фильтра.
+ * <p>
+ * Список загружается после старта приложения и перестраивается из БД по расписанию,
+ * освобождаясь от истекших токенов; токены, отозванные этим узлом, добавляются
+ * в текущий список при отзыве.
+ */
+@Slf4j
+@Component
+public class AccessTokenDenylist {
+
+    // Lower bound of the filter capacity, so revocations between rebuilds keep the error rate low
+    private static final int MIN_CAPACITY = 1024;
+
+    private final RevokedAccessTokenRepository repository;
+    private final TransactionOperations transactionOperations;
+
+    private volatile Snapshot snapshot = new Snapshot(new UuidBloomFilter(MIN_CAPACITY), new ConcurrentHashMap<>());
+
+    @Autowired
+    public AccessTokenDenylist(
+            RevokedAccessTokenRepository repository,
+            TransactionOperations transactionOperations
+    ) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Отзывает access-токен до истечения его срока действия.
+     *
+     * @param id        идентификатор токена
+     * @param expiresAt момент истечения срока действия токена
+     */
+    public synchronized void revoke(UUID id, Instant expiresAt) {
+        if (!expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        transactionOperations.executeWithoutResult(_ -> repository.revoke(id, expiresAt));
+        // Added to the exact set first, so a positive filter answer always finds the token
+        snapshot.revoked().put(id, expiresAt);
+        snapshot.filter().add(id);
+    }
+
+    /**
+     * Проверяет, отозван ли access-токен.
+     *
+     * @param jwtToken access-токен
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(JwtToken jwtToken) {
+        final Snapshot current = snapshot;
+        return current.filter().mightContain(jwtToken.id()) && current.revoked().containsKey(jwtToken.id());
+    }
+
+    /**
+     * Загружает список из БД после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildFilter();
+    }
+
+    /**
+     * Удаляет истекшие токены и перестраивает фильтр по остальным из БД.
+     */
+    @Scheduled(fixedDelayString = "${security.authentication.denylist-refresh-interval}")
+    public synchronized void rebuildFilter() {
+        final Instant now = Instant.now();
+        final Integer purged = transactionOperations.execute(_ -> repository.deleteExpiredBefore(now));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} expired revoked access tokens", purged);
+        }
+
+        final Map<UUID, Instant> revoked = new ConcurrentHashMap<>();
+        for (RevokedAccessToken token : repository.findAllByExpiresAtAfter(now)) {
+            revoked.put(token.getId(), token.getExpiresAt());
+        }
+        final UuidBloomFilter filter = new UuidBloomFilter(Math.max(revoked.size() * 2, MIN_CAPACITY));
+        revoked.keySet().forEach(filter::add);
+
+        snapshot = new Snapshot(filter, revoked);
+    }
+
+    /**
+     * Фильтр и точный набор, публикуемые вместе.
+     *
+     * @param filter  фильтр Блума по идентификаторам отозванных токенов
+     * @param revoked идентификаторы отозванных токенов и моменты их истечения
+     */
+    private record Snapshot(UuidBloomFilter filter, Map<UUID, Instant> revoked) {}
+}
@@ -14,6 +14,11 @@ import org.springframework.stereotype.Component;
  * Конвертер строковых JWT-токенов в {@link JwtAuthenticationToken},
  * переданных HTTP заголовке Authorization по схеме Bearer.
  * Реализован как компонент Spring Security.
+ * <p>
+ * Тип токена определяется по числу сегментов компактной сериализации до любых
+ * криптографических операций: access-токен (JWS) состоит из трех сегментов,
+ * refresh-токен (JWE) — из пяти. Токен передается только соответствующему десериализатору,
+ * а строки другой формы отклоняются сразу.
  */
 @Component
 public class BearerJwtAuthenticationTokenConverter implements AuthenticationConverter {
@@ -22,6 +27,8 @@ public class BearerJwtAuthenticationTokenConverter implements AuthenticationConv
     private final RefreshTokenDeserializer refreshTokenDeserializer;
 
     private static final String BEARER_SCHEMA_HEAD = "Bearer ";
+    private static final int JWS_SEGMENTS = 3;
+    private static final int JWE_SEGMENTS = 5;
 
     @Autowired
     public BearerJwtAuthenticationTokenConverter(
@@ -38,14 +45,13 @@ public class BearerJwtAuthenticationTokenConverter implements AuthenticationConv
         if (authorization != null && authorization.startsWith(BEARER_SCHEMA_HEAD)) {
             final String token = authorization.substring(BEARER_SCHEMA_HEAD.length()).trim();
 
-            final JwtToken accessToken = accessTokenDeserializer.deserialize(token);
-            if (accessToken != null) {
-                return JwtAuthenticationToken.unauthenticated(accessToken);
-            }
-
-            final JwtToken refreshToken = refreshTokenDeserializer.deserialize(token);
-            if (refreshToken != null) {
-                return JwtAuthenticationToken.unauthenticated(refreshToken);
+            final JwtToken jwtToken = switch (countSegments(token)) {
+                case JWS_SEGMENTS -> accessTokenDeserializer.deserialize(token);
+                case JWE_SEGMENTS -> refreshTokenDeserializer.deserialize(token);
+                default -> null;
+            };
+            if (jwtToken != null) {
+                return JwtAuthenticationToken.unauthenticated(jwtToken);
             }
 
             throw new BadCredentialsException("Invalid token");
@@ -53,4 +59,19 @@ public class BearerJwtAuthenticationTokenConverter implements AuthenticationConv
         return null;
     }
 
+    /**
+     * Подсчитывает число сегментов компактной сериализации токена.
+     *
+     * @param token строка токена
+     * @return число сегментов, разделенных точкой, но не более {@code JWE_SEGMENTS + 1}
+     */
+    private static int countSegments(String token) {
+        int segments = 1;
+        for (int i = 0; i < token.length() && segments <= JWE_SEGMENTS; i++) {
+            if (token.charAt(i) == '.') {
+                segments++;
+            }
+        }
+        return segments;
+    }
 }
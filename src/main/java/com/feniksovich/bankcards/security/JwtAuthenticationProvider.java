@@ -1,5 +1,6 @@
 package com.feniksovich.bankcards.security;
 
+import com.feniksovich.bankcards.config.SecurityProperties;
 import com.feniksovich.bankcards.service.auth.UserRefreshTokenService;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -10,19 +11,41 @@ import org.springframework.security.core.AuthenticationException;
 /**
  * Провайдер аутентификации с помощью JWT. Выполняет валидацию токена,
  * проверяет срок действия и аутентифицирует пользователя в контексте безопасности.
+ * Пользователь читается через {@link PrincipalCache}, поэтому повторные запросы
+ * с токенами одного пользователя не обращаются к БД. В режиме
+ * {@link SecurityProperties.AuthenticationMode#STATELESS} пользователь access-токена
+ * строится из утверждений токена, а токены удаленных пользователей отклоняются
+ * по {@link UserRevocationRegistry}. Токены, выпущенные до глобального выхода
+ * пользователя, отклоняются по {@link TokenGenerationRegistry} в любом режиме,
+ * а access-токены, отозванные выходом с устройства, — по {@link AccessTokenDenylist}.
  * Реализован как компонент Spring Security.
  */
 public class JwtAuthenticationProvider implements AuthenticationProvider {
 
     private final ExtendedUserDetailsService userDetailsService;
     private final UserRefreshTokenService userRefreshTokenService;
+    private final PrincipalCache principalCache;
+    private final UserRevocationRegistry revocationRegistry;
+    private final TokenGenerationRegistry generationRegistry;
+    private final AccessTokenDenylist accessTokenDenylist;
+    private final SecurityProperties.AuthenticationMode mode;
 
     public JwtAuthenticationProvider(
             ExtendedUserDetailsService userDetailsService,
-            UserRefreshTokenService userRefreshTokenService
+            UserRefreshTokenService userRefreshTokenService,
+            PrincipalCache principalCache,
+            UserRevocationRegistry revocationRegistry,
+            TokenGenerationRegistry generationRegistry,
+            AccessTokenDenylist accessTokenDenylist,
+            SecurityProperties.AuthenticationMode mode
     ) {
         this.userDetailsService = userDetailsService;
         this.userRefreshTokenService = userRefreshTokenService;
+        this.principalCache = principalCache;
+        this.revocationRegistry = revocationRegistry;
+        this.generationRegistry = generationRegistry;
+        this.accessTokenDenylist = accessTokenDenylist;
+        this.mode = mode;
     }
 
     @Override
@@ -33,11 +56,28 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
             throw new CredentialsExpiredException("Token expired");
         }
 
+        if (generationRegistry.isOutdated(jwtToken)) {
+            throw new BadCredentialsException("Token revoked");
+        }
+
         if (jwtToken.type() == TokenType.REFRESH && !userRefreshTokenService.isTracked(jwtToken)) {
             throw new BadCredentialsException("Token invalid");
         }
 
-        final UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserById(jwtToken.userId());
+        if (jwtToken.type() == TokenType.ACCESS && accessTokenDenylist.isRevoked(jwtToken)) {
+            throw new BadCredentialsException("Token revoked");
+        }
+
+        if (jwtToken.type() == TokenType.ACCESS && mode == SecurityProperties.AuthenticationMode.STATELESS) {
+            if (revocationRegistry.isRevoked(jwtToken)) {
+                throw new BadCredentialsException("Token revoked");
+            }
+            return JwtAuthenticationToken.authenticated(jwtToken, UserPrincipal.of(jwtToken));
+        }
+
+        final UserPrincipal principal = principalCache.get(
+                jwtToken.userId(), () -> (UserPrincipal) userDetailsService.loadUserById(jwtToken.userId())
+        );
         return JwtAuthenticationToken.authenticated(jwtToken, principal);
     }
 
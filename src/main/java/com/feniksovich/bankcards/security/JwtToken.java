@@ -8,7 +8,8 @@ import java.util.Collection;
 import java.util.UUID;
 
 /**
- * Низкоуровневое представление JWT с типом, сроками и правами.
+ * Низкоуровневое представление JWT с типом, сроками, правами и поколением токенов пользователя.
+ * Токены предыдущих поколений отклоняются после глобального выхода пользователя.
  */
 public record JwtToken(
         TokenType type,
@@ -16,7 +17,8 @@ public record JwtToken(
         UUID userId,
         Instant createdAt,
         Instant expiresAt,
-        Collection<? extends GrantedAuthority> authorities
+        Collection<? extends GrantedAuthority> authorities,
+        int generation
 ) {
 
     /**
@@ -27,9 +29,10 @@ public record JwtToken(
             UUID userId,
             Instant createdAt,
             Instant expiresAt,
-            Collection<? extends GrantedAuthority> authorities
+            Collection<? extends GrantedAuthority> authorities,
+            int generation
     ) {
-        return new JwtToken(TokenType.ACCESS, id, userId, createdAt, expiresAt, authorities);
+        return new JwtToken(TokenType.ACCESS, id, userId, createdAt, expiresAt, authorities, generation);
     }
 
     /**
@@ -40,9 +43,10 @@ public record JwtToken(
             UUID userId,
             Instant createdAt,
             Instant expiresAt,
-            Collection<? extends GrantedAuthority> authorities
+            Collection<? extends GrantedAuthority> authorities,
+            int generation
     ) {
-        return new JwtToken(TokenType.REFRESH, id, userId, createdAt, expiresAt, authorities);
+        return new JwtToken(TokenType.REFRESH, id, userId, createdAt, expiresAt, authorities, generation);
     }
 
     /**
@@ -67,6 +71,7 @@ public record JwtToken(
                 ", authorities=" + authorities +
                 ", createdAt=" + createdAt +
                 ", expiresAt=" + expiresAt +
+                ", generation=" + generation +
                 '}';
     }
 }
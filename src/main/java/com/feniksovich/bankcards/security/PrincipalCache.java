@@ -0,0 +1,56 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.service.user.UserChangedEvent;
+import com.feniksovich.bankcards.util.CommitAwareCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Кэш пользователей, аутентифицированных по JWT, в {@link CommitAwareCache}. Пользователь
+ * удаляется после фиксации транзакции, изменившей или удалившей его; изменения на других
+ * узлах применяются по истечении времени хранения.
+ */
+@Component
+public class PrincipalCache {
+
+    static final String GETS_METRIC = "security.principal.cache.gets";
+
+    private final SecurityProperties.PrincipalCacheProperties properties;
+    private final CommitAwareCache<UUID, UserPrincipal> cache;
+
+    @Autowired
+    public PrincipalCache(SecurityProperties securityProperties, MeterRegistry meterRegistry) {
+        this.properties = securityProperties.principalCache();
+        this.cache = new CommitAwareCache<>(properties.maxSize(), properties.ttl(), meterRegistry, GETS_METRIC);
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает и запоминает его.
+     * Если кэш выключен, пользователь загружается на каждый вызов.
+     *
+     * @param userId идентификатор пользователя
+     * @param loader загрузка пользователя
+     * @return пользователь
+     */
+    public UserPrincipal get(UUID userId, Supplier<UserPrincipal> loader) {
+        return properties.enabled() ? cache.get(userId, loader) : loader.get();
+    }
+
+    /**
+     * Удаляет пользователя из кэша после фиксации транзакции, изменившей его.
+     *
+     * @param event событие изменения пользователя
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (properties.enabled()) {
+            cache.invalidate(event.userId());
+        }
+    }
+}
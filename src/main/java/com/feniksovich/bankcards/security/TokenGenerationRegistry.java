@@ -0,0 +1,109 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.entity.UserTokenGeneration;
+import com.feniksovich.bankcards.repository.UserTokenGenerationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр поколений токенов пользователей. Глобальный выход увеличивает поколение
+ * пользователя, и все его токены предыдущих поколений отклоняются проверкой
+ * по карте в памяти без обращения к БД.
+ * <p>
+ * В памяти хранятся только поколения, измененные в пределах срока жизни refresh-токена:
+ * токены, выпущенные до более раннего изменения, уже истекли. Поколения загружаются
+ * после старта приложения и перечитываются по расписанию; выход на этом узле
+ * запоминается без ожидания перечитывания.
+ */
+@Component
+public class TokenGenerationRegistry {
+
+    private final UserTokenGenerationRepository repository;
+    private final TransactionOperations transactionOperations;
+    private final Duration refreshTokenExpiration;
+    private final Map<UUID, UserTokenGeneration> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenGenerationRegistry(
+            UserTokenGenerationRepository repository,
+            TransactionOperations transactionOperations,
+            SecurityProperties securityProperties
+    ) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+        this.refreshTokenExpiration = securityProperties.refreshToken().expiration();
+    }
+
+    /**
+     * Проверяет, выпущен ли токен до последнего глобального выхода его владельца.
+     *
+     * @param jwtToken access- или refresh-токен
+     * @return true, если поколение токена устарело
+     */
+    public boolean isOutdated(JwtToken jwtToken) {
+        final UserTokenGeneration current = generations.get(jwtToken.userId());
+        return current != null && jwtToken.generation() < current.getGeneration();
+    }
+
+    /**
+     * Читает текущее поколение пользователя из БД для выпуска новых токенов,
+     * чтобы они не отклонялись после выхода, еще не загруженного с другого узла.
+     *
+     * @param userId идентификатор пользователя
+     * @return текущее поколение токенов
+     */
+    public int currentForIssue(UUID userId) {
+        return repository.findById(userId).map(this::remember).orElse(0);
+    }
+
+    /**
+     * Увеличивает поколение пользователя, отзывая все его выпущенные токены.
+     *
+     * @param userId идентификатор пользователя
+     * @return новое поколение токенов
+     */
+    public int advance(UUID userId) {
+        final UserTokenGeneration advanced = transactionOperations.execute(_ -> {
+            repository.advance(userId, Instant.now());
+            return repository.findById(userId).orElseThrow();
+        });
+        return remember(advanced);
+    }
+
+    /**
+     * Загружает поколения из БД после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refreshGenerations();
+    }
+
+    /**
+     * Загружает поколения, измененные в пределах срока жизни refresh-токена,
+     * и забывает более старые.
+     */
+    @Scheduled(fixedDelayString = "${security.authentication.generation-refresh-interval}")
+    public synchronized void refreshGenerations() {
+        final Instant horizon = Instant.now().minus(refreshTokenExpiration);
+        repository.findAllByChangedAtAfter(horizon).forEach(this::remember);
+        generations.values().removeIf(generation -> generation.getChangedAt().isBefore(horizon));
+    }
+
+    private int remember(UserTokenGeneration generation) {
+        // Generations only grow, so a concurrent reload never moves a user back
+        return generations.merge(generation.getUserId(), generation,
+                (current, read) -> read.getGeneration() > current.getGeneration() ? read : current
+        ).getGeneration();
+    }
+}
@@ -46,6 +46,18 @@ public class UserPrincipal implements UserDetails {
         );
     }
 
+    /**
+     * Создает principal из утверждений access-токена (без номера телефона и пароля).
+     */
+    public static UserPrincipal of(JwtToken jwtToken) {
+        return new UserPrincipal(
+                jwtToken.userId(),
+                null,
+                null,
+                jwtToken.authorities()
+        );
+    }
+
     @Override
     public String getUsername() {
         return phoneNumber;
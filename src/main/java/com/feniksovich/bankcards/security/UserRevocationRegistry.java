@@ -0,0 +1,121 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.entity.UserRevocation;
+import com.feniksovich.bankcards.repository.UserRevocationRepository;
+import com.feniksovich.bankcards.service.user.UserChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Реестр отзывов доступа пользователей для аутентификации без чтения пользователя из БД.
+ * Отзывы хранятся в таблице не дольше срока жизни access-токена: позже все токены,
+ * выпущенные до отзыва, истекают сами. Поэтому в памяти хранятся только недавние
+ * отзывы: они загружаются после старта приложения и периодически перечитываются
+ * из БД, а отзывы этого узла добавляются сразу после фиксации транзакции.
+ */
+@Slf4j
+@Component
+public class UserRevocationRegistry {
+
+    private final UserRevocationRepository repository;
+    private final TransactionOperations transactionOperations;
+    private final SecurityProperties.AuthenticationMode mode;
+    private final Duration accessTokenExpiration;
+
+    private volatile Map<UUID, Instant> revocations = Map.of();
+
+    @Autowired
+    public UserRevocationRegistry(
+            UserRevocationRepository repository,
+            TransactionOperations transactionOperations,
+            SecurityProperties securityProperties
+    ) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+        this.mode = securityProperties.authentication().mode();
+        this.accessTokenExpiration = securityProperties.accessToken().expiration();
+    }
+
+    /**
+     * Отзывает доступ пользователя. Должен вызываться в транзакции,
+     * удаляющей пользователя или лишающей его прав.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void revoke(UUID userId) {
+        repository.revoke(userId, Instant.now());
+    }
+
+    /**
+     * Проверяет, выпущен ли access-токен до отзыва доступа его владельца.
+     *
+     * @param jwtToken access-токен
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(JwtToken jwtToken) {
+        final Instant revokedAt = revocations.get(jwtToken.userId());
+        return revokedAt != null && !jwtToken.createdAt().isAfter(revokedAt);
+    }
+
+    /**
+     * Добавляет отзыв доступа пользователя, выполненный на этом узле, после фиксации транзакции.
+     *
+     * @param event событие изменения пользователя
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (mode != SecurityProperties.AuthenticationMode.STATELESS) {
+            return;
+        }
+        repository.findById(event.userId()).ifPresent(this::add);
+    }
+
+    /**
+     * Загружает недавние отзывы из БД после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refreshRevocations();
+    }
+
+    /**
+     * Удаляет отзывы старше срока жизни access-токена и перечитывает остальные из БД.
+     * В режиме с чтением пользователя ничего не делает.
+     */
+    @Scheduled(fixedDelayString = "${security.authentication.revocation-refresh-interval}")
+    public void refreshRevocations() {
+        if (mode == SecurityProperties.AuthenticationMode.STATELESS) {
+            refresh();
+        }
+    }
+
+    private synchronized void refresh() {
+        final Instant horizon = Instant.now().minus(accessTokenExpiration);
+        final Integer purged = transactionOperations.execute(_ -> repository.deleteRevokedBefore(horizon));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} outdated user revocations", purged);
+        }
+        revocations = repository.findAllByRevokedAtAfter(horizon).stream()
+                .collect(Collectors.toUnmodifiableMap(UserRevocation::getUserId, UserRevocation::getRevokedAt));
+    }
+
+    private synchronized void add(UserRevocation revocation) {
+        final Map<UUID, Instant> updated = new HashMap<>(revocations);
+        updated.merge(revocation.getUserId(), revocation.getRevokedAt(), (a, b) -> a.isAfter(b) ? a : b);
+        revocations = Map.copyOf(updated);
+    }
+}
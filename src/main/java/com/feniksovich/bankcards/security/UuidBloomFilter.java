@@ -0,0 +1,70 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.util.HashUtil;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для идентификаторов. Проверка не выделяет память и не берет блокировок,
+ * добавление устанавливает биты с помощью CAS. Удаление не поддерживается:
+ * фильтр перестраивается целиком.
+ * <p>
+ * На каждый ожидаемый элемент отводится не меньше десяти бит, что при семи
+ * хеш-функциях дает около одного процента ложноположительных ответов.
+ */
+final class UuidBloomFilter {
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final AtomicLongArray words;
+    private final long mask;
+
+    /**
+     * @param expectedEntries ожидаемое число элементов
+     */
+    UuidBloomFilter(int expectedEntries) {
+        // Rounded up to a power of two so that a bit index is taken with a mask
+        final long bits = Long.highestOneBit(Math.max(expectedEntries, 64) * (long) BITS_PER_ENTRY - 1) << 1;
+        this.words = new AtomicLongArray(Math.toIntExact(bits >>> 6));
+        this.mask = bits - 1;
+    }
+
+    /**
+     * Добавляет идентификатор в фильтр.
+     */
+    void add(UUID id) {
+        final long h1 = HashUtil.mix64(id.getMostSignificantBits());
+        final long h2 = HashUtil.mix64(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            final long bit = (h1 + i * h2) & mask;
+            final int index = (int) (bit >>> 6);
+            final long flag = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & flag) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | flag));
+        }
+    }
+
+    /**
+     * Проверяет, мог ли идентификатор быть добавлен в фильтр.
+     *
+     * @return false, если идентификатор точно не добавлялся
+     */
+    boolean mightContain(UUID id) {
+        final long h1 = HashUtil.mix64(id.getMostSignificantBits());
+        final long h2 = HashUtil.mix64(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            final long bit = (h1 + i * h2) & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
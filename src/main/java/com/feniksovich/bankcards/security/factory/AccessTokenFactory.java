@@ -30,14 +30,15 @@ public class AccessTokenFactory implements JwtTokenFactory {
 
     /** {@inheritDoc} */
     @Override
-    public JwtToken generate(UserPrincipal principal) {
+    public JwtToken generate(UUID id, UserPrincipal principal, int generation) {
         final Instant now = Instant.now();
         return JwtToken.accessToken(
-                UUID.randomUUID(),
+                id,
                 principal.getId(),
                 now,
                 now.plus(expiration),
-                principal.getAuthorities()
+                principal.getAuthorities(),
+                generation
         );
     }
 }
@@ -3,12 +3,30 @@ package com.feniksovich.bankcards.security.factory;
 import com.feniksovich.bankcards.security.JwtToken;
 import com.feniksovich.bankcards.security.UserPrincipal;
 
+import java.util.UUID;
+
 /**
  * Общий интерфейс фабрик токенов JWT.
  */
 public interface JwtTokenFactory {
     /**
-     * Генерирует токен для указанного пользователя.
+     * Генерирует токен с указанным идентификатором для указанного пользователя.
+     * Access- и refresh-токен одной пары выпускаются с общим идентификатором,
+     * чтобы выход по refresh-токену мог отозвать access-токен пары.
+     *
+     * @param id         идентификатор токена
+     * @param principal  пользователь
+     * @param generation текущее поколение токенов пользователя
+     */
+    JwtToken generate(UUID id, UserPrincipal principal, int generation);
+
+    /**
+     * Генерирует токен со случайным идентификатором для указанного пользователя.
+     *
+     * @param principal  пользователь
+     * @param generation текущее поколение токенов пользователя
      */
-    JwtToken generate(UserPrincipal principal);
+    default JwtToken generate(UserPrincipal principal, int generation) {
+        return generate(UUID.randomUUID(), principal, generation);
+    }
 }
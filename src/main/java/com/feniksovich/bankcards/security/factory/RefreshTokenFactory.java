@@ -37,14 +37,15 @@ public class RefreshTokenFactory implements JwtTokenFactory {
 
     /** {@inheritDoc} */
     @Override
-    public JwtToken generate(UserPrincipal principal) {
+    public JwtToken generate(UUID id, UserPrincipal principal, int generation) {
         final Instant now = Instant.now();
         return JwtToken.refreshToken(
-                UUID.randomUUID(),
+                id,
                 principal.getId(),
                 now,
                 now.plus(expiration),
-                JWT_REFRESH_AUTHORITIES
+                JWT_REFRESH_AUTHORITIES,
+                generation
         );
     }
 }
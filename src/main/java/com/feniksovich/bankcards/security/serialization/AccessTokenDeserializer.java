@@ -6,42 +6,106 @@ import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Десериализация и верификация access-токенов с помощью JWS.
+ * <p>
+ * Клиент передает один и тот же токен на протяжении всего срока его жизни, поэтому
+ * проверенные токены хранятся в ограниченном LRU-кэше по SHA-256 строки токена до истечения
+ * их срока действия: повторный запрос с тем же токеном не разбирает его и не проверяет подпись.
+ * Измененный токен дает другой отпечаток и проверяется заново. Наборы прав
+ * строятся один раз для каждого различного списка прав в токенах.
  */
 public class AccessTokenDeserializer implements JwtTokenDeserializer {
 
     private final JWSVerifier verifier;
+    private final Map<String, JwtToken> cache;
+    // Claim lists come only from verified tokens, so there are as many of them as role combinations
+    private final Map<List<String>, Set<SimpleGrantedAuthority>> authoritySets = new ConcurrentHashMap<>();
 
-    public AccessTokenDeserializer(JWSVerifier verifier) {
+    /**
+     * Создает десериализатор с кэшем проверенных токенов.
+     *
+     * @param verifier  верификатор подписи
+     * @param cacheSize максимальное число токенов в кэше; 0 выключает кэш
+     */
+    public AccessTokenDeserializer(JWSVerifier verifier, int cacheSize) {
         this.verifier = verifier;
+        this.cache = cacheSize > 0
+                ? Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, JwtToken> eldest) {
+                        return size() > cacheSize;
+                    }
+                })
+                : null;
     }
 
     @Override
     public JwtToken deserialize(String token) {
+        if (cache == null) {
+            return parse(token);
+        }
+
+        final String fingerprint = fingerprint(token);
+        final JwtToken cached = cache.get(fingerprint);
+        if (cached != null) {
+            if (cached.isExpired()) {
+                // Still returned: the authentication provider rejects expired tokens
+                cache.remove(fingerprint);
+            }
+            return cached;
+        }
+
+        final JwtToken parsed = parse(token);
+        if (parsed != null && !parsed.isExpired()) {
+            cache.put(fingerprint, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Разбирает токен и проверяет его подпись, если алгоритм из заголовка поддерживается.
+     *
+     * @param token строка токена
+     * @return токен или null, если строка не является access-токеном с верной подписью
+     */
+    private JwtToken parse(String token) {
         try {
             final SignedJWT signedJwt = SignedJWT.parse(token);
 
-            if (!signedJwt.verify(verifier)) {
+            // Rejected before any crypto: verifying a foreign algorithm would throw
+            if (!verifier.supportedJWSAlgorithms().contains(signedJwt.getHeader().getAlgorithm())
+                    || !signedJwt.verify(verifier)) {
                 return null;
             }
 
             final JWTClaimsSet claims = signedJwt.getJWTClaimsSet();
-            final Set<SimpleGrantedAuthority> authorities = claims.getStringListClaim("authorities")
-                    .stream().map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toSet());
+            final Set<SimpleGrantedAuthority> authorities = authoritySets.computeIfAbsent(
+                    List.copyOf(claims.getStringListClaim("authorities")),
+                    names -> names.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toUnmodifiableSet())
+            );
 
             return JwtToken.accessToken(
                     UUID.fromString(claims.getJWTID()),
                     UUID.fromString(claims.getSubject()),
                     claims.getIssueTime().toInstant(),
                     claims.getExpirationTime().toInstant(),
-                    authorities
+                    authorities,
+                    JwtTokenDeserializer.generation(claims)
             );
         } catch (ParseException ex) {
             // Failed to parse token, provided invalid one
@@ -50,4 +114,20 @@ public class AccessTokenDeserializer implements JwtTokenDeserializer {
             throw new RuntimeException("Failed to deserialize access token", ex);
         }
     }
+
+    /**
+     * Вычисляет отпечаток строки токена. Используется криптографический хеш,
+     * чтобы подобранная строка не могла совпасть с отпечатком проверенного токена.
+     *
+     * @param token строка токена
+     * @return SHA-256 в шестнадцатеричном виде
+     */
+    private static String fingerprint(String token) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
 }
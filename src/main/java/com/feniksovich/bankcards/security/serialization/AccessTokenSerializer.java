@@ -41,6 +41,7 @@ public class AccessTokenSerializer implements JwtTokenSerializer {
                 .issueTime(Date.from(jwtToken.createdAt()))
                 .expirationTime(Date.from(jwtToken.expiresAt()))
                 .claim("authorities", authorities)
+                .claim("gen", jwtToken.generation())
                 .build();
 
         try {
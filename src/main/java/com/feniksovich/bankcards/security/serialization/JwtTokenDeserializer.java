@@ -1,6 +1,9 @@
 package com.feniksovich.bankcards.security.serialization;
 
 import com.feniksovich.bankcards.security.JwtToken;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import java.text.ParseException;
 
 /**
  * Контракт десериализации строковых JWT в доменную модель.
@@ -10,4 +13,17 @@ public interface JwtTokenDeserializer {
      * @return JwtToken или null, если токен невалиден
      */
     JwtToken deserialize(String token);
+
+    /**
+     * Возвращает поколение токенов пользователя из утверждений токена.
+     * Токены, выпущенные до появления поколений, относятся к нулевому поколению.
+     *
+     * @param claims утверждения токена
+     * @return поколение токенов
+     * @throws ParseException если утверждение не является числом
+     */
+    static int generation(JWTClaimsSet claims) throws ParseException {
+        final Integer generation = claims.getIntegerClaim("gen");
+        return generation != null ? generation : 0;
+    }
 }
@@ -3,6 +3,7 @@ package com.feniksovich.bankcards.security.serialization;
 import com.feniksovich.bankcards.security.JwtToken;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.crypto.AESDecrypter;
 import com.nimbusds.jwt.EncryptedJWT;
 import com.nimbusds.jwt.JWTClaimsSet;
@@ -28,6 +29,13 @@ public class RefreshTokenDeserializer implements JwtTokenDeserializer {
     public JwtToken deserialize(String token) {
         try {
             final EncryptedJWT encryptedJwt = EncryptedJWT.parse(token);
+
+            // Rejected before any crypto when the header names a foreign algorithm or encryption
+            final JWEHeader header = encryptedJwt.getHeader();
+            if (!decrypter.supportedJWEAlgorithms().contains(header.getAlgorithm())
+                    || !decrypter.supportedEncryptionMethods().contains(header.getEncryptionMethod())) {
+                return null;
+            }
             encryptedJwt.decrypt(decrypter);
 
             final JWTClaimsSet claims = encryptedJwt.getJWTClaimsSet();
@@ -40,7 +48,8 @@ public class RefreshTokenDeserializer implements JwtTokenDeserializer {
                     UUID.fromString(claims.getSubject()),
                     claims.getIssueTime().toInstant(),
                     claims.getExpirationTime().toInstant(),
-                    authorities
+                    authorities,
+                    JwtTokenDeserializer.generation(claims)
             );
         } catch (ParseException | JOSEException ex) {
             return null;
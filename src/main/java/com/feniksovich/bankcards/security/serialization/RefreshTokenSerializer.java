@@ -24,6 +24,7 @@ public class RefreshTokenSerializer implements JwtTokenSerializer {
 
     private static final EncryptionMethod ENCRYPTION_METHOD = EncryptionMethod.A256GCM;
     private static final String AUTHORITIES_CLAIM = "authorities";
+    private static final String GENERATION_CLAIM = "gen";
 
     public RefreshTokenSerializer(AESEncrypter encrypter, JWEAlgorithm algorithm) {
         this.encrypter = encrypter;
@@ -43,6 +44,7 @@ public class RefreshTokenSerializer implements JwtTokenSerializer {
                 .issueTime(Date.from(jwtToken.createdAt()))
                 .expirationTime(Date.from(jwtToken.expiresAt()))
                 .claim(AUTHORITIES_CLAIM, authorities)
+                .claim(GENERATION_CLAIM, jwtToken.generation())
                 .build();
 
         try {
@@ -28,7 +28,8 @@ public interface AuthService {
      * Выполняет выход пользователя и инвалидирует
      * используемый refresh-токен(ы) из контекста безопасности.
      *
-     * @param globally если true — инвалидировать все refresh-токены пользователя
+     * @param globally если true — отозвать все access- и refresh-токены пользователя,
+     *                 иначе — только используемый refresh-токен и access-токен его пары
      */
     void signOut(boolean globally);
 
@@ -4,8 +4,10 @@ import com.feniksovich.bankcards.dto.auth.AuthResponse;
 import com.feniksovich.bankcards.dto.auth.SignInRequest;
 import com.feniksovich.bankcards.dto.auth.SignUpRequest;
 import com.feniksovich.bankcards.dto.user.UserData;
+import com.feniksovich.bankcards.security.AccessTokenDenylist;
 import com.feniksovich.bankcards.security.JwtAuthenticationToken;
 import com.feniksovich.bankcards.security.JwtToken;
+import com.feniksovich.bankcards.security.TokenGenerationRegistry;
 import com.feniksovich.bankcards.security.UserPrincipal;
 import com.feniksovich.bankcards.security.factory.AccessTokenFactory;
 import com.feniksovich.bankcards.security.factory.RefreshTokenFactory;
@@ -18,13 +20,16 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
 
 @Service
 public class AuthServiceImpl implements AuthService {
 
     private final UserService userService;
     private final UserRefreshTokenService userRefreshTokenService;
+    private final TokenGenerationRegistry tokenGenerationRegistry;
+    private final AccessTokenDenylist accessTokenDenylist;
     private final AuthenticationManager authenticationManager;
 
     private final AccessTokenFactory accessTokenFactory;
@@ -37,6 +42,8 @@ public class AuthServiceImpl implements AuthService {
     public AuthServiceImpl(
             UserService userService,
             UserRefreshTokenService userRefreshTokenService,
+            TokenGenerationRegistry tokenGenerationRegistry,
+            AccessTokenDenylist accessTokenDenylist,
             AuthenticationManager authenticationManager,
             AccessTokenFactory accessTokenFactory,
             RefreshTokenFactory refreshTokenFactory,
@@ -45,6 +52,8 @@ public class AuthServiceImpl implements AuthService {
     ) {
         this.userService = userService;
         this.userRefreshTokenService = userRefreshTokenService;
+        this.tokenGenerationRegistry = tokenGenerationRegistry;
+        this.accessTokenDenylist = accessTokenDenylist;
         this.authenticationManager = authenticationManager;
         this.accessTokenFactory = accessTokenFactory;
         this.refreshTokenFactory = refreshTokenFactory;
@@ -54,8 +63,8 @@ public class AuthServiceImpl implements AuthService {
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public AuthResponse signUp(SignUpRequest request) {
+        // Registered in its own transaction: the refresh token is tracked only for a committed user
         final UserData userData = userService.register(request);
         final UserPrincipal principal = UserPrincipal.of(userData);
         return issueTokensPair(principal);
@@ -73,16 +82,24 @@ public class AuthServiceImpl implements AuthService {
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void signOut(boolean globally) {
         // JwtAuthenticationProvider stores authentication in SecurityContextHolder
         final JwtAuthenticationToken authentication =
                 (JwtAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
 
         if (globally) {
-            userRefreshTokenService.invalidateAll(authentication.getPrincipal().getId());
+            // Rejects every access and refresh token issued so far
+            final UUID userId = authentication.getPrincipal().getId();
+            tokenGenerationRegistry.advance(userId);
+            // Stale refresh tokens are already rejected; this only reclaims their storage
+            userRefreshTokenService.invalidateAll(userId);
         } else {
-            userRefreshTokenService.invalidate(authentication.getCredentials());
+            final JwtToken refreshToken = authentication.getCredentials();
+            userRefreshTokenService.invalidate(refreshToken);
+            // The access token of the pair shares the id and issue time of the refresh token
+            accessTokenDenylist.revoke(
+                    refreshToken.id(), refreshToken.createdAt().plus(accessTokenFactory.getExpiration())
+            );
         }
 
         SecurityContextHolder.clearContext();
@@ -90,7 +107,6 @@ public class AuthServiceImpl implements AuthService {
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public AuthResponse refreshTokensPair() {
         // JwtAuthenticationProvider stores authentication in SecurityContextHolder
         final JwtAuthenticationToken authentication =
@@ -104,15 +120,17 @@ public class AuthServiceImpl implements AuthService {
     }
 
     /**
-     * Выпускает и сериализует пару токенов для указанного пользователя,
-     * а также регистрирует refresh-токен в хранилище.
+     * Выпускает и сериализует пару токенов с общим идентификатором для указанного
+     * пользователя, а также регистрирует refresh-токен в хранилище.
      *
      * @param principal аутентифицированный пользователь
      * @return ответ с сериализованными токенами и сроками их действия
      */
     private AuthResponse issueTokensPair(UserPrincipal principal) {
-        final JwtToken accessToken = accessTokenFactory.generate(principal);
-        final JwtToken refreshToken = refreshTokenFactory.generate(principal);
+        final int generation = tokenGenerationRegistry.currentForIssue(principal.getId());
+        final UUID pairId = UUID.randomUUID();
+        final JwtToken accessToken = accessTokenFactory.generate(pairId, principal, generation);
+        final JwtToken refreshToken = refreshTokenFactory.generate(pairId, principal, generation);
 
         userRefreshTokenService.track(refreshToken);
 
@@ -0,0 +1,338 @@
+package com.feniksovich.bankcards.service.auth;
+
+import com.feniksovich.bankcards.util.HashUtil;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Хеш-таблица действующих refresh-токенов вне кучи, отображенная из локального файла.
+ * <p>
+ * Таблица с открытой адресацией и линейным пробированием хранит 128-битный идентификатор
+ * токена, идентификатор владельца и момент истечения в секундах. Удаление сдвигает
+ * следующие записи цепочки назад, поэтому таблица не копит удаленных записей
+ * и не требует перестроения. Число ячеек округляется вверх до степени двойки,
+ * а заполнение ограничено тремя четвертями ячеек.
+ * <p>
+ * Данные живут в файле и страничном кэше ОС, а не в куче, поэтому не нагружают сборщик
+ * мусора и переживают перезапуск процесса. На диск изменения сбрасываются вызовом
+ * {@link #force()}; без него теряются только при сбое ОС. Поиск выполняется
+ * под оптимистичной блокировкой чтения и повторяется под обычной, если таблицу
+ * изменили во время поиска.
+ */
+public class MappedRefreshTokenIndex implements AutoCloseable {
+
+    // "RTKNIDX1"
+    private static final long MAGIC = 0x52544b4e49445831L;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final long HEADER_BYTES = 64;
+    private static final long MAGIC_OFFSET = 0;
+    private static final long CAPACITY_OFFSET = 8;
+    private static final long SIZE_OFFSET = 16;
+
+    private static final long SLOT_BYTES = 40;
+    private static final long ID_MSB_OFFSET = 0;
+    private static final long ID_LSB_OFFSET = 8;
+    private static final long USER_MSB_OFFSET = 16;
+    private static final long USER_LSB_OFFSET = 24;
+    // Zero marks an empty slot: no live token expires at the epoch
+    private static final long EXPIRES_AT_OFFSET = 32;
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long capacity;
+    private final long mask;
+    private final long maxSize;
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by the write lock
+    private long size;
+
+    /**
+     * Открывает индекс из файла или создает новый, если файла нет.
+     *
+     * @param path     путь к файлу индекса
+     * @param capacity минимальное число ячеек
+     * @throws IOException           если файл не удалось открыть или отобразить
+     * @throws IllegalStateException если файл создан с другим числом ячеек или не является индексом
+     */
+    public MappedRefreshTokenIndex(Path path, long capacity) throws IOException {
+        this.capacity = Long.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.maxSize = (long) (this.capacity * MAX_LOAD_FACTOR);
+
+        final long bytes = HEADER_BYTES + this.capacity * SLOT_BYTES;
+        final boolean existing = Files.exists(path) && Files.size(path) > 0;
+        if (existing && Files.size(path) != bytes) {
+            throw new IllegalStateException(
+                    "Refresh token index " + path + " was created with another capacity than " + this.capacity
+            );
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        this.arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            // The mapping stays valid after the channel is closed, until the arena is
+            this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena);
+        } catch (IOException | RuntimeException ex) {
+            arena.close();
+            throw ex;
+        }
+
+        if (!existing) {
+            segment.set(ValueLayout.JAVA_LONG, CAPACITY_OFFSET, this.capacity);
+            segment.set(ValueLayout.JAVA_LONG, MAGIC_OFFSET, MAGIC);
+        } else if (segment.get(ValueLayout.JAVA_LONG, MAGIC_OFFSET) != MAGIC
+                || segment.get(ValueLayout.JAVA_LONG, CAPACITY_OFFSET) != this.capacity) {
+            arena.close();
+            throw new IllegalStateException("File " + path + " is not a refresh token index");
+        }
+        this.size = segment.get(ValueLayout.JAVA_LONG, SIZE_OFFSET);
+    }
+
+    /**
+     * Добавляет токен или обновляет его владельца и момент истечения.
+     *
+     * @param id        идентификатор токена
+     * @param userId    идентификатор владельца
+     * @param expiresAt момент истечения
+     * @throws IllegalStateException если заполнение индекса достигло предела
+     */
+    public void put(UUID id, UUID userId, Instant expiresAt) {
+        final long msb = id.getMostSignificantBits();
+        final long lsb = id.getLeastSignificantBits();
+        final long stamp = lock.writeLock();
+        try {
+            final long slot = find(msb, lsb);
+            final long offset = offset(slot);
+            if (isEmpty(offset)) {
+                if (size >= maxSize) {
+                    throw new IllegalStateException(
+                            "Refresh token index is full: " + size + " tokens in " + capacity + " slots"
+                    );
+                }
+                setSize(size + 1);
+            }
+            segment.set(ValueLayout.JAVA_LONG, offset + ID_MSB_OFFSET, msb);
+            segment.set(ValueLayout.JAVA_LONG, offset + ID_LSB_OFFSET, lsb);
+            segment.set(ValueLayout.JAVA_LONG, offset + USER_MSB_OFFSET, userId.getMostSignificantBits());
+            segment.set(ValueLayout.JAVA_LONG, offset + USER_LSB_OFFSET, userId.getLeastSignificantBits());
+            segment.set(ValueLayout.JAVA_LONG, offset + EXPIRES_AT_OFFSET, Math.max(expiresAt.getEpochSecond(), 1));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Проверяет, есть ли в индексе токен, срок действия которого не истек.
+     *
+     * @param id  идентификатор токена
+     * @param now текущий момент
+     * @return true, если токен найден и действует
+     */
+    public boolean contains(UUID id, Instant now) {
+        final long msb = id.getMostSignificantBits();
+        final long lsb = id.getLeastSignificantBits();
+        final long nowSeconds = now.getEpochSecond();
+
+        long stamp = lock.tryOptimisticRead();
+        boolean found = lookup(msb, lsb, nowSeconds);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = lookup(msb, lsb, nowSeconds);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Удаляет токен.
+     *
+     * @param id идентификатор токена
+     * @return true, если токен был в индексе
+     */
+    public boolean remove(UUID id) {
+        final long stamp = lock.writeLock();
+        try {
+            final long slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (isEmpty(offset(slot))) {
+                return false;
+            }
+            delete(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет все токены пользователя. Просматривает всю таблицу.
+     *
+     * @param userId идентификатор владельца
+     * @return число удаленных токенов
+     */
+    public long removeAll(UUID userId) {
+        final long msb = userId.getMostSignificantBits();
+        final long lsb = userId.getLeastSignificantBits();
+        return removeWhere(offset -> segment.get(ValueLayout.JAVA_LONG, offset + USER_MSB_OFFSET) == msb
+                && segment.get(ValueLayout.JAVA_LONG, offset + USER_LSB_OFFSET) == lsb);
+    }
+
+    /**
+     * Удаляет токены, срок действия которых истек. Просматривает всю таблицу.
+     *
+     * @param now текущий момент
+     * @return число удаленных токенов
+     */
+    public long removeExpired(Instant now) {
+        final long nowSeconds = now.getEpochSecond();
+        return removeWhere(offset -> segment.get(ValueLayout.JAVA_LONG, offset + EXPIRES_AT_OFFSET) <= nowSeconds);
+    }
+
+    /**
+     * Возвращает число токенов в индексе, включая истекшие, но еще не удаленные.
+     */
+    public long size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Возвращает число ячеек таблицы.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Сбрасывает измененные страницы индекса на диск.
+     */
+    public void force() {
+        segment.force();
+    }
+
+    /**
+     * Сбрасывает индекс на диск и освобождает отображение файла.
+     */
+    @Override
+    public void close() {
+        final long stamp = lock.writeLock();
+        try {
+            segment.force();
+            arena.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean lookup(long msb, long lsb, long nowSeconds) {
+        final long slot = find(msb, lsb);
+        // An empty slot stores zero, so it never passes the expiry check
+        return slot >= 0 && segment.get(ValueLayout.JAVA_LONG, offset(slot) + EXPIRES_AT_OFFSET) > nowSeconds;
+    }
+
+    /**
+     * Находит ячейку токена или пустую ячейку, которая завершает его цепочку.
+     *
+     * @return номер ячейки или -1, если просмотрена вся таблица; возможно только
+     *         при чтении, пересекшемся с изменением таблицы
+     */
+    private long find(long msb, long lsb) {
+        long slot = home(msb, lsb);
+        for (long probes = 0; probes < capacity; probes++) {
+            final long offset = offset(slot);
+            if (isEmpty(offset)
+                    || segment.get(ValueLayout.JAVA_LONG, offset + ID_MSB_OFFSET) == msb
+                    && segment.get(ValueLayout.JAVA_LONG, offset + ID_LSB_OFFSET) == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private long removeWhere(LongPredicate matches) {
+        final long stamp = lock.writeLock();
+        try {
+            long removed = 0;
+            for (long slot = 0; slot < capacity; ) {
+                final long offset = offset(slot);
+                if (!isEmpty(offset) && matches.test(offset)) {
+                    // A later entry of the chain may have moved here, so the slot is checked again
+                    delete(slot);
+                    removed++;
+                } else {
+                    slot++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет запись, сдвигая назад следующие записи цепочки, которые
+     * не могут находиться до своей исходной ячейки.
+     */
+    private void delete(long hole) {
+        long next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            final long offset = offset(next);
+            if (isEmpty(offset)) {
+                break;
+            }
+            final long home = home(
+                    segment.get(ValueLayout.JAVA_LONG, offset + ID_MSB_OFFSET),
+                    segment.get(ValueLayout.JAVA_LONG, offset + ID_LSB_OFFSET)
+            );
+            // The entry may fill the hole only if its home slot is not between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                MemorySegment.copy(segment, offset, segment, offset(hole), SLOT_BYTES);
+                hole = next;
+            }
+        }
+        segment.asSlice(offset(hole), SLOT_BYTES).fill((byte) 0);
+        setSize(size - 1);
+    }
+
+    private boolean isEmpty(long offset) {
+        return segment.get(ValueLayout.JAVA_LONG, offset + EXPIRES_AT_OFFSET) == 0;
+    }
+
+    private void setSize(long size) {
+        this.size = size;
+        segment.set(ValueLayout.JAVA_LONG, SIZE_OFFSET, size);
+    }
+
+    private long home(long msb, long lsb) {
+        return HashUtil.mix64(msb ^ Long.rotateLeft(lsb, 32)) & mask;
+    }
+
+    private static long offset(long slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,91 @@
+package com.feniksovich.bankcards.service.auth;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.security.JwtToken;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Реестр действующих refresh-токенов в {@link MappedRefreshTokenIndex} вне кучи.
+ * Включается настройкой {@code security.refresh-token-registry.store: mapped}.
+ * <p>
+ * Индекс хранится в локальном файле узла и не читается из БД ни при старте,
+ * ни при промахе, поэтому подходит для одного узла или для маршрутизации запросов
+ * пользователя на узел, выпустивший его токены. Глобальный выход отзывает токены
+ * через поколения и от реестра не зависит.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "security.refresh-token-registry.store", havingValue = "mapped")
+public class MappedUserRefreshTokenService implements UserRefreshTokenService {
+
+    private final MappedRefreshTokenIndex index;
+
+    @Autowired
+    public MappedUserRefreshTokenService(SecurityProperties securityProperties) throws IOException {
+        final SecurityProperties.MappedIndexProperties properties =
+                securityProperties.refreshTokenRegistry().mappedIndex();
+        this.index = new MappedRefreshTokenIndex(Path.of(properties.path()), properties.capacity());
+        log.info("Opened refresh token index {} with {} tokens in {} slots",
+                properties.path(), index.size(), index.capacity());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void track(JwtToken jwtToken) {
+        index.put(jwtToken.id(), jwtToken.userId(), jwtToken.expiresAt());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isTracked(JwtToken jwtToken) {
+        return index.contains(jwtToken.id(), Instant.now());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidate(JwtToken jwtToken) {
+        index.remove(jwtToken.id());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateAll(UUID userId) {
+        index.removeAll(userId);
+    }
+
+    /**
+     * Сбрасывает измененные страницы индекса на диск, ограничивая потерю данных
+     * при сбое ОС интервалом сохранения.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh-token-registry.flush-interval}")
+    public void flush() {
+        index.force();
+    }
+
+    /**
+     * Освобождает ячейки истекших токенов.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh-token-registry.purge-interval}")
+    public void purgeExpired() {
+        final long removed = index.removeExpired(Instant.now());
+        log.debug("Purged {} expired refresh tokens from index, {} left", removed, index.size());
+    }
+
+    /**
+     * Сбрасывает индекс на диск и освобождает отображение при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        index.close();
+    }
+}
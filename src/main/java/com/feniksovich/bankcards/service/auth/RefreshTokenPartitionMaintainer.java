@@ -0,0 +1,96 @@
+package com.feniksovich.bankcards.service.auth;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.repository.UserRefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Обслуживание секционированной таблицы refresh-токенов. Заранее создает месячные
+ * партиции на срок жизни refresh-токена вперед, удаляет партиции, все токены которых
+ * истекли, и удаляет пакетами истекшие токены из партиции по умолчанию.
+ */
+@Slf4j
+@Component
+public class RefreshTokenPartitionMaintainer {
+
+    private static final int MAX_PURGE_BATCHES_PER_RUN = 100;
+
+    private final UserRefreshTokenRepository repository;
+    private final TransactionOperations transactionOperations;
+    private final Duration refreshTokenExpiration;
+    private final int purgeBatchSize;
+
+    @Autowired
+    public RefreshTokenPartitionMaintainer(
+            UserRefreshTokenRepository repository,
+            TransactionOperations transactionOperations,
+            SecurityProperties securityProperties
+    ) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+        this.refreshTokenExpiration = securityProperties.refreshToken().expiration();
+        this.purgeBatchSize = securityProperties.refreshTokenRegistry().purgeBatchSize();
+    }
+
+    /**
+     * Создает недостающие партиции, удаляет истекшие партиции и очищает партицию по умолчанию.
+     * Каждая операция выполняется в отдельной транзакции; ошибка одной не мешает остальным.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh-token-registry.purge-interval}")
+    public void maintain() {
+        final LocalDateTime now = LocalDateTime.now();
+        final YearMonth current = YearMonth.from(now);
+        final YearMonth last = YearMonth.from(now.plus(refreshTokenExpiration));
+        final List<YearMonth> existing = repository.findMonthlyPartitions();
+
+        for (YearMonth month = current; !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!existing.contains(month)) {
+                final YearMonth created = month;
+                run("create refresh token partition " + created, () -> repository.createMonthlyPartition(created));
+            }
+        }
+
+        // Every token of a partition before the current month has expired
+        existing.stream()
+                .filter(month -> month.isBefore(current))
+                .forEach(month -> run("drop refresh token partition " + month, () -> repository.dropMonthlyPartition(month)));
+
+        purgeExpiredUnpartitioned();
+    }
+
+    private void purgeExpiredUnpartitioned() {
+        final Instant now = Instant.now();
+        int purged = 0;
+        for (int batch = 0; batch < MAX_PURGE_BATCHES_PER_RUN; batch++) {
+            final Integer deleted = transactionOperations.execute(
+                    _ -> repository.deleteExpiredUnpartitioned(now, purgeBatchSize)
+            );
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private void run(String operation, Runnable action) {
+        try {
+            transactionOperations.executeWithoutResult(_ -> action.run());
+            log.debug("Completed: {}", operation);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to {}, retrying on next run: {}", operation, ex.getMessage());
+        }
+    }
+}
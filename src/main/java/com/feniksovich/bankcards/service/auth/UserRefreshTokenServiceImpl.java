@@ -3,52 +3,182 @@ package com.feniksovich.bankcards.service.auth;
 import com.feniksovich.bankcards.entity.UserRefreshToken;
 import com.feniksovich.bankcards.repository.UserRefreshTokenRepository;
 import com.feniksovich.bankcards.security.JwtToken;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Реестр действующих refresh-токенов в памяти с отложенной записью в БД.
+ * <p>
+ * Идентификаторы действующих токенов загружаются из таблицы при старте и периодически
+ * перечитываются, поэтому проверка токена обычно не обращается к БД. Выпуски и инвалидации
+ * применяются в памяти сразу, а в таблицу сохраняются одной транзакцией раз в интервал
+ * сохранения. Токен, не найденный в памяти, ищется в таблице: он мог быть выпущен
+ * на другом узле после последнего перечитывания.
+ * <p>
+ * Окно потери данных равно интервалу сохранения: при аварийной остановке токены,
+ * выпущенные за этот интервал, перестают действовать, а инвалидированные снова
+ * принимаются до истечения срока их действия. Инвалидации, выполненные на других узлах,
+ * применяются не позднее чем через интервал перечитывания.
+ * <p>
+ * Используется по умолчанию, если не выбрано хранилище {@link MappedUserRefreshTokenService}.
+ */
+@Slf4j
 @Service
+@ConditionalOnProperty(
+        name = "security.refresh-token-registry.store", havingValue = "database", matchIfMissing = true
+)
 public class UserRefreshTokenServiceImpl implements UserRefreshTokenService {
 
     private final UserRefreshTokenRepository repository;
+    private final TransactionOperations transactionOperations;
+
+    // Token id to owner id; replaced as a whole on reload
+    private volatile Map<UUID, UUID> tokens = new ConcurrentHashMap<>();
+
+    // Changes not yet persisted; cleared only by a committed flush
+    private final Map<UUID, UserRefreshToken> pendingTracks = new ConcurrentHashMap<>();
+    private final Set<UUID> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> pendingUserInvalidations = ConcurrentHashMap.newKeySet();
 
     @Autowired
-    public UserRefreshTokenServiceImpl(UserRefreshTokenRepository repository) {
+    public UserRefreshTokenServiceImpl(
+            UserRefreshTokenRepository repository,
+            TransactionOperations transactionOperations
+    ) {
         this.repository = repository;
+        this.transactionOperations = transactionOperations;
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void track(JwtToken jwtToken) {
-        final UserRefreshToken userRefreshToken = new UserRefreshToken(
-                jwtToken.userId(),
-                jwtToken.id(),
-                jwtToken.expiresAt()
-        );
-        repository.save(userRefreshToken);
+        final UserRefreshToken userRefreshToken = UserRefreshToken.builder()
+                .id(jwtToken.id())
+                .userId(jwtToken.userId())
+                .expiresAt(jwtToken.expiresAt())
+                .build();
+        pendingTracks.put(jwtToken.id(), userRefreshToken);
+        tokens.put(jwtToken.id(), jwtToken.userId());
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional(readOnly = true)
     public boolean isTracked(JwtToken jwtToken) {
-        return repository.existsById(jwtToken.id());
+        final UUID id = jwtToken.id();
+        if (tokens.containsKey(id) || pendingTracks.containsKey(id)) {
+            return true;
+        }
+        if (pendingInvalidations.contains(id) || pendingUserInvalidations.contains(jwtToken.userId())) {
+            return false;
+        }
+        // Issued on another node after the last reload
+        return repository.existsById(id);
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void invalidate(JwtToken jwtToken) {
-        repository.deleteById(jwtToken.id());
+        // Marked before removal, so a concurrent reload cannot bring the token back
+        pendingInvalidations.add(jwtToken.id());
+        pendingTracks.remove(jwtToken.id());
+        tokens.remove(jwtToken.id());
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void invalidateAll(UUID userId) {
-        repository.deleteAllByUserId(userId);
+        pendingUserInvalidations.add(userId);
+        pendingTracks.values().removeIf(token -> token.getUserId().equals(userId));
+        tokens.values().removeIf(userId::equals);
+    }
+
+    /**
+     * Загружает действующие refresh-токены из БД после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+    }
+
+    /**
+     * Сохраняет оставшиеся изменения при остановке приложения.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * Сохраняет в БД накопленные выпуски и инвалидации одной транзакцией: сначала удаляются
+     * токены пользователей и отдельные токены, затем пакетом добавляются новые.
+     * При ошибке изменения остаются в очереди до следующей попытки.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh-token-registry.flush-interval}")
+    public synchronized void flush() {
+        final List<UUID> userIds = List.copyOf(pendingUserInvalidations);
+        final List<UUID> invalidatedIds = List.copyOf(pendingInvalidations);
+        final List<UserRefreshToken> tracked = List.copyOf(pendingTracks.values());
+        if (userIds.isEmpty() && invalidatedIds.isEmpty() && tracked.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionOperations.executeWithoutResult(_ -> {
+                if (!userIds.isEmpty()) {
+                    repository.deleteAllByUserIdIn(userIds);
+                }
+                if (!invalidatedIds.isEmpty()) {
+                    repository.deleteAllByIdInBatch(invalidatedIds);
+                }
+                repository.insertAll(tracked);
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Failed to persist refresh token changes, retrying on next flush: {}", ex.getMessage());
+            return;
+        }
+
+        userIds.forEach(pendingUserInvalidations::remove);
+        invalidatedIds.forEach(pendingInvalidations::remove);
+        tracked.forEach(token -> pendingTracks.remove(token.getId(), token));
+        log.debug("Persisted {} tracked and {} invalidated refresh tokens, {} global sign-outs",
+                tracked.size(), invalidatedIds.size(), userIds.size());
+    }
+
+    /**
+     * Перечитывает действующие refresh-токены из БД, чтобы применить инвалидации,
+     * выполненные на других узлах, и освободить память от истекших токенов.
+     */
+    @Scheduled(
+            initialDelayString = "${security.refresh-token-registry.reload-interval}",
+            fixedDelayString = "${security.refresh-token-registry.reload-interval}"
+    )
+    public synchronized void reload() {
+        flush();
+
+        final Map<UUID, UUID> loaded = new ConcurrentHashMap<>();
+        for (UserRefreshToken token : repository.findAllByExpiresAtAfter(Instant.now())) {
+            loaded.put(token.getId(), token.getUserId());
+        }
+        tokens = loaded;
+
+        // Tracks and invalidations made after the flush are not in the table yet
+        pendingTracks.forEach((id, token) -> loaded.put(id, token.getUserId()));
+        loaded.keySet().removeAll(pendingInvalidations);
+        loaded.values().removeAll(pendingUserInvalidations);
+        log.debug("Loaded {} live refresh tokens", loaded.size());
     }
 }
@@ -0,0 +1,58 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Периодически применяет отложенные зачисления из журнала операций к балансам карт.
+ * Каждый пакет применяется в отдельной короткой транзакции; параллельно работающие
+ * экземпляры приложения пропускают пакеты друг друга.
+ * <p>
+ * Работает и при выключенных отложенных зачислениях, чтобы применить записи,
+ * оставшиеся после переключения режима.
+ */
+@Slf4j
+@Component
+public class CardLedgerSnapshotter {
+
+    private static final int MAX_BATCHES_PER_RUN = 100;
+
+    private final CardLedgerRepository ledgerRepository;
+    private final TransactionOperations transactionOperations;
+    private final int batchSize;
+
+    @Autowired
+    public CardLedgerSnapshotter(
+            CardLedgerRepository ledgerRepository,
+            TransactionOperations transactionOperations,
+            CardProperties cardProperties
+    ) {
+        this.ledgerRepository = ledgerRepository;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = cardProperties.ledger().snapshotBatchSize();
+    }
+
+    /**
+     * Применяет накопившиеся зачисления пакетами, пока они не закончатся,
+     * но не более {@value #MAX_BATCHES_PER_RUN} пакетов за запуск.
+     */
+    @Scheduled(fixedDelayString = "${cards.ledger.snapshot-interval}")
+    public void foldPendingCredits() {
+        int cards = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            final Integer folded = transactionOperations.execute(_ -> ledgerRepository.foldPendingCredits(batchSize));
+            if (folded == null || folded == 0) {
+                break;
+            }
+            cards += folded;
+        }
+        if (cards > 0) {
+            log.debug("Folded pending ledger credits into {} card balances", cards);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.util.CommitAwareCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Кэш списков карт пользователей в {@link CommitAwareCache}. Список удаляется после
+ * фиксации каждой транзакции, изменившей карты пользователя; изменения карт на других
+ * узлах становятся видны по истечении времени хранения.
+ */
+@Component
+public class CardListCache {
+
+    static final String GETS_METRIC = "cards.cache.gets";
+    static final String RATIO_METRIC = "cards.cache.ratio";
+    static final String SIZE_METRIC = "cards.cache.size";
+
+    private final CardProperties.CacheProperties properties;
+    private final CommitAwareCache<UUID, List<CardData>> cache;
+
+    @Autowired
+    public CardListCache(CardProperties cardProperties, MeterRegistry meterRegistry) {
+        this.properties = cardProperties.cache();
+        this.cache = new CommitAwareCache<>(properties.maxUsers(), properties.ttl(), meterRegistry, GETS_METRIC);
+        Gauge.builder(RATIO_METRIC, cache, CommitAwareCache::hitRatio).tag("result", "hit").register(meterRegistry);
+        Gauge.builder(RATIO_METRIC, cache, CommitAwareCache::missRatio).tag("result", "miss").register(meterRegistry);
+        Gauge.builder(SIZE_METRIC, cache, CommitAwareCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Возвращает максимальное число карт пользователя, при котором его список кэшируется.
+     */
+    public int getMaxCards() {
+        return properties.maxCards();
+    }
+
+    /**
+     * Возвращает список карт пользователя из кэша или загружает и запоминает его.
+     *
+     * @param userId идентификатор владельца
+     * @param loader загрузка списка; возвращает null, если карт больше, чем кэшируется
+     * @return список карт или null, если кэш выключен или список не кэшируется
+     */
+    public List<CardData> get(UUID userId, Supplier<List<CardData>> loader) {
+        if (!properties.enabled()) {
+            return null;
+        }
+        return cache.get(userId, () -> {
+            final List<CardData> cards = loader.get();
+            return cards != null ? List.copyOf(cards) : null;
+        });
+    }
+
+    /**
+     * Удаляет список карт пользователя после фиксации транзакции, изменившей его карты,
+     * или сразу, если изменение выполнено вне транзакции.
+     *
+     * @param event событие изменения карт
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardsChanged(CardsChangedEvent event) {
+        if (properties.enabled()) {
+            cache.invalidate(event.userId());
+        }
+    }
+
+    /**
+     * Возвращает долю обращений, обслуженных из кэша.
+     */
+    public double hitRatio() {
+        return cache.hitRatio();
+    }
+
+    /**
+     * Возвращает долю обращений, потребовавших чтения из БД.
+     */
+    public double missRatio() {
+        return cache.missRatio();
+    }
+}
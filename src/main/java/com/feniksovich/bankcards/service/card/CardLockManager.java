@@ -0,0 +1,150 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Внутрипроцессные блокировки карт. Карты распределяются по фиксированному массиву
+ * блокировок по хешу идентификатора, поэтому конкурирующие операции над одной картой
+ * ожидают друг друга в JVM, не занимая соединение с БД и не создавая очередь
+ * на блокировках строк в PostgreSQL. Блокировки строк в БД при этом сохраняются:
+ * они по-прежнему защищают от операций других узлов.
+ */
+@Component
+public class CardLockManager {
+
+    static final String WAIT_METRIC = "cards.lock.wait";
+
+    private final CardProperties.LockingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock[] stripes;
+
+    @Autowired
+    public CardLockManager(CardProperties cardProperties, MeterRegistry meterRegistry) {
+        this.properties = cardProperties.locking();
+        this.meterRegistry = meterRegistry;
+        final int size = properties.enabled() ? ceilingPowerOfTwo(properties.stripes()) : 0;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Проверяет, включены ли внутрипроцессные блокировки.
+     */
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Выполняет операцию, удерживая блокировки указанных карт.
+     * Если блокировки выключены, операция выполняется сразу.
+     *
+     * @param operation название операции для метрик
+     * @param cardIds   идентификаторы карт
+     * @param action    операция
+     * @return результат операции
+     * @throws ResourceConflictException если блокировки не удалось захватить за отведенное время
+     */
+    public <T> T withLocks(String operation, Collection<UUID> cardIds, Supplier<T> action) {
+        if (!properties.enabled() || cardIds.isEmpty()) {
+            return action.get();
+        }
+
+        final List<ReentrantLock> acquired = new ArrayList<>(cardIds.size());
+        final long startedAt = System.nanoTime();
+        try {
+            for (int index : stripeIndexes(cardIds)) {
+                final ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(properties.timeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                    throw new ResourceConflictException("Card is busy, please retry");
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            releaseAll(acquired);
+            throw new IllegalStateException("Interrupted while waiting for card lock", ex);
+        } catch (RuntimeException ex) {
+            releaseAll(acquired);
+            throw ex;
+        } finally {
+            waitTimer(operation).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            return action.get();
+        } finally {
+            releaseAll(acquired);
+        }
+    }
+
+    /**
+     * Выполняет операцию без результата, удерживая блокировки указанных карт.
+     *
+     * @param operation название операции для метрик
+     * @param cardIds   идентификаторы карт
+     * @param action    операция
+     */
+    public void withLocks(String operation, Collection<UUID> cardIds, Runnable action) {
+        withLocks(operation, cardIds, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает номера блокировок карт без повторов. В упорядоченном режиме номера
+     * отсортированы, что исключает взаимные блокировки между операциями над несколькими картами;
+     * иначе от взаимной блокировки защищает только время ожидания.
+     *
+     * @param cardIds идентификаторы карт
+     * @return номера блокировок
+     */
+    private int[] stripeIndexes(Collection<UUID> cardIds) {
+        final int mask = stripes.length - 1;
+        IntStream indexes = cardIds.stream()
+                .mapToInt(cardId -> spread(cardId.hashCode()) & mask)
+                .distinct();
+        if (properties.ordered()) {
+            indexes = indexes.sorted();
+        }
+        return indexes.toArray();
+    }
+
+    private Timer waitTimer(String operation) {
+        return Timer.builder(WAIT_METRIC)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void releaseAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+        locks.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель изменяющих операций над картами. Каждая попытка выполняется
+ * в отдельной транзакции; в оптимистичном режиме операция, завершившаяся
+ * конфликтом версий, повторяется с экспоненциальной задержкой со случайным
+ * разбросом, но не более заданного числа попыток.
+ * <p>
+ * Повтор возможен только если операция сама открывает транзакцию: при вызове
+ * из уже открытой транзакции конфликт пробрасывается вызывающему коду.
+ */
+@Slf4j
+@Component
+public class CardMutationExecutor {
+
+    private final TransactionOperations transactionOperations;
+    private final CardProperties.ConcurrencyProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    static final String RETRIES_METRIC = "cards.concurrency.retries";
+    static final String EXHAUSTED_METRIC = "cards.concurrency.retries.exhausted";
+
+    @Autowired
+    public CardMutationExecutor(
+            TransactionOperations transactionOperations,
+            CardProperties cardProperties,
+            MeterRegistry meterRegistry
+    ) {
+        this.transactionOperations = transactionOperations;
+        this.properties = cardProperties.concurrency();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Возвращает текущий режим управления конкурентным доступом.
+     */
+    public CardProperties.ConcurrencyMode getMode() {
+        return properties.mode();
+    }
+
+    /**
+     * Выполняет операцию в транзакции с учетом режима конкурентного доступа.
+     *
+     * @param operation название операции для метрик и логов
+     * @param action    операция
+     * @return результат операции
+     * @throws ResourceConflictException если конфликт версий не удалось разрешить за отведенные попытки
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (properties.mode() != CardProperties.ConcurrencyMode.OPTIMISTIC) {
+            return transactionOperations.execute(_ -> action.get());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(_ -> action.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException ex) {
+                if (attempt >= properties.maxAttempts()) {
+                    meterRegistry.counter(EXHAUSTED_METRIC, "operation", operation).increment();
+                    log.debug("Optimistic {} gave up after {} attempts", operation, attempt);
+                    throw new ResourceConflictException("Card was modified concurrently, please retry");
+                }
+                meterRegistry.counter(RETRIES_METRIC, "operation", operation).increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Выполняет операцию без результата в транзакции с учетом режима конкурентного доступа.
+     *
+     * @param operation название операции для метрик и логов
+     * @param action    операция
+     */
+    public void execute(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ожидает перед очередной попыткой: экспоненциальная задержка с полным случайным разбросом.
+     *
+     * @param attempt номер завершившейся попытки
+     */
+    private void backoff(int attempt) {
+        final long initialNanos = properties.initialBackoff().toNanos();
+        final long maxNanos = properties.maxBackoff().toNanos();
+        final long ceiling = Math.min(maxNanos, initialNanos << Math.min(attempt - 1, 30));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1)));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry card operation", ex);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.feniksovich.bankcards.service.card;
 
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransactionItemResult;
 import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.dto.card.TransactionResult;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -45,6 +52,17 @@ public interface CardService {
      */
     Page<CardData> getAll(Pageable pageable);
 
+    /**
+     * Возвращает все карты постраничной выборкой по ключу (владелец, идентификатор)
+     * без подсчета общего числа записей.
+     *
+     * @param cursor           курсор следующей страницы из предыдущего ответа или {@code null} для первой страницы
+     * @param size             размер страницы
+     * @param approximateTotal true — дополнить страницу приблизительным числом карт по статистике БД
+     * @return страница карт с курсором следующей страницы
+     */
+    CursorPage<CardData> scrollAll(String cursor, int size, boolean approximateTotal);
+
     /**
      * Устанавливает состояние блокировки карты.
      *
@@ -53,6 +71,16 @@ public interface CardService {
      */
     void setBlockedById(UUID cardId, boolean blocked);
 
+    /**
+     * Задает число суб-балансов карты. Зачисления на карту с суб-балансами
+     * распределяются по ним, снимая конкуренцию за строку карты; 0 отключает разделение.
+     * Существующие суб-балансы при этом переносятся в баланс карты.
+     *
+     * @param cardId идентификатор карты
+     * @param shards число суб-балансов
+     */
+    void setBalanceShards(UUID cardId, int shards);
+
     // User Operations
 
     /**
@@ -73,6 +101,33 @@ public interface CardService {
      */
     Page<CardData> getAllOwned(UUID userId, Pageable pageable);
 
+    /**
+     * Возвращает карты пользователя постраничной выборкой по ключу
+     * без подсчета общего числа записей.
+     *
+     * @param userId идентификатор владельца карт
+     * @param cursor курсор следующей страницы из предыдущего ответа или {@code null} для первой страницы
+     * @param size   размер страницы
+     * @return страница карт с курсором следующей страницы
+     */
+    CursorPage<CardData> scrollAllOwned(UUID userId, String cursor, int size);
+
+    /**
+     * Возвращает историю операций по карте пользователя от новых к старым
+     * постраничной выборкой по ключу.
+     *
+     * @param userId идентификатор владельца карты
+     * @param cardId идентификатор карты
+     * @param from   первый день периода (включительно) или {@code null}
+     * @param to     последний день периода (включительно) или {@code null}
+     * @param cursor курсор следующей страницы из предыдущего ответа или {@code null} для первой страницы
+     * @param size   размер страницы
+     * @return страница операций с курсором следующей страницы
+     */
+    CursorPage<CardTransactionData> getOwnTransactions(
+            UUID userId, UUID cardId, LocalDate from, LocalDate to, String cursor, int size
+    );
+
     /**
      * Устанавливает состояние блокировки карты, проверяя владельца.
      *
@@ -89,4 +144,56 @@ public interface CardService {
      * @param request параметры перевода
      */
     void performTransaction(UUID userId, TransactionRequest request);
+
+    /**
+     * Выполняет перевод между картами пользователя не более одного раза для ключа идемпотентности.
+     * Повторный запрос с тем же ключом и теми же параметрами не выполняет перевод снова.
+     *
+     * @param userId         идентификатор владельца
+     * @param request        параметры перевода
+     * @param idempotencyKey ключ идемпотентности, переданный клиентом
+     * @return результат перевода с признаком повторного ответа
+     */
+    TransactionResult performTransaction(UUID userId, TransactionRequest request, String idempotencyKey);
+
+    /**
+     * Выполняет пакет переводов между картами пользователя в одной транзакции.
+     * Переводы применяются по порядку; отклоненный перевод не влияет на остальные.
+     *
+     * @param userId   идентификатор владельца
+     * @param requests параметры переводов
+     * @return результаты переводов в порядке запросов
+     */
+    List<TransactionItemResult> performTransactions(UUID userId, List<TransactionRequest> requests);
+
+    /**
+     * Принимает перевод между картами пользователя к асинхронному выполнению.
+     * Перевод сохраняется в состоянии ожидания и выполняется обработчиком очереди
+     * с теми же проверками, что и синхронный перевод.
+     *
+     * @param userId  идентификатор владельца
+     * @param request параметры перевода
+     * @return принятый перевод
+     */
+    TransferOrderData submitTransaction(UUID userId, TransactionRequest request);
+
+    /**
+     * Возвращает состояние перевода, принятого к асинхронному выполнению.
+     *
+     * @param userId     идентификатор владельца
+     * @param transferId идентификатор перевода
+     * @return перевод
+     */
+    TransferOrderData getTransaction(UUID userId, UUID transferId);
+
+    // System Operations
+
+    /**
+     * Выполняет принятый асинхронный перевод, если он еще ожидает выполнения.
+     * Выполненный перевод отмечается в той же транзакции, поэтому применяется не более одного раза;
+     * перевод, не прошедший проверки, отмечается как отклоненный с причиной отказа.
+     *
+     * @param transferId идентификатор перевода
+     */
+    void processTransaction(UUID transferId);
 }
@@ -1,59 +1,128 @@
 package com.feniksovich.bankcards.service.card;
 
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransactionItemResult;
 import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.dto.card.TransactionResult;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
 import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.CardBalanceShard;
+import com.feniksovich.bankcards.entity.CardLedgerEntry;
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import com.feniksovich.bankcards.entity.TransferOrder;
+import com.feniksovich.bankcards.entity.TransferStatus;
 import com.feniksovich.bankcards.entity.User;
 import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
 import com.feniksovich.bankcards.exception.ResourceNotFoundException;
+import com.feniksovich.bankcards.mapper.CardMapper;
+import com.feniksovich.bankcards.repository.CardBalanceShardRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepositoryCustom.Posting;
 import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.CardView;
+import com.feniksovich.bankcards.repository.TransferOrderRepository;
 import com.feniksovich.bankcards.repository.UserRepository;
 import com.feniksovich.bankcards.security.crypto.CryptoService;
 import com.feniksovich.bankcards.util.CardUtil;
+import com.feniksovich.bankcards.util.CursorUtil;
 import com.feniksovich.bankcards.util.TransliterationUtil;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class CardServiceImpl implements CardService {
 
     private final CardRepository cardRepository;
+    private final CardLedgerRepository ledgerRepository;
+    private final CardBalanceShardRepository shardRepository;
     private final UserRepository userRepository;
     private final CryptoService cryptoService;
-    private final ModelMapper modelMapper;
+    private final CardMapper cardMapper;
+    private final CardMutationExecutor mutationExecutor;
+    private final CardLockManager lockManager;
+    private final TransferIdempotencyRegistry idempotencyRegistry;
+    private final TransferOrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PartitionedTransferEngine transferEngine;
+    private final CardListCache cardListCache;
+    private final boolean deferredCredits;
 
     private static final Supplier<ResourceNotFoundException> NOT_FOUND_EXCEPTION =
             () -> new ResourceNotFoundException("Card not found");
+    private static final Supplier<ResourceNotFoundException> PAN_NOT_FOUND_EXCEPTION =
+            () -> new ResourceNotFoundException("Card not found with last 4 pan specified");
+    private static final Instant HISTORY_END = Instant.parse("9999-12-31T00:00:00Z");
 
     @Autowired
     public CardServiceImpl(
             CardRepository cardRepository,
+            CardLedgerRepository ledgerRepository,
+            CardBalanceShardRepository shardRepository,
             UserRepository userRepository,
             CryptoService cryptoService,
-            ModelMapper modelMapper
+            CardMapper cardMapper,
+            CardMutationExecutor mutationExecutor,
+            CardLockManager lockManager,
+            TransferIdempotencyRegistry idempotencyRegistry,
+            TransferOrderRepository orderRepository,
+            ApplicationEventPublisher eventPublisher,
+            PartitionedTransferEngine transferEngine,
+            CardListCache cardListCache,
+            CardProperties cardProperties
     ) {
         this.cardRepository = cardRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.shardRepository = shardRepository;
         this.userRepository = userRepository;
         this.cryptoService = cryptoService;
-        this.modelMapper = modelMapper;
+        this.cardMapper = cardMapper;
+        this.mutationExecutor = mutationExecutor;
+        this.lockManager = lockManager;
+        this.idempotencyRegistry = idempotencyRegistry;
+        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
+        this.transferEngine = transferEngine;
+        this.cardListCache = cardListCache;
+        this.deferredCredits = cardProperties.ledger().deferredCredits();
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public CardData getById(UUID cardId) {
-        return cardRepository.findById(cardId)
-                .map(card -> modelMapper.map(card, CardData.class))
+        return cardRepository.findViewById(cardId)
+                .map(this::toCardData)
                 .orElseThrow(NOT_FOUND_EXCEPTION);
     }
 
@@ -81,44 +150,94 @@ public class CardServiceImpl implements CardService {
                 .balance(BigDecimal.ZERO)
                 .build();
 
-        return modelMapper.map(cardRepository.save(card), CardData.class);
+        final CardData cardData = cardMapper.toCardData(cardRepository.save(card));
+        eventPublisher.publishEvent(new CardsChangedEvent(userId));
+        return cardData;
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void delete(UUID cardId) {
-        final Card card = cardRepository.findById(cardId).orElseThrow(NOT_FOUND_EXCEPTION);
-
-        if (card.getBalance().compareTo(BigDecimal.ZERO) > 0) {
-            throw new CardOperationException("Cannot delete card with non-zero balance");
-        }
+        lockManager.withLocks("delete", List.of(cardId), () -> mutationExecutor.execute("delete", () -> {
+            // A deferred credit holds a share lock on its card until the credit is posted and committed
+            final Card card = (deferredCredits ? cardRepository.findLockedById(cardId) : findForUpdate(cardId))
+                    .orElseThrow(NOT_FOUND_EXCEPTION);
+
+            final List<UUID> shardedCardIds = card.isSharded() ? List.of(cardId) : List.of();
+            final BigDecimal unapplied = unappliedBalances(List.of(cardId), shardedCardIds)
+                    .getOrDefault(cardId, BigDecimal.ZERO);
+            if (card.getBalance().add(unapplied).compareTo(BigDecimal.ZERO) > 0) {
+                throw new CardOperationException("Cannot delete card with non-zero balance");
+            }
 
-        cardRepository.deleteById(cardId);
+            cardRepository.deleteById(cardId);
+            eventPublisher.publishEvent(new CardsChangedEvent(card.getUser().getId()));
+        }));
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public Page<CardData> getAll(Pageable pageable) {
-        return cardRepository.findAll(pageable)
-                .map(card -> modelMapper.map(card, CardData.class));
+        return toCardDataPage(cardRepository.findAllViews(pageable));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CardData> scrollAll(String cursor, int size, boolean approximateTotal) {
+        final CardKey after = cursor != null ? decodeCardKey(cursor) : CardKey.FIRST;
+        final CursorPage<CardData> page = toCardDataCursorPage(
+                cardRepository.findViewsAfter(after.userId(), after.id(), Limit.of(size + 1)), size
+        );
+        if (approximateTotal) {
+            page.setApproximateTotal(cardRepository.approximateCount());
+        }
+        return page;
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void setBlockedById(UUID cardId, boolean blocked) {
-        final Card card = cardRepository.findById(cardId).orElseThrow(NOT_FOUND_EXCEPTION);
-        setBlocked(card, blocked);
+        lockManager.withLocks("block", List.of(cardId), () -> mutationExecutor.execute("block", () -> {
+            final Card card = findForUpdate(cardId).orElseThrow(NOT_FOUND_EXCEPTION);
+            setBlocked(card, blocked);
+        }));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setBalanceShards(UUID cardId, int shards) {
+        lockManager.withLocks("shard", List.of(cardId), () -> mutationExecutor.execute("shard", () -> {
+            final Card card = findForUpdate(cardId).orElseThrow(NOT_FOUND_EXCEPTION);
+            if (card.getBalanceShards() == shards) {
+                return;
+            }
+            if (card.isSharded()) {
+                consolidate(card);
+                shardRepository.deleteAllByCardId(cardId);
+            }
+            card.setBalanceShards(shards);
+            cardRepository.save(card);
+            shardRepository.saveAll(IntStream.range(0, shards)
+                    .mapToObj(shard -> new CardBalanceShard(cardId, shard))
+                    .toList());
+        }));
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public CardData getOwnById(UUID userId, UUID cardId) {
-        return cardRepository.findByUserIdAndId(userId, cardId)
-                .map(card -> modelMapper.map(card, CardData.class))
+        final List<CardData> cached = cardListCache.get(userId, () -> loadOwned(userId));
+        if (cached != null) {
+            return cached.stream()
+                    .filter(card -> card.getId().equals(cardId))
+                    .findFirst()
+                    .orElseThrow(NOT_FOUND_EXCEPTION);
+        }
+        return cardRepository.findViewByUserIdAndId(userId, cardId)
+                .map(this::toCardData)
                 .orElseThrow(NOT_FOUND_EXCEPTION);
     }
 
@@ -126,31 +245,623 @@ public class CardServiceImpl implements CardService {
     @Override
     @Transactional(readOnly = true)
     public Page<CardData> getAllOwned(UUID userId, Pageable pageable) {
-        return cardRepository.findAllByUserId(userId, pageable)
-                .map(card -> modelMapper.map(card, CardData.class));
+        // The cached list is ordered by card id, so only unsorted pages are served from it
+        if (pageable.getSort().isUnsorted()) {
+            final List<CardData> cached = cardListCache.get(userId, () -> loadOwned(userId));
+            if (cached != null) {
+                return toPage(cached, pageable);
+            }
+        }
+        return toCardDataPage(cardRepository.findAllViewsByUserId(userId, pageable));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CardData> scrollAllOwned(UUID userId, String cursor, int size) {
+        final CardKey after = cursor != null ? decodeCardKey(cursor) : new CardKey(userId, CardKey.FIRST.id());
+        if (!after.userId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        return toCardDataCursorPage(
+                cardRepository.findViewsByUserIdAfter(userId, after.id(), Limit.of(size + 1)), size
+        );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CardTransactionData> getOwnTransactions(
+            UUID userId, UUID cardId, LocalDate from, LocalDate to, String cursor, int size
+    ) {
+        if (!cardRepository.existsByUserIdAndId(userId, cardId)) {
+            throw NOT_FOUND_EXCEPTION.get();
+        }
+
+        final ZoneId zoneId = ZoneId.systemDefault();
+        final Instant fromInstant = from != null ? from.atStartOfDay(zoneId).toInstant() : Instant.EPOCH;
+        final Instant toInstant = to != null ? to.plusDays(1).atStartOfDay(zoneId).toInstant() : HISTORY_END;
+        final HistoryKey after = cursor != null
+                ? CursorUtil.decode(cursor, 2, parts -> new HistoryKey(Instant.parse(parts[0]), Long.parseLong(parts[1])))
+                : new HistoryKey(HISTORY_END, Long.MAX_VALUE);
+
+        // One extra row tells whether there is a next page without counting
+        final List<CardLedgerEntry> entries = ledgerRepository.findHistoryPage(
+                cardId, fromInstant, toInstant, after.createdAt(), after.id(), size + 1
+        );
+        final boolean hasNext = entries.size() > size;
+        final List<CardLedgerEntry> page = hasNext ? entries.subList(0, size) : entries;
+
+        String nextCursor = null;
+        if (hasNext) {
+            final CardLedgerEntry last = page.getLast();
+            nextCursor = CursorUtil.encode(last.getCreatedAt().toString(), last.getId().toString());
+        }
+        return new CursorPage<>(
+                page.stream().map(cardMapper::toCardTransactionData).toList(),
+                nextCursor
+        );
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void setBlockedOwnById(UUID userId, UUID cardId, boolean blocked) {
-        final Card card = cardRepository.findByUserIdAndId(userId, cardId).orElseThrow(NOT_FOUND_EXCEPTION);
-        setBlocked(card, blocked);
+        lockManager.withLocks("block", List.of(cardId), () -> mutationExecutor.execute("block", () -> {
+            final Card card = (usesRowLocks()
+                    ? cardRepository.findLockedByUserIdAndId(userId, cardId)
+                    : cardRepository.findByUserIdAndId(userId, cardId)
+            ).orElseThrow(NOT_FOUND_EXCEPTION);
+            setBlocked(card, blocked);
+        }));
     }
 
     /** {@inheritDoc} */
     @Override
-    @Transactional
     public void performTransaction(UUID userId, TransactionRequest request) {
-        final Card fromCard = findByUserIdAndPanLast4OrThrow(userId, request.getFromPanLast4());
-        final Card toCard = findByUserIdAndPanLast4OrThrow(userId, request.getToPanLast4());
+        final UUID transferId = UUID.randomUUID();
+        if (mutationExecutor.getMode() == CardProperties.ConcurrencyMode.PARTITIONED) {
+            // The engine returns once the transfer is committed, so the event is handled right away
+            transferEngine.transfer(userId, request, transferId);
+            eventPublisher.publishEvent(new CardsChangedEvent(userId));
+            return;
+        }
+        withCardLocks("transfer", userId, panLast4s(request), () ->
+                mutationExecutor.execute("transfer", () -> transfer(userId, request, transferId))
+        );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TransactionResult performTransaction(UUID userId, TransactionRequest request, String idempotencyKey) {
+        final Optional<UUID> completed = idempotencyRegistry.findCompleted(userId, idempotencyKey, request);
+        if (completed.isPresent()) {
+            return new TransactionResult(completed.get(), true);
+        }
+
+        final UUID transferId = UUID.randomUUID();
+        final boolean claimed = withCardLocks("transfer", userId, panLast4s(request), () ->
+                mutationExecutor.execute("transfer", () -> {
+                    if (!idempotencyRegistry.claim(userId, idempotencyKey, request, transferId)) {
+                        return false;
+                    }
+                    transfer(userId, request, transferId);
+                    return true;
+                })
+        );
+
+        if (!claimed) {
+            // A concurrent request with the same key has committed its transfer first
+            return idempotencyRegistry.findCompleted(userId, idempotencyKey, request)
+                    .map(concurrentTransferId -> new TransactionResult(concurrentTransferId, true))
+                    .orElseThrow(() -> new ResourceConflictException(
+                            "Transaction with this idempotency key is in progress"
+                    ));
+        }
+        idempotencyRegistry.remember(userId, idempotencyKey, request, transferId);
+        return new TransactionResult(transferId, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<TransactionItemResult> performTransactions(UUID userId, List<TransactionRequest> requests) {
+        final Set<String> panLast4s = new LinkedHashSet<>();
+        requests.forEach(request -> panLast4s.addAll(panLast4s(request)));
+        return withCardLocks("batch-transfer", userId, panLast4s, () ->
+                mutationExecutor.execute("batch-transfer", () -> transferBatch(userId, requests))
+        );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional
+    public TransferOrderData submitTransaction(UUID userId, TransactionRequest request) {
+        final TransferOrder order = orderRepository.save(TransferOrder.builder()
+                .userId(userId)
+                .fromPanLast4(request.getFromPanLast4())
+                .toPanLast4(request.getToPanLast4())
+                .amount(request.getAmount())
+                .status(TransferStatus.PENDING)
+                .build());
+        eventPublisher.publishEvent(new TransferSubmittedEvent(order.getId(), userId, order.getFromPanLast4()));
+        return cardMapper.toTransferOrderData(order);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public TransferOrderData getTransaction(UUID userId, UUID transferId) {
+        return orderRepository.findByIdAndUserId(transferId, userId)
+                .map(cardMapper::toTransferOrderData)
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found"));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void processTransaction(UUID transferId) {
+        final TransferOrder order = orderRepository.findById(transferId).orElse(null);
+        if (order == null || order.getStatus() != TransferStatus.PENDING) {
+            return;
+        }
+
+        final UUID userId = order.getUserId();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4(order.getFromPanLast4())
+                .toPanLast4(order.getToPanLast4())
+                .amount(order.getAmount())
+                .build();
+        try {
+            withCardLocks("async-transfer", userId, panLast4s(request), () ->
+                    mutationExecutor.execute("async-transfer", () -> {
+                        // The order is completed in the transfer transaction, so it is applied at most once
+                        if (orderRepository.complete(transferId, TransferStatus.COMPLETED, null, Instant.now()) == 1) {
+                            transfer(userId, request, transferId);
+                        }
+                    })
+            );
+        } catch (CardOperationException | ResourceNotFoundException ex) {
+            mutationExecutor.execute("async-transfer", () -> {
+                orderRepository.complete(transferId, TransferStatus.REJECTED, ex.getMessage(), Instant.now());
+            });
+        }
+    }
+
+    /**
+     * Выполняет операцию, удерживая внутрипроцессные блокировки карт пользователя.
+     * Идентификаторы карт определяются коротким запросом вне транзакции, только если
+     * блокировки включены; ненайденные карты пропускаются, и ошибку сообщает сама операция.
+     *
+     * @param operation название операции для метрик
+     * @param userId    идентификатор владельца
+     * @param panLast4s последние 4 цифры PAN затрагиваемых карт
+     * @param action    операция
+     * @return результат операции
+     */
+    private <T> T withCardLocks(String operation, UUID userId, Collection<String> panLast4s, Supplier<T> action) {
+        if (!lockManager.isEnabled()) {
+            return action.get();
+        }
+        final List<UUID> cardIds = cardRepository.findIdsByUserIdAndPanLast4In(userId, panLast4s);
+        return lockManager.withLocks(operation, cardIds, action);
+    }
+
+    private void withCardLocks(String operation, UUID userId, Collection<String> panLast4s, Runnable action) {
+        withCardLocks(operation, userId, panLast4s, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static List<String> panLast4s(TransactionRequest request) {
+        return List.of(request.getFromPanLast4(), request.getToPanLast4());
+    }
+
+    /**
+     * Выполняет пакет переводов в текущей транзакции. Все упомянутые карты загружаются
+     * одним запросом (в режимах с блокировками — с блокировкой в порядке идентификаторов),
+     * переводы проверяются и применяются к балансам в памяти, а измененные балансы
+     * и проводки журнала записываются пакетами JDBC при фиксации. Карты уже заблокированы
+     * пакетом, поэтому зачисления применяются сразу и при отложенных зачислениях,
+     * а суб-балансы карт переносятся в строки карт.
+     *
+     * @param userId   идентификатор владельца
+     * @param requests параметры переводов
+     * @return результаты переводов в порядке запросов
+     */
+    private List<TransactionItemResult> transferBatch(UUID userId, List<TransactionRequest> requests) {
+        final LinkedHashSet<String> panLast4s = new LinkedHashSet<>();
+        requests.forEach(request -> {
+            panLast4s.add(request.getFromPanLast4());
+            panLast4s.add(request.getToPanLast4());
+        });
+        final List<Card> cards = usesRowLocks()
+                ? cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(userId, panLast4s)
+                : cardRepository.findAllByUserIdAndPanLast4In(userId, panLast4s);
+        final Map<String, Card> cardsByPanLast4 = cards.stream()
+                .collect(Collectors.toMap(Card::getPanLast4, Function.identity()));
+        // Cards of the batch are already loaded, so their sub-balances are folded into the card rows
+        cards.stream().filter(Card::isSharded).forEach(this::consolidate);
+
+        final List<TransactionItemResult> results = new ArrayList<>(requests.size());
+        final List<Posting> postings = new ArrayList<>();
+        final Instant now = Instant.now();
+        for (TransactionRequest request : requests) {
+            try {
+                final Card fromCard = findByPanLast4OrThrow(cardsByPanLast4, request.getFromPanLast4());
+                final Card toCard = findByPanLast4OrThrow(cardsByPanLast4, request.getToPanLast4());
+                final BigDecimal amount = request.getAmount();
+
+                validateTransaction(fromCard, toCard, amount);
+
+                fromCard.setBalance(fromCard.getBalance().subtract(amount));
+                toCard.setBalance(toCard.getBalance().add(amount));
+
+                final UUID transferId = UUID.randomUUID();
+                postings.add(new Posting(transferId, fromCard.getId(), amount, LedgerDirection.DEBIT, true, now));
+                postings.add(new Posting(transferId, toCard.getId(), amount, LedgerDirection.CREDIT, true, now));
+                results.add(new TransactionItemResult(TransactionItemResult.Status.APPLIED, transferId, null));
+            } catch (CardOperationException | ResourceNotFoundException ex) {
+                results.add(new TransactionItemResult(TransactionItemResult.Status.REJECTED, null, ex.getMessage()));
+            }
+        }
+
+        if (!postings.isEmpty()) {
+            cardRepository.saveAll(cards);
+            ledgerRepository.appendAll(postings);
+            eventPublisher.publishEvent(new CardsChangedEvent(userId));
+        }
+        return results;
+    }
+
+    /**
+     * Выполняет перевод в текущей транзакции способом, соответствующим режиму конкурентного доступа.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     */
+    private void transfer(UUID userId, TransactionRequest request, UUID transferId) {
+        if (mutationExecutor.getMode() == CardProperties.ConcurrencyMode.CONDITIONAL) {
+            transferWithConditionalUpdates(userId, request, transferId);
+        } else {
+            transferWithLoadedCards(userId, request, transferId);
+        }
+        eventPublisher.publishEvent(new CardsChangedEvent(userId));
+    }
+
+    /**
+     * Выполняет перевод через загруженные сущности карт. В режимах с блокировками
+     * обе карты блокируются одним запросом в фиксированном порядке идентификаторов;
+     * карта-назначение с суб-балансами не блокируется, а зачисление изменяет ее суб-баланс.
+     * При отложенных зачислениях изменяется и блокируется только карта-источник.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     */
+    private void transferWithLoadedCards(UUID userId, TransactionRequest request, UUID transferId) {
+        if (deferredCredits) {
+            transferWithDeferredCredit(userId, request, transferId);
+            return;
+        }
+
+        final List<String> panLast4s = panLast4s(request);
+        final List<Card> cards = usesRowLocks()
+                ? cardRepository.findAllForTransfer(userId, panLast4s, request.getFromPanLast4())
+                : cardRepository.findAllByUserIdAndPanLast4In(userId, panLast4s);
+        final Card fromCard = findByPanLast4OrThrow(cards, request.getFromPanLast4());
+        final Card toCard = cards.stream()
+                .filter(card -> card.getPanLast4().equals(request.getToPanLast4()))
+                .findFirst()
+                .orElseGet(() -> findByUserIdAndPanLast4OrThrow(userId, request.getToPanLast4()));
         final BigDecimal amount = request.getAmount();
 
+        consolidateIfShort(fromCard, amount);
         validateTransaction(fromCard, toCard, amount);
 
         fromCard.setBalance(fromCard.getBalance().subtract(amount));
-        toCard.setBalance(toCard.getBalance().add(amount));
-        cardRepository.saveAll(List.of(fromCard, toCard));
+        if (toCard.isSharded()) {
+            creditShard(toCard, amount);
+        } else {
+            toCard.setBalance(toCard.getBalance().add(amount));
+        }
+        cardRepository.saveAll(cards);
+        appendToLedger(transferId, fromCard.getId(), toCard.getId(), amount);
+    }
+
+    /**
+     * Выполняет перевод с отложенным зачислением: списание применяется к карте-источнику,
+     * а зачисление только записывается в журнал и попадает в баланс карты-назначения
+     * при очередном применении журнала.
+     * <p>
+     * Строки карт блокируются во всех режимах конкурентного доступа в порядке идентификаторов:
+     * карта-источник на запись, карта-назначение на чтение. Переводы на одну карту не ждут
+     * друг друга, а удаление карты ждет фиксации перевода и видит его зачисление.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     */
+    private void transferWithDeferredCredit(UUID userId, TransactionRequest request, UUID transferId) {
+        final Map<String, Card> cards = new HashMap<>();
+        for (String panLast4 : cardRepository.findPanLast4sInLockOrder(userId, panLast4s(request))) {
+            (panLast4.equals(request.getFromPanLast4())
+                    ? cardRepository.findLockedByUserIdAndPanLast4(userId, panLast4)
+                    : cardRepository.findSharedByUserIdAndPanLast4(userId, panLast4)
+            ).ifPresent(card -> cards.put(panLast4, card));
+        }
+        final Card fromCard = findByPanLast4OrThrow(cards, request.getFromPanLast4());
+        final Card toCard = findByPanLast4OrThrow(cards, request.getToPanLast4());
+        final BigDecimal amount = request.getAmount();
+
+        consolidateIfShort(fromCard, amount);
+        validateTransaction(fromCard, toCard, amount);
+
+        fromCard.setBalance(fromCard.getBalance().subtract(amount));
+        cardRepository.save(fromCard);
+        appendToLedger(transferId, fromCard.getId(), toCard.getId(), amount);
+    }
+
+    /**
+     * Выполняет перевод двумя условными UPDATE без предварительного чтения карт.
+     * Обновления выполняются в фиксированном порядке последних 4 цифр PAN
+     * (уникальных в пределах пользователя), что исключает взаимные блокировки.
+     * Зачисление на карту с суб-балансами изменяет случайный суб-баланс.
+     * Если одно из условий не выполнено, карты перечитываются только для того,
+     * чтобы сообщить ту же причину отказа, что и при переводе через сущности.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     */
+    private void transferWithConditionalUpdates(UUID userId, TransactionRequest request, UUID transferId) {
+        final String fromPanLast4 = request.getFromPanLast4();
+        final String toPanLast4 = request.getToPanLast4();
+        final BigDecimal amount = request.getAmount();
+        final LocalDate today = LocalDate.now();
+
+        if (fromPanLast4.equals(toPanLast4)) {
+            // Reports "not found" or "same card" exactly like the entity-based transfer
+            final Card card = findByUserIdAndPanLast4OrThrow(userId, fromPanLast4);
+            validateTransaction(card, card, amount);
+        }
+
+        final boolean applied;
+        if (deferredCredits) {
+            // The credit goes to the ledger: the destination row is only share-locked so it cannot be deleted
+            applied = fromPanLast4.compareTo(toPanLast4) < 0
+                    ? debitIfAvailable(userId, fromPanLast4, amount, today)
+                            && cardRepository.lockIfActive(userId, toPanLast4, today).isPresent()
+                    : cardRepository.lockIfActive(userId, toPanLast4, today).isPresent()
+                            && debitIfAvailable(userId, fromPanLast4, amount, today);
+        } else if (fromPanLast4.compareTo(toPanLast4) < 0) {
+            applied = debitIfAvailable(userId, fromPanLast4, amount, today)
+                    && creditIfActive(userId, toPanLast4, amount, today);
+        } else {
+            applied = creditIfActive(userId, toPanLast4, amount, today)
+                    && debitIfAvailable(userId, fromPanLast4, amount, today);
+        }
+
+        if (!applied) {
+            // Throwing rolls back the update that may have already been applied
+            final Card fromCard = findByUserIdAndPanLast4OrThrow(userId, fromPanLast4);
+            final Card toCard = findByUserIdAndPanLast4OrThrow(userId, toPanLast4);
+            validateTransaction(fromCard, toCard, amount);
+            throw new ResourceConflictException("Card was modified concurrently, please retry");
+        }
+        // Both rows are locked by now, so their ids cannot change until commit
+        appendToLedger(transferId, findIdByUserIdAndPanLast4OrThrow(userId, fromPanLast4),
+                findIdByUserIdAndPanLast4OrThrow(userId, toPanLast4), amount);
+    }
+
+    /**
+     * Записывает перевод в журнал операций парой проводок с общим идентификатором перевода.
+     * При отложенных зачислениях проводка зачисления помечается как еще не примененная.
+     *
+     * @param transferId идентификатор перевода
+     * @param fromCardId идентификатор карты-источника
+     * @param toCardId   идентификатор карты-назначения
+     * @param amount     сумма перевода
+     */
+    private void appendToLedger(UUID transferId, UUID fromCardId, UUID toCardId, BigDecimal amount) {
+        final Instant now = Instant.now();
+        ledgerRepository.appendAll(List.of(
+                new Posting(transferId, fromCardId, amount, LedgerDirection.DEBIT, true, now),
+                new Posting(transferId, toCardId, amount, LedgerDirection.CREDIT, !deferredCredits, now)
+        ));
+    }
+
+    /**
+     * Списывает сумму с карты условным UPDATE. Если средств в строке карты недостаточно,
+     * суб-балансы карты переносятся в строку карты и списание повторяется.
+     *
+     * @return true, если списание выполнено
+     */
+    private boolean debitIfAvailable(UUID userId, String panLast4, BigDecimal amount, LocalDate today) {
+        if (cardRepository.debitIfAvailable(userId, panLast4, amount, today) == 1) {
+            return true;
+        }
+        return shardRepository.consolidate(userId, panLast4) == 1
+                && cardRepository.debitIfAvailable(userId, panLast4, amount, today) == 1;
+    }
+
+    /**
+     * Зачисляет сумму на карту условным UPDATE: на строку карты или, если карта
+     * разделена на суб-балансы, на случайный суб-баланс.
+     *
+     * @return true, если зачисление выполнено
+     */
+    private boolean creditIfActive(UUID userId, String panLast4, BigDecimal amount, LocalDate today) {
+        return cardRepository.creditIfActive(userId, panLast4, amount, today) == 1
+                || shardRepository.creditIfActive(
+                        userId, panLast4, amount, today, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE)
+                ) == 1;
+    }
+
+    /**
+     * Зачисляет сумму на случайный суб-баланс карты.
+     *
+     * @param card   карта с суб-балансами
+     * @param amount сумма зачисления
+     */
+    private void creditShard(Card card, BigDecimal amount) {
+        final int shard = ThreadLocalRandom.current().nextInt(card.getBalanceShards());
+        if (shardRepository.credit(card.getId(), shard, amount) != 1) {
+            // Sub-balances were re-created concurrently with a different count
+            throw new ResourceConflictException("Card was modified concurrently, please retry");
+        }
+    }
+
+    /**
+     * Переносит суб-балансы карты в строку карты, если в строке карты недостаточно средств для списания.
+     *
+     * @param card   загруженная для изменения карта
+     * @param amount сумма списания
+     */
+    private void consolidateIfShort(Card card, BigDecimal amount) {
+        if (card.isSharded() && card.getBalance().compareTo(amount) < 0) {
+            consolidate(card);
+        }
+    }
+
+    /**
+     * Переносит суб-балансы загруженной для изменения карты в строку карты.
+     *
+     * @param card карта с суб-балансами
+     */
+    private void consolidate(Card card) {
+        card.setBalance(card.getBalance().add(shardRepository.drain(card.getId())));
+    }
+
+    /**
+     * Преобразует проекцию карты в DTO с учетом сумм, не учтенных в строке карты.
+     *
+     * @param card проекция карты
+     * @return DTO карты
+     */
+    private CardData toCardData(CardView card) {
+        return toCardData(card, unappliedBalances(List.of(card)));
+    }
+
+    /**
+     * Преобразует страницу проекций карт в страницу DTO с учетом сумм, не учтенных в строках карт.
+     *
+     * @param cards страница проекций карт
+     * @return страница DTO карт
+     */
+    private Page<CardData> toCardDataPage(Page<CardView> cards) {
+        final Map<UUID, BigDecimal> unapplied = unappliedBalances(cards.getContent());
+        return cards.map(card -> toCardData(card, unapplied));
+    }
+
+    /**
+     * Преобразует выборку проекций карт по ключу в страницу DTO. Выборка содержит на одну
+     * карту больше размера страницы, если за страницей есть следующая.
+     *
+     * @param cards проекции карт, упорядоченные по ключу (владелец, идентификатор)
+     * @param size  размер страницы
+     * @return страница DTO карт с курсором следующей страницы
+     */
+    private CursorPage<CardData> toCardDataCursorPage(List<CardView> cards, int size) {
+        final boolean hasNext = cards.size() > size;
+        final List<CardView> page = hasNext ? cards.subList(0, size) : cards;
+
+        String nextCursor = null;
+        if (hasNext) {
+            final CardView last = page.getLast();
+            nextCursor = CursorUtil.encode(last.userId().toString(), last.id().toString());
+        }
+        final Map<UUID, BigDecimal> unapplied = unappliedBalances(page);
+        return new CursorPage<>(page.stream().map(card -> toCardData(card, unapplied)).toList(), nextCursor);
+    }
+
+    /**
+     * Загружает для кэша все карты пользователя, упорядоченные по идентификатору,
+     * с учетом сумм, не учтенных в строках карт.
+     *
+     * @param userId идентификатор владельца
+     * @return DTO карт или null, если карт больше, чем кэшируется
+     */
+    private List<CardData> loadOwned(UUID userId) {
+        final int maxCards = cardListCache.getMaxCards();
+        final List<CardView> cards = cardRepository.findViewsByUserIdAfter(
+                userId, CardKey.FIRST.id(), Limit.of(maxCards + 1)
+        );
+        if (cards.size() > maxCards) {
+            return null;
+        }
+        final Map<UUID, BigDecimal> unapplied = unappliedBalances(cards);
+        return cards.stream().map(card -> toCardData(card, unapplied)).toList();
+    }
+
+    private static Page<CardData> toPage(List<CardData> cards, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(cards, pageable, cards.size());
+        }
+        final int from = (int) Math.min(pageable.getOffset(), cards.size());
+        final int to = Math.min(from + pageable.getPageSize(), cards.size());
+        return new PageImpl<>(cards.subList(from, to), pageable, cards.size());
+    }
+
+    private static CardKey decodeCardKey(String cursor) {
+        return CursorUtil.decode(cursor, 2, parts -> new CardKey(UUID.fromString(parts[0]), UUID.fromString(parts[1])));
+    }
+
+    private static CardData toCardData(CardView card, Map<UUID, BigDecimal> unapplied) {
+        final CardData cardData = card.toCardData();
+        final BigDecimal amount = unapplied.get(card.id());
+        if (amount != null) {
+            cardData.setBalance(cardData.getBalance().add(amount));
+        }
+        return cardData;
+    }
+
+    private Map<UUID, BigDecimal> unappliedBalances(List<CardView> cards) {
+        return unappliedBalances(
+                cards.stream().map(CardView::id).toList(),
+                cards.stream().filter(CardView::isSharded).map(CardView::id).toList()
+        );
+    }
+
+    /**
+     * Возвращает суммы, принадлежащие картам, но не учтенные в строках карт:
+     * непримененные зачисления журнала и суб-балансы. Зачисления запрашиваются
+     * независимо от {@code cards.ledger.deferred-credits}: в секционированном режиме
+     * зачисление на карту другого раздела остается непримененным до передачи
+     * ее разделу. Суб-балансы запрашиваются, только если у карт они есть.
+     *
+     * @param cardIds        идентификаторы карт
+     * @param shardedCardIds идентификаторы карт с суб-балансами
+     * @return суммы по идентификаторам карт, у которых они есть
+     */
+    private Map<UUID, BigDecimal> unappliedBalances(List<UUID> cardIds, List<UUID> shardedCardIds) {
+        final Map<UUID, BigDecimal> unapplied = new HashMap<>();
+        if (!cardIds.isEmpty()) {
+            ledgerRepository.sumPendingCredits(cardIds)
+                    .forEach(sum -> unapplied.merge(sum.getCardId(), sum.getAmount(), BigDecimal::add));
+        }
+        if (!shardedCardIds.isEmpty()) {
+            shardRepository.sumByCardIds(shardedCardIds)
+                    .forEach(sum -> unapplied.merge(sum.getCardId(), sum.getAmount(), BigDecimal::add));
+        }
+        return unapplied;
+    }
+
+    /**
+     * Проверяет, блокируются ли строки карт при изменении (все режимы, кроме оптимистичного).
+     */
+    private boolean usesRowLocks() {
+        return mutationExecutor.getMode() != CardProperties.ConcurrencyMode.OPTIMISTIC;
+    }
+
+    /**
+     * Загружает карту для изменения: в режимах с блокировками строка карты
+     * блокируется на запись, в оптимистичном — читается без блокировки.
+     *
+     * @param cardId идентификатор карты
+     * @return карта
+     */
+    private Optional<Card> findForUpdate(UUID cardId) {
+        return usesRowLocks() ? cardRepository.findLockedById(cardId) : cardRepository.findById(cardId);
     }
 
     /**
@@ -179,13 +890,54 @@ public class CardServiceImpl implements CardService {
     /**
      * Находит карту пользователя по последним 4 цифрам PAN или бросает исключение.
      *
-     * @param userId  идентификатор пользователя
+     * @param userId   идентификатор пользователя
      * @param panLast4 последние 4 цифры PAN
      * @return найденная карта
      */
     private Card findByUserIdAndPanLast4OrThrow(UUID userId, String panLast4) {
         return cardRepository.findByUserIdAndPanLast4(userId, panLast4)
-                .orElseThrow(() -> new ResourceNotFoundException("Card not found with last 4 pan specified"));
+                .orElseThrow(PAN_NOT_FOUND_EXCEPTION);
+    }
+
+    /**
+     * Находит идентификатор карты пользователя по последним 4 цифрам PAN или бросает исключение.
+     *
+     * @param userId   идентификатор пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return идентификатор найденной карты
+     */
+    private UUID findIdByUserIdAndPanLast4OrThrow(UUID userId, String panLast4) {
+        return cardRepository.findIdByUserIdAndPanLast4(userId, panLast4)
+                .orElseThrow(PAN_NOT_FOUND_EXCEPTION);
+    }
+
+    /**
+     * Находит среди загруженных карт карту по последним 4 цифрам PAN или бросает исключение.
+     *
+     * @param cards    загруженные карты пользователя
+     * @param panLast4 последние 4 цифры PAN
+     * @return найденная карта
+     */
+    private static Card findByPanLast4OrThrow(List<Card> cards, String panLast4) {
+        return cards.stream()
+                .filter(card -> card.getPanLast4().equals(panLast4))
+                .findFirst()
+                .orElseThrow(PAN_NOT_FOUND_EXCEPTION);
+    }
+
+    /**
+     * Находит карту по последним 4 цифрам PAN среди загруженных карт или бросает исключение.
+     *
+     * @param cardsByPanLast4 загруженные карты пользователя по последним 4 цифрам PAN
+     * @param panLast4        последние 4 цифры PAN
+     * @return найденная карта
+     */
+    private static Card findByPanLast4OrThrow(Map<String, Card> cardsByPanLast4, String panLast4) {
+        final Card card = cardsByPanLast4.get(panLast4);
+        if (card == null) {
+            throw PAN_NOT_FOUND_EXCEPTION.get();
+        }
+        return card;
     }
 
     /**
@@ -200,16 +952,18 @@ public class CardServiceImpl implements CardService {
         }
         card.setBlocked(state);
         cardRepository.save(card);
+        eventPublisher.publishEvent(new CardsChangedEvent(card.getUser().getId()));
     }
 
     /**
      * Валидирует параметры перевода между картами.
+     * Используется также движком переводов {@link PartitionedTransferEngine}.
      *
      * @param fromCard карта-источник
      * @param toCard   карта-назначение
      * @param amount   сумма перевода
      */
-    private static void validateTransaction(Card fromCard, Card toCard, BigDecimal amount) {
+    static void validateTransaction(Card fromCard, Card toCard, BigDecimal amount) {
         if (fromCard.getId().equals(toCard.getId())) {
             throw new CardOperationException("Cannot transfer to the same card");
         }
@@ -227,4 +981,16 @@ public class CardServiceImpl implements CardService {
             throw new CardOperationException("The card is not enough funds");
         }
     }
+
+    /**
+     * Ключ сортировки истории операций по карте.
+     */
+    private record HistoryKey(Instant createdAt, long id) {}
+
+    /**
+     * Ключ сортировки карт: владелец и идентификатор карты.
+     */
+    private record CardKey(UUID userId, UUID id) {
+        static final CardKey FIRST = new CardKey(new UUID(0L, 0L), new UUID(0L, 0L));
+    }
 }
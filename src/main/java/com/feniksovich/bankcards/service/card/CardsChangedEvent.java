@@ -0,0 +1,10 @@
+package com.feniksovich.bankcards.service.card;
+
+import java.util.UUID;
+
+/**
+ * Событие изменения карт пользователя: выпуска, удаления, блокировки или изменения баланса.
+ *
+ * @param userId идентификатор владельца карт
+ */
+public record CardsChangedEvent(UUID userId) {}
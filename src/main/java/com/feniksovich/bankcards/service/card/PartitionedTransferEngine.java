@@ -0,0 +1,409 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import com.feniksovich.bankcards.exception.ResourceNotFoundException;
+import com.feniksovich.bankcards.repository.CardBalanceShardRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepositoryCustom.Posting;
+import com.feniksovich.bankcards.repository.CardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Движок переводов с одним писателем на раздел для режима
+ * {@link CardProperties.ConcurrencyMode#PARTITIONED}. Карта (пользователь и последние
+ * 4 цифры PAN) по хешу относится к одному разделу; перевод помещается в кольцевой буфер
+ * раздела карты-источника, и только поток-писатель раздела изменяет его карты.
+ * Писатель забирает переводы пакетом, проверяет и применяет их к балансам в памяти
+ * и фиксирует весь пакет одной транзакцией, поэтому внутри JVM переводы не ожидают
+ * друг друга на блокировках, а в БД строки карт раздела блокирует только его писатель.
+ * <p>
+ * Перевод на карту другого раздела выполняется в два шага: писатель раздела источника
+ * списывает сумму и записывает зачисление в журнал как еще не примененное, а после
+ * фиксации передает его писателю раздела назначения, который применяет его своим пакетом.
+ * Если передача не удалась, зачисление применяет фоновый процесс журнала.
+ */
+@Slf4j
+@Component
+public class PartitionedTransferEngine {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final CardRepository cardRepository;
+    private final CardLedgerRepository ledgerRepository;
+    private final CardBalanceShardRepository shardRepository;
+    private final TransactionOperations transactionOperations;
+    private final CardProperties.EngineProperties properties;
+    private final boolean deferredCredits;
+    private final Partition[] partitions;
+
+    @Autowired
+    public PartitionedTransferEngine(
+            CardRepository cardRepository,
+            CardLedgerRepository ledgerRepository,
+            CardBalanceShardRepository shardRepository,
+            TransactionOperations transactionOperations,
+            CardProperties cardProperties
+    ) {
+        this.cardRepository = cardRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.shardRepository = shardRepository;
+        this.transactionOperations = transactionOperations;
+        this.properties = cardProperties.engine();
+        this.deferredCredits = cardProperties.ledger().deferredCredits();
+        final boolean enabled = cardProperties.concurrency().mode() == CardProperties.ConcurrencyMode.PARTITIONED;
+        this.partitions = new Partition[enabled ? properties.partitions() : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    /**
+     * Запускает потоки-писатели разделов, если движок используется.
+     */
+    @PostConstruct
+    public void start() {
+        for (Partition partition : partitions) {
+            partition.start();
+        }
+    }
+
+    /**
+     * Останавливает потоки-писатели. Переводы, оставшиеся в буферах, отклоняются.
+     */
+    @PreDestroy
+    public void stop() {
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+    }
+
+    /**
+     * Выполняет перевод и ожидает его завершения. Перевод завершен, когда списание
+     * и зачисление зафиксированы в БД.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     * @throws ResourceConflictException если буфер раздела заполнен или перевод не завершился за отведенное время
+     */
+    public void transfer(UUID userId, TransactionRequest request, UUID transferId) {
+        final CompletableFuture<Void> result = submit(userId, request, transferId);
+        try {
+            result.get(properties.timeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Transfer failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ResourceConflictException("Transfer is still in progress, check the card balance before retrying");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for transfer", ex);
+        }
+    }
+
+    /**
+     * Помещает перевод в буфер раздела карты-источника.
+     *
+     * @param userId     идентификатор владельца
+     * @param request    параметры перевода
+     * @param transferId идентификатор перевода для журнала операций
+     * @return результат перевода
+     * @throws ResourceConflictException если буфер раздела не освободился за отведенное время
+     */
+    public CompletableFuture<Void> submit(UUID userId, TransactionRequest request, UUID transferId) {
+        if (partitions.length == 0) {
+            throw new IllegalStateException("Partitioned transfer engine is disabled");
+        }
+        final Transfer transfer = new Transfer(userId, request, transferId, new CompletableFuture<>());
+        final Partition partition = partitions[partitionOf(userId, request.getFromPanLast4())];
+        final long deadline = System.nanoTime() + properties.timeout().toNanos();
+        while (!partition.offer(transfer)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new ResourceConflictException("Transfer engine is busy, please retry");
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        return transfer.result();
+    }
+
+    /**
+     * Возвращает номер раздела карты.
+     *
+     * @param userId   идентификатор владельца
+     * @param panLast4 последние 4 цифры PAN
+     * @return номер раздела
+     */
+    public int partitionOf(UUID userId, String panLast4) {
+        return Math.floorMod(31 * userId.hashCode() + panLast4.hashCode(), partitions.length);
+    }
+
+    /**
+     * Фиксирует пакет команд раздела одной транзакцией и после фиксации сообщает результаты.
+     * Если транзакция не удалась, переводы пакета завершаются ошибкой, а переданные
+     * зачисления остаются в журнале для фонового применения.
+     *
+     * @param partition номер раздела
+     * @param batch     команды раздела в порядке поступления
+     */
+    private void commit(int partition, List<Command> batch) {
+        final List<Transfer> transfers = new ArrayList<>(batch.size());
+        final List<Credit> credits = new ArrayList<>();
+        for (Command command : batch) {
+            switch (command) {
+                case Transfer transfer -> transfers.add(transfer);
+                case Credit credit -> credits.add(credit);
+            }
+        }
+
+        final List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            transactionOperations.executeWithoutResult(_ -> apply(partition, transfers, credits, completions));
+        } catch (RuntimeException ex) {
+            log.warn("Transfer batch of partition {} failed: {}", partition, ex.getMessage());
+            transfers.forEach(transfer -> transfer.result().completeExceptionally(ex));
+            credits.forEach(credit -> credit.result().complete(null));
+            return;
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Применяет пакет в текущей транзакции: проверяет переводы по порядку теми же правилами,
+     * что и {@link CardServiceImpl}, изменяет балансы загруженных карт в памяти, записывает
+     * их и проводки журнала пакетами и применяет переданные другими разделами зачисления.
+     *
+     * @param partition   номер раздела
+     * @param transfers   переводы с карт раздела
+     * @param credits     зачисления на карты раздела, переданные другими разделами
+     * @param completions действия, сообщающие результаты после фиксации
+     */
+    private void apply(int partition, List<Transfer> transfers, List<Credit> credits, List<Runnable> completions) {
+        final List<Card> lockedCards = new ArrayList<>();
+        final Map<UUID, Map<String, Card>> cardsByUser = loadCards(partition, transfers, lockedCards);
+        final List<Posting> postings = new ArrayList<>(transfers.size() * 2);
+        final Instant now = Instant.now();
+
+        for (Transfer transfer : transfers) {
+            final UUID userId = transfer.userId();
+            final TransactionRequest request = transfer.request();
+            try {
+                final Map<String, Card> cards = cardsByUser.getOrDefault(userId, Map.of());
+                final Card fromCard = findByPanLast4OrThrow(cards, request.getFromPanLast4());
+                final Card toCard = findByPanLast4OrThrow(cards, request.getToPanLast4());
+                final BigDecimal amount = request.getAmount();
+
+                if (fromCard.isSharded() && fromCard.getBalance().compareTo(amount) < 0) {
+                    fromCard.setBalance(fromCard.getBalance().add(shardRepository.drain(fromCard.getId())));
+                }
+                CardServiceImpl.validateTransaction(fromCard, toCard, amount);
+
+                final boolean creditedHere = isCreditedIn(partition, userId, request.getToPanLast4());
+                fromCard.setBalance(fromCard.getBalance().subtract(amount));
+                if (creditedHere) {
+                    toCard.setBalance(toCard.getBalance().add(amount));
+                }
+                postings.add(new Posting(transfer.transferId(), fromCard.getId(), amount,
+                        LedgerDirection.DEBIT, true, now));
+                postings.add(new Posting(transfer.transferId(), toCard.getId(), amount,
+                        LedgerDirection.CREDIT, creditedHere, now));
+
+                if (creditedHere || deferredCredits) {
+                    completions.add(() -> transfer.result().complete(null));
+                } else {
+                    completions.add(() -> handOff(transfer));
+                }
+            } catch (CardOperationException | ResourceNotFoundException ex) {
+                completions.add(() -> transfer.result().completeExceptionally(ex));
+            }
+        }
+
+        if (!postings.isEmpty()) {
+            cardRepository.saveAll(lockedCards);
+            cardRepository.flush();
+            ledgerRepository.appendAll(postings);
+        }
+        if (!credits.isEmpty()) {
+            ledgerRepository.applyPendingCredits(credits.stream().map(Credit::transferId).toList());
+            credits.forEach(credit -> completions.add(() -> credit.result().complete(null)));
+        }
+    }
+
+    /**
+     * Загружает карты пакета: карты раздела, которые изменяет писатель, блокируются
+     * на запись, а карты назначения других разделов читаются без блокировки только для проверки.
+     * Запросы выполняются по одному на пользователя и вид карт.
+     *
+     * @param partition   номер раздела
+     * @param transfers   переводы пакета
+     * @param lockedCards список, в который добавляются заблокированные карты
+     * @return карты по пользователю и последним 4 цифрам PAN
+     */
+    private Map<UUID, Map<String, Card>> loadCards(int partition, List<Transfer> transfers, List<Card> lockedCards) {
+        final Map<UUID, Set<String>> ownPanLast4s = new LinkedHashMap<>();
+        final Map<UUID, Set<String>> foreignPanLast4s = new LinkedHashMap<>();
+        for (Transfer transfer : transfers) {
+            final UUID userId = transfer.userId();
+            final String toPanLast4 = transfer.request().getToPanLast4();
+            ownPanLast4s.computeIfAbsent(userId, _ -> new LinkedHashSet<>()).add(transfer.request().getFromPanLast4());
+            (isCreditedIn(partition, userId, toPanLast4) ? ownPanLast4s : foreignPanLast4s)
+                    .computeIfAbsent(userId, _ -> new LinkedHashSet<>())
+                    .add(toPanLast4);
+        }
+
+        final Map<UUID, Map<String, Card>> cardsByUser = new HashMap<>();
+        ownPanLast4s.forEach((userId, panLast4s) -> {
+            final List<Card> cards = cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(userId, panLast4s);
+            lockedCards.addAll(cards);
+            cards.forEach(card -> cardsByUser.computeIfAbsent(userId, _ -> new HashMap<>()).put(card.getPanLast4(), card));
+        });
+        foreignPanLast4s.forEach((userId, panLast4s) -> cardRepository.findAllByUserIdAndPanLast4In(userId, panLast4s)
+                .forEach(card -> cardsByUser.computeIfAbsent(userId, _ -> new HashMap<>())
+                        .putIfAbsent(card.getPanLast4(), card)));
+        return cardsByUser;
+    }
+
+    /**
+     * Проверяет, применяет ли писатель раздела зачисление на карту сам: карта относится
+     * к разделу и зачисления не отложены.
+     */
+    private boolean isCreditedIn(int partition, UUID userId, String toPanLast4) {
+        return !deferredCredits && partitionOf(userId, toPanLast4) == partition;
+    }
+
+    /**
+     * Передает зачисление перевода писателю раздела карты-назначения. Если его буфер заполнен,
+     * перевод считается завершенным: зачисление уже записано в журнал и будет применено фоновым процессом.
+     *
+     * @param transfer перевод, списание которого зафиксировано
+     */
+    private void handOff(Transfer transfer) {
+        final Partition partition = partitions[partitionOf(transfer.userId(), transfer.request().getToPanLast4())];
+        if (!partition.offer(new Credit(transfer.transferId(), transfer.result()))) {
+            log.debug("Transfer buffer of partition {} is full, credit {} is left to the ledger snapshotter",
+                    partition.index, transfer.transferId());
+            transfer.result().complete(null);
+        }
+    }
+
+    private static Card findByPanLast4OrThrow(Map<String, Card> cards, String panLast4) {
+        final Card card = cards.get(panLast4);
+        if (card == null) {
+            throw new ResourceNotFoundException("Card not found with last 4 pan specified");
+        }
+        return card;
+    }
+
+    /**
+     * Команда писателю раздела.
+     */
+    private sealed interface Command permits Transfer, Credit {
+        CompletableFuture<Void> result();
+    }
+
+    /**
+     * Перевод с карты раздела.
+     */
+    private record Transfer(
+            UUID userId,
+            TransactionRequest request,
+            UUID transferId,
+            CompletableFuture<Void> result
+    ) implements Command {}
+
+    /**
+     * Зачисление перевода на карту раздела, списание по которому зафиксировано другим разделом.
+     */
+    private record Credit(UUID transferId, CompletableFuture<Void> result) implements Command {}
+
+    /**
+     * Раздел: кольцевой буфер команд и его единственный поток-писатель.
+     */
+    private final class Partition implements Runnable {
+
+        private final int index;
+        private final TransferRingBuffer<Command> buffer;
+        private volatile boolean running;
+        private Thread writer;
+
+        Partition(int index) {
+            this.index = index;
+            this.buffer = new TransferRingBuffer<>(properties.bufferSize());
+        }
+
+        void start() {
+            running = true;
+            writer = Thread.ofPlatform().name("transfer-writer-" + index).daemon().start(this);
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(writer);
+            try {
+                writer.join(properties.timeout().toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean offer(Command command) {
+            if (!buffer.offer(command)) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            final List<Command> batch = new ArrayList<>(properties.batchSize());
+            while (running) {
+                if (buffer.drainTo(batch, properties.batchSize()) == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                commit(index, batch);
+                batch.clear();
+            }
+
+            buffer.drainTo(batch, Integer.MAX_VALUE);
+            for (Command command : batch) {
+                switch (command) {
+                    case Transfer transfer -> transfer.result().completeExceptionally(
+                            new ResourceConflictException("Transfer engine is stopped, please retry")
+                    );
+                    // The debit is committed and the credit waits in the ledger for the snapshotter
+                    case Credit credit -> credit.result().complete(null);
+                }
+            }
+        }
+    }
+}
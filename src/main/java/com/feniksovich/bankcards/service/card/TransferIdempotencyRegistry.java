@@ -0,0 +1,177 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.TransferIdempotencyKey;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import com.feniksovich.bankcards.repository.TransferIdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Реестр ключей идемпотентности переводов. Недавние ключи хранятся в ограниченном
+ * LRU-кэше в памяти, поэтому повтор запроса обычно распознается без обращения к БД;
+ * источником истины остается таблица с уникальным индексом по пользователю и ключу.
+ * <p>
+ * Ключ занимается в той же транзакции, что и перевод, поэтому сохраняются
+ * только успешные переводы: отклоненный перевод можно повторить с тем же ключом.
+ */
+@Slf4j
+@Component
+public class TransferIdempotencyRegistry {
+
+    private static final int MAX_PURGE_BATCHES_PER_RUN = 100;
+
+    private final TransferIdempotencyKeyRepository repository;
+    private final TransactionOperations transactionOperations;
+    private final CardProperties.IdempotencyProperties properties;
+    private final Map<CacheKey, CompletedTransfer> cache;
+
+    @Autowired
+    public TransferIdempotencyRegistry(
+            TransferIdempotencyKeyRepository repository,
+            TransactionOperations transactionOperations,
+            CardProperties cardProperties
+    ) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+        this.properties = cardProperties.idempotency();
+        final int cacheSize = properties.cacheSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CompletedTransfer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Находит завершенный перевод по ключу идемпотентности: сначала в кэше, затем в БД.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param request        параметры перевода
+     * @return идентификатор ранее выполненного перевода
+     * @throws ResourceConflictException если ключ уже использован для другого перевода
+     */
+    public Optional<UUID> findCompleted(UUID userId, String idempotencyKey, TransactionRequest request) {
+        final CacheKey cacheKey = new CacheKey(userId, idempotencyKey);
+        final Instant now = Instant.now();
+
+        CompletedTransfer completed = cache.get(cacheKey);
+        if (completed == null || completed.expiresAt().isBefore(now)) {
+            completed = repository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .filter(key -> !key.getExpiresAt().isBefore(now))
+                    .map(CompletedTransfer::of)
+                    .orElse(null);
+            if (completed == null) {
+                cache.remove(cacheKey);
+                return Optional.empty();
+            }
+            cache.put(cacheKey, completed);
+        }
+
+        if (!completed.requestHash().equals(hash(request))) {
+            throw new ResourceConflictException("Idempotency key was already used for a different transaction");
+        }
+        return Optional.of(completed.transferId());
+    }
+
+    /**
+     * Занимает ключ идемпотентности для перевода. Должен вызываться в транзакции перевода.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param request        параметры перевода
+     * @param transferId     идентификатор перевода
+     * @return true, если ключ занят этим запросом; false, если его уже занял другой перевод
+     */
+    public boolean claim(UUID userId, String idempotencyKey, TransactionRequest request, UUID transferId) {
+        final Instant now = Instant.now();
+        return repository.claim(
+                userId, idempotencyKey, hash(request), transferId, now, now.plus(properties.ttl())
+        ) == 1;
+    }
+
+    /**
+     * Запоминает в кэше ключ завершенного перевода. Вызывается после фиксации транзакции.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param request        параметры перевода
+     * @param transferId     идентификатор перевода
+     */
+    public void remember(UUID userId, String idempotencyKey, TransactionRequest request, UUID transferId) {
+        cache.put(
+                new CacheKey(userId, idempotencyKey),
+                new CompletedTransfer(hash(request), transferId, Instant.now().plus(properties.ttl()))
+        );
+    }
+
+    /**
+     * Удаляет истекшие ключи пакетами в отдельных транзакциях,
+     * но не более {@value #MAX_PURGE_BATCHES_PER_RUN} пакетов за запуск.
+     */
+    @Scheduled(fixedDelayString = "${cards.idempotency.purge-interval}")
+    public void purgeExpired() {
+        final Instant now = Instant.now();
+        int purged = 0;
+        for (int batch = 0; batch < MAX_PURGE_BATCHES_PER_RUN; batch++) {
+            final Integer deleted = transactionOperations.execute(
+                    _ -> repository.deleteExpired(now, properties.purgeBatchSize())
+            );
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+        synchronized (cache) {
+            cache.values().removeIf(completed -> completed.expiresAt().isBefore(now));
+        }
+        if (purged > 0) {
+            log.debug("Purged {} expired transfer idempotency keys", purged);
+        }
+    }
+
+    /**
+     * Вычисляет отпечаток параметров перевода, не зависящий от масштаба суммы.
+     *
+     * @param request параметры перевода
+     * @return SHA-256 в шестнадцатеричном виде
+     */
+    private static String hash(TransactionRequest request) {
+        final String canonical = String.join("|",
+                request.getFromPanLast4(),
+                request.getToPanLast4(),
+                request.getAmount().stripTrailingZeros().toPlainString()
+        );
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private record CacheKey(UUID userId, String idempotencyKey) {}
+
+    private record CompletedTransfer(String requestHash, UUID transferId, Instant expiresAt) {
+        static CompletedTransfer of(TransferIdempotencyKey key) {
+            return new CompletedTransfer(key.getRequestHash(), key.getTransferId(), key.getExpiresAt());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.feniksovich.bankcards.service.card;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.entity.TransferOrder;
+import com.feniksovich.bankcards.repository.TransferOrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Выполняет принятые асинхронные переводы. Переводы распределяются по очередям
+ * по карте-источнику, и каждую очередь разбирает свой обработчик в виртуальном потоке,
+ * поэтому списания с одной карты выполняются в порядке приема, а потоки Tomcat
+ * и соединения с БД не удерживаются на время ожидания.
+ * <p>
+ * Очереди хранятся только в памяти: переводы, не поместившиеся в очередь или
+ * потерянные при перезапуске, остаются в БД в состоянии ожидания и ставятся
+ * в очередь повторно при периодическом восстановлении.
+ */
+@Slf4j
+@Component
+public class TransferOrderDispatcher {
+
+    private final CardService cardService;
+    private final TransferOrderRepository orderRepository;
+    private final CardProperties.AsyncProperties properties;
+    private final List<BlockingQueue<UUID>> partitions;
+    private final List<Thread> workers = new ArrayList<>();
+
+    @Autowired
+    public TransferOrderDispatcher(
+            CardService cardService,
+            TransferOrderRepository orderRepository,
+            CardProperties cardProperties
+    ) {
+        this.cardService = cardService;
+        this.orderRepository = orderRepository;
+        this.properties = cardProperties.async();
+        this.partitions = new ArrayList<>(properties.partitions());
+        for (int i = 0; i < properties.partitions(); i++) {
+            partitions.add(new ArrayBlockingQueue<>(properties.queueCapacity()));
+        }
+    }
+
+    /**
+     * Запускает обработчики очередей после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!workers.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < partitions.size(); i++) {
+            final BlockingQueue<UUID> queue = partitions.get(i);
+            workers.add(Thread.ofVirtual().name("transfer-worker-" + i).start(() -> work(queue)));
+        }
+    }
+
+    /**
+     * Останавливает обработчики очередей. Переводы, оставшиеся в очередях,
+     * выполняются после следующего запуска при восстановлении.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    /**
+     * Ставит принятый перевод в очередь после фиксации транзакции, в которой он сохранен.
+     *
+     * @param event событие приема перевода
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubmitted(TransferSubmittedEvent event) {
+        enqueue(event.transferId(), event.userId(), event.fromPanLast4());
+    }
+
+    /**
+     * Повторно ставит в очереди переводы, ожидающие выполнения дольше интервала восстановления.
+     * Перевод, который еще находится в очереди, может попасть в нее дважды: повторная
+     * обработка уже выполненного перевода ничего не изменяет.
+     */
+    @Scheduled(fixedDelayString = "${cards.async.recovery-interval}")
+    public void recoverPending() {
+        final Instant before = Instant.now().minus(properties.recoveryInterval());
+        final List<TransferOrder> orders = orderRepository.findPendingCreatedBefore(
+                before, Limit.of(properties.recoveryBatchSize())
+        );
+        orders.forEach(order -> enqueue(order.getId(), order.getUserId(), order.getFromPanLast4()));
+        if (!orders.isEmpty()) {
+            log.debug("Re-enqueued {} pending transfers", orders.size());
+        }
+    }
+
+    private void enqueue(UUID transferId, UUID userId, String fromPanLast4) {
+        final int partition = Math.floorMod(Objects.hash(userId, fromPanLast4), partitions.size());
+        if (!partitions.get(partition).offer(transferId)) {
+            log.debug("Transfer queue {} is full, transfer {} is left for recovery", partition, transferId);
+        }
+    }
+
+    private void work(BlockingQueue<UUID> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            final UUID transferId;
+            try {
+                transferId = queue.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            try {
+                cardService.processTransaction(transferId);
+            } catch (RuntimeException ex) {
+                // Transient failures such as lock timeouts leave the transfer pending for recovery
+                log.warn("Transfer {} is left pending: {}", transferId, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.feniksovich.bankcards.service.card;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный кольцевой буфер без блокировок для многих производителей и одного потребителя.
+ * Каждая ячейка хранит номер последовательности: производитель занимает позицию
+ * CAS по общему счетчику и публикует элемент, сдвигая номер ячейки; потребитель
+ * забирает только опубликованные элементы и освобождает ячейку для следующего круга.
+ *
+ * @param <E> тип элементов
+ */
+final class TransferRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * @param capacity минимальная емкость буфера (округляется до степени двойки)
+     */
+    TransferRingBuffer(int capacity) {
+        final int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет элемент в буфер. Может вызываться из любого потока.
+     *
+     * @param element элемент
+     * @return false, если буфер заполнен
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Забирает опубликованные элементы в порядке добавления. Вызывается только потоком-потребителем.
+     *
+     * @param sink        список, в который добавляются элементы
+     * @param maxElements максимальное число забираемых элементов
+     * @return число забранных элементов
+     */
+    int drainTo(List<E> sink, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            final int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            sink.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+}
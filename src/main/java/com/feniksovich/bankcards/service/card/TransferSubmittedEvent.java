@@ -0,0 +1,12 @@
+package com.feniksovich.bankcards.service.card;
+
+import java.util.UUID;
+
+/**
+ * Событие приема заявки на асинхронный перевод.
+ *
+ * @param transferId   идентификатор заявки
+ * @param userId       идентификатор владельца карт
+ * @param fromPanLast4 последние 4 цифры PAN карты-источника
+ */
+public record TransferSubmittedEvent(UUID transferId, UUID userId, String fromPanLast4) {}
@@ -0,0 +1,10 @@
+package com.feniksovich.bankcards.service.user;
+
+import java.util.UUID;
+
+/**
+ * Событие изменения или удаления пользователя.
+ *
+ * @param userId идентификатор пользователя
+ */
+public record UserChangedEvent(UUID userId) {}
@@ -6,9 +6,11 @@ import com.feniksovich.bankcards.dto.user.UserUpdateRequest;
 import com.feniksovich.bankcards.entity.User;
 import com.feniksovich.bankcards.exception.ResourceConflictException;
 import com.feniksovich.bankcards.exception.ResourceNotFoundException;
+import com.feniksovich.bankcards.mapper.UserMapper;
 import com.feniksovich.bankcards.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import com.feniksovich.bankcards.security.UserRevocationRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,55 +25,59 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserRevocationRegistry revocationRegistry;
 
     private static final Supplier<ResourceNotFoundException> NOT_FOUND_EXCEPTION =
             () -> new ResourceNotFoundException("User not found");
 
     @Autowired
-    public UserServiceImpl(UserRepository repository, PasswordEncoder passwordEncoder, ModelMapper modelMapper) {
+    public UserServiceImpl(
+            UserRepository repository,
+            PasswordEncoder passwordEncoder,
+            UserMapper userMapper,
+            ApplicationEventPublisher eventPublisher,
+            UserRevocationRegistry revocationRegistry
+    ) {
         this.repository = repository;
         this.passwordEncoder = passwordEncoder;
-        this.modelMapper = modelMapper;
+        this.userMapper = userMapper;
+        this.eventPublisher = eventPublisher;
+        this.revocationRegistry = revocationRegistry;
     }
 
     /** {@inheritDoc} */
-    @Transactional
     public UserData register(SignUpRequest request) {
         if (repository.existsByPhoneNumber(request.getPhoneNumber())) {
             throw new ResourceConflictException("User with specified phone number already exists");
         }
 
-        // Hash the password before saving
+        // Hashed outside of a transaction, so no connection is held while waiting for a hashing thread
         request.setPassword(passwordEncoder.encode(request.getPassword()));
-        final User user = modelMapper.map(request, User.class);
-        return modelMapper.map(repository.save(user), UserData.class);
+        final User user = userMapper.toUser(request);
+        return userMapper.toUserData(repository.save(user));
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public UserData getById(UUID id) {
-        return repository.findById(id)
-                .map(user -> modelMapper.map(user, UserData.class))
-                .orElseThrow(NOT_FOUND_EXCEPTION);
+        return repository.findDataById(id).orElseThrow(NOT_FOUND_EXCEPTION);
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public UserData getByPhoneNumber(String phoneNumber) {
-        return repository.findByPhoneNumber(phoneNumber)
-                .map(user -> modelMapper.map(user, UserData.class))
-                .orElseThrow(NOT_FOUND_EXCEPTION);
+        return repository.findDataByPhoneNumber(phoneNumber).orElseThrow(NOT_FOUND_EXCEPTION);
     }
 
     /** {@inheritDoc} */
     @Override
     @Transactional(readOnly = true)
     public Page<UserData> getAll(Pageable pageable) {
-        return repository.findAll(pageable)
-                .map(user -> modelMapper.map(user, UserData.class));
+        return repository.findAllData(pageable);
     }
 
     /** {@inheritDoc} */
@@ -79,8 +85,9 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void updateById(UUID id, UserUpdateRequest request) {
         final User user = repository.findById(id).orElseThrow(NOT_FOUND_EXCEPTION);
-        modelMapper.map(request, user);
+        userMapper.updateUser(request, user);
         repository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 
     /** {@inheritDoc} */
@@ -88,5 +95,8 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void deleteById(UUID id) {
         repository.deleteById(id);
+        // Access tokens of the deleted user stay valid until they expire unless revoked
+        revocationRegistry.revoke(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 }
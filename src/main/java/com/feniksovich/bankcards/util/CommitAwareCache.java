@@ -0,0 +1,150 @@
+package com.feniksovich.bankcards.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный LRU-кэш в памяти, значения которого хранятся не дольше заданного времени
+ * и удаляются владельцем кэша после фиксации транзакций, изменивших их источник,
+ * вызовом {@link #invalidate(Object)}.
+ * <p>
+ * На время загрузки значения в кэш помещается метка загрузки: значение сохраняется,
+ * только если метку не удалило изменение, зафиксированное во время загрузки.
+ * Значение null тоже запоминается, но обращение к нему считается промахом: оно означает,
+ * что значение не кэшируется и читается из источника. Значения разделяются между
+ * вызывающими и не должны изменяться.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class CommitAwareCache<K, V> {
+
+    private final Duration ttl;
+    private final Map<K, Entry<V>> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param maxSize       максимальное число значений, хранимых в памяти
+     * @param ttl           время хранения значения
+     * @param meterRegistry реестр метрик
+     * @param getsMetric    имя счетчика обращений с тегом {@code result}: {@code hit} или {@code miss}
+     */
+    public CommitAwareCache(int maxSize, Duration ttl, MeterRegistry meterRegistry, String getsMetric) {
+        this.ttl = ttl;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.hits = meterRegistry.counter(getsMetric, "result", "hit");
+        this.misses = meterRegistry.counter(getsMetric, "result", "miss");
+    }
+
+    /**
+     * Возвращает значение из кэша или загружает и запоминает его.
+     *
+     * @param key    ключ
+     * @param loader загрузка значения
+     * @return значение
+     */
+    public V get(K key, Supplier<V> loader) {
+        final Entry<V> cached = entries.get(key);
+        if (cached != null && cached.isFresh(System.nanoTime())) {
+            if (cached.value() == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return cached.value();
+        }
+        misses.increment();
+
+        final Entry<V> loading = Entry.loading();
+        entries.put(key, loading);
+        try {
+            final V value = loader.get();
+            entries.replace(key, loading, Entry.loaded(value, System.nanoTime() + ttl.toNanos()));
+            return value;
+        } finally {
+            entries.remove(key, loading);
+        }
+    }
+
+    /**
+     * Удаляет значение, а также метку загрузки, если значение загружается.
+     *
+     * @param key ключ
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Возвращает число значений и меток загрузки в кэше.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Возвращает долю обращений, обслуженных из кэша.
+     */
+    public double hitRatio() {
+        final double total = hits.count() + misses.count();
+        return total > 0 ? hits.count() / total : 0;
+    }
+
+    /**
+     * Возвращает долю обращений, потребовавших загрузки из источника.
+     */
+    public double missRatio() {
+        final double total = hits.count() + misses.count();
+        return total > 0 ? misses.count() / total : 0;
+    }
+
+    /**
+     * Запись кэша. Сравнивается по ссылке, поэтому метку загрузки заменяет
+     * только та загрузка, которая ее поставила.
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+        private final boolean loaded;
+
+        /**
+         * @param value     значение или null, если значение не кэшируется
+         * @param expiresAt момент истечения по {@link System#nanoTime()}
+         * @param loaded    false для метки загрузки
+         */
+        private Entry(V value, long expiresAt, boolean loaded) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.loaded = loaded;
+        }
+
+        static <V> Entry<V> loading() {
+            return new Entry<>(null, 0, false);
+        }
+
+        static <V> Entry<V> loaded(V value, long expiresAt) {
+            return new Entry<>(value, expiresAt, true);
+        }
+
+        V value() {
+            return value;
+        }
+
+        boolean isFresh(long now) {
+            return loaded && now - expiresAt < 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.feniksovich.bankcards.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Утилиты для непрозрачных курсоров постраничной выборки по ключу (keyset pagination).
+ * Курсор хранит значения ключа сортировки последней записи страницы в Base64URL.
+ */
+public class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
+
+    /**
+     * Кодирует значения ключа сортировки в курсор.
+     *
+     * @param parts значения ключа сортировки, не содержащие разделителя
+     * @return курсор
+     */
+    public static String encode(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(SEPARATOR, parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор и разбирает значения ключа сортировки.
+     *
+     * @param cursor курсор
+     * @param parts  ожидаемое число значений
+     * @param parser разбор значений
+     * @return разобранный ключ
+     * @throws ResponseStatusException 400, если курсор поврежден
+     */
+    public static <T> T decode(String cursor, int parts, Function<String[], T> parser) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] values = SEPARATOR_PATTERN.split(decoded, -1);
+            if (values.length != parts) {
+                throw new IllegalArgumentException("Unexpected cursor parts count");
+            }
+            return parser.apply(values);
+        } catch (RuntimeException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.feniksovich.bankcards.util;
+
+/**
+ * Утилиты хеширования для структур данных в памяти.
+ */
+public final class HashUtil {
+
+    private HashUtil() {
+    }
+
+    /**
+     * Перемешивает биты 64-битного значения финализатором MurmurHash3, чтобы каждый бит
+     * результата зависел от всех битов аргумента. Применяется к идентификаторам перед
+     * выбором ячеек: у идентификаторов, отличных от случайных UUID, биты распределены неравномерно.
+     *
+     * @param value исходное значение
+     * @return перемешанное значение
+     */
+    public static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset feniksovich:005-add-cards-version-column
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'cards'
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = 'public' AND table_name = 'cards' AND column_name = 'version'
+ALTER TABLE cards ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+--rollback ALTER TABLE cards DROP COLUMN IF EXISTS version;
@@ -0,0 +1,32 @@
+--liquibase formatted sql
+
+--changeset feniksovich:006-create-card-ledger-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'card_ledger'
+CREATE TABLE card_ledger (
+    id          BIGSERIAL     PRIMARY KEY,
+    card_id     UUID          NOT NULL,
+    amount      DECIMAL(19,2) NOT NULL,
+    direction   VARCHAR(6)    NOT NULL,
+    created_at  TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    transfer_id UUID          NOT NULL,
+    applied     BOOLEAN       NOT NULL DEFAULT TRUE,
+    CONSTRAINT fk_card_ledger_card      FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE,
+    CONSTRAINT chk_card_ledger_amount   CHECK (amount > 0),
+    CONSTRAINT chk_card_ledger_direction CHECK (direction IN ('DEBIT', 'CREDIT'))
+);
+--rollback DROP TABLE IF EXISTS card_ledger;
+
+--changeset feniksovich:006a-create-card-ledger-idx-card-created
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'card_ledger'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_card_ledger_card_created') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_card_ledger_card_created ON card_ledger(card_id, created_at, id);
+--rollback DROP INDEX IF EXISTS idx_card_ledger_card_created;
+
+--changeset feniksovich:006b-create-card-ledger-idx-pending
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'card_ledger'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_card_ledger_pending') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_card_ledger_pending ON card_ledger(card_id) WHERE NOT applied;
+--rollback DROP INDEX IF EXISTS idx_card_ledger_pending;
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+--changeset feniksovich:007-create-transfer-idempotency-keys-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'transfer_idempotency_keys'
+CREATE TABLE transfer_idempotency_keys (
+    id              BIGSERIAL    PRIMARY KEY,
+    user_id         UUID         NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    transfer_id     UUID         NOT NULL,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at      TIMESTAMP    NOT NULL,
+    CONSTRAINT fk_transfer_idempotency_keys_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_transfer_idempotency_keys_user_key UNIQUE (user_id, idempotency_key)
+);
+--rollback DROP TABLE IF EXISTS transfer_idempotency_keys;
+
+--changeset feniksovich:007a-create-transfer-idempotency-keys-idx-expires
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'transfer_idempotency_keys'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_transfer_idempotency_keys_expires') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_transfer_idempotency_keys_expires ON transfer_idempotency_keys(expires_at);
+--rollback DROP INDEX IF EXISTS idx_transfer_idempotency_keys_expires;
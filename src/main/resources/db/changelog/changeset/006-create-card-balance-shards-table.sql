@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset feniksovich:008-add-cards-balance-shards-column
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'cards'
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = 'public' AND table_name = 'cards' AND column_name = 'balance_shards'
+ALTER TABLE cards ADD COLUMN balance_shards INT NOT NULL DEFAULT 0;
+ALTER TABLE cards ADD CONSTRAINT chk_cards_balance_shards CHECK (balance_shards >= 0);
+--rollback ALTER TABLE cards DROP COLUMN IF EXISTS balance_shards;
+
+--changeset feniksovich:008a-create-card-balance-shards-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'card_balance_shards'
+CREATE TABLE card_balance_shards (
+    card_id UUID          NOT NULL,
+    shard   INT           NOT NULL,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0,
+    CONSTRAINT pk_card_balance_shards      PRIMARY KEY (card_id, shard),
+    CONSTRAINT fk_card_balance_shards_card FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+--rollback DROP TABLE IF EXISTS card_balance_shards;
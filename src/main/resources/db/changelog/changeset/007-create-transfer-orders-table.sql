@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+--changeset feniksovich:009-create-transfer-orders-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'transfer_orders'
+CREATE TABLE transfer_orders (
+    id             UUID          PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id        UUID          NOT NULL,
+    from_pan_last4 VARCHAR(4)    NOT NULL,
+    to_pan_last4   VARCHAR(4)    NOT NULL,
+    amount         DECIMAL(19,2) NOT NULL,
+    status         VARCHAR(9)    NOT NULL,
+    message        VARCHAR(255),
+    created_at     TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at   TIMESTAMP,
+    CONSTRAINT fk_transfer_orders_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT chk_transfer_orders_amount CHECK (amount > 0),
+    CONSTRAINT chk_transfer_orders_status CHECK (status IN ('PENDING', 'COMPLETED', 'REJECTED'))
+);
+--rollback DROP TABLE IF EXISTS transfer_orders;
+
+--changeset feniksovich:009a-create-transfer-orders-idx-pending
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'transfer_orders'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_transfer_orders_pending') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_transfer_orders_pending ON transfer_orders(created_at) WHERE status = 'PENDING';
+--rollback DROP INDEX IF EXISTS idx_transfer_orders_pending;
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset feniksovich:010-create-card-ledger-idx-pending-transfer
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'card_ledger'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_card_ledger_pending_transfer') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_card_ledger_pending_transfer ON card_ledger(transfer_id) WHERE NOT applied;
+--rollback DROP INDEX IF EXISTS idx_card_ledger_pending_transfer;
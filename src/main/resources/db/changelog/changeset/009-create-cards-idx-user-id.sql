@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset feniksovich:011-create-cards-idx-user-id
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'cards'
+--precondition-sql-check expectedResult:0 SELECT CASE WHEN to_regclass('public.idx_cards_user_id') IS NULL THEN 0 ELSE 1 END
+CREATE INDEX idx_cards_user_id ON cards(user_id, id);
+--rollback DROP INDEX IF EXISTS idx_cards_user_id;
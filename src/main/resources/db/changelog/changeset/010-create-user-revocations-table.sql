@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset feniksovich:012-create-user-revocations-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'user_revocations'
+CREATE TABLE user_revocations (
+    user_id    UUID      PRIMARY KEY,
+    revoked_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idx_user_revocations_revoked_at ON user_revocations(revoked_at);
+--rollback DROP TABLE IF EXISTS user_revocations;
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+--changeset feniksovich:013-partition-refresh-tokens-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'refresh_tokens'
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('public.refresh_tokens')
+ALTER TABLE refresh_tokens RENAME TO refresh_tokens_unpartitioned;
+CREATE TABLE refresh_tokens (
+    id         UUID      NOT NULL DEFAULT gen_random_uuid(),
+    user_id    UUID      NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_refresh_tokens      PRIMARY KEY (id, expires_at),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE (expires_at);
+CREATE TABLE refresh_tokens_default PARTITION OF refresh_tokens DEFAULT;
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens(user_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens(expires_at);
+INSERT INTO refresh_tokens (id, user_id, expires_at)
+SELECT id, user_id, expires_at FROM refresh_tokens_unpartitioned WHERE expires_at > LOCALTIMESTAMP;
+DROP TABLE refresh_tokens_unpartitioned;
+--rollback CREATE TABLE refresh_tokens_unpartitioned (id UUID PRIMARY KEY DEFAULT gen_random_uuid(), user_id UUID NOT NULL, expires_at TIMESTAMP NOT NULL, CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE);
+--rollback INSERT INTO refresh_tokens_unpartitioned (id, user_id, expires_at) SELECT id, user_id, expires_at FROM refresh_tokens;
+--rollback DROP TABLE refresh_tokens;
+--rollback ALTER TABLE refresh_tokens_unpartitioned RENAME TO refresh_tokens;
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset feniksovich:014-create-user-token-generations-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'user_token_generations'
+CREATE TABLE user_token_generations (
+    user_id    UUID      PRIMARY KEY,
+    generation INT       NOT NULL,
+    changed_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_user_token_generations_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+CREATE INDEX idx_user_token_generations_changed_at ON user_token_generations(changed_at);
+--rollback DROP TABLE IF EXISTS user_token_generations;
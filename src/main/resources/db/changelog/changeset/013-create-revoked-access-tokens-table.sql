@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset feniksovich:015-create-revoked-access-tokens-table
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'revoked_access_tokens'
+CREATE TABLE revoked_access_tokens (
+    id         UUID      PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idx_revoked_access_tokens_expires_at ON revoked_access_tokens(expires_at);
+--rollback DROP TABLE IF EXISTS revoked_access_tokens;
@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset feniksovich:016-drop-card-ledger-card-fk
+--preconditions onFail:MARK_RAN onError:HALT
+--precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.table_constraints WHERE table_schema = 'public' AND table_name = 'card_ledger' AND constraint_name = 'fk_card_ledger_card'
+ALTER TABLE card_ledger DROP CONSTRAINT fk_card_ledger_card;
+--rollback ALTER TABLE card_ledger ADD CONSTRAINT fk_card_ledger_card FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE;
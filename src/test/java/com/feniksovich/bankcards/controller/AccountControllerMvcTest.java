@@ -1,10 +1,18 @@
 package com.feniksovich.bankcards.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransactionItemResult;
 import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.dto.card.TransactionResult;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
 import com.feniksovich.bankcards.dto.user.UserData;
 import com.feniksovich.bankcards.dto.user.UserUpdateRequest;
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import com.feniksovich.bankcards.entity.TransferStatus;
+import com.feniksovich.bankcards.exception.ResourceNotFoundException;
 import com.feniksovich.bankcards.security.UserPrincipal;
 import com.feniksovich.bankcards.service.card.CardService;
 import com.feniksovich.bankcards.service.user.UserService;
@@ -26,14 +34,17 @@ import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -137,6 +148,26 @@ class AccountControllerMvcTest {
         verify(cardService).getAllOwned(eq(userId), any());
     }
 
+    @Test
+    @WithMockUserPrincipal
+    void scrollCards_200() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID cardId = UUID.randomUUID();
+        final CardData cardData = CardData.builder()
+                .id(cardId)
+                .panLast4("1234")
+                .balance(new BigDecimal("100.00"))
+                .build();
+
+        when(cardService.scrollAllOwned(userId, "cursor-1", 20))
+                .thenReturn(new CursorPage<>(List.of(cardData), "cursor-2"));
+
+        mockMvc.perform(get("/account/cards/scroll").param("cursor", "cursor-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(cardId.toString()))
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"));
+    }
+
     @Test
     @WithMockUserPrincipal
     void getCard_200() throws Exception {
@@ -166,6 +197,33 @@ class AccountControllerMvcTest {
         verify(cardService).getOwnById(userId, cardId);
     }
 
+    @Test
+    @WithMockUserPrincipal
+    void getCardTransactions_200() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID cardId = UUID.randomUUID();
+        final UUID transferId = UUID.randomUUID();
+        final CardTransactionData transaction = CardTransactionData.builder()
+                .transferId(transferId)
+                .direction(LedgerDirection.DEBIT)
+                .amount(new BigDecimal("10.00"))
+                .build();
+
+        when(cardService.getOwnTransactions(
+                userId, cardId, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31), "cursor-1", 2
+        )).thenReturn(new CursorPage<>(List.of(transaction), "cursor-2"));
+
+        mockMvc.perform(get("/account/cards/{id}/transactions", cardId)
+                        .param("from", "2030-01-01")
+                        .param("to", "2030-01-31")
+                        .param("cursor", "cursor-1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$.content[0].direction").value("DEBIT"))
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"));
+    }
+
     @Test
     @WithMockUserPrincipal
     void blockCard_204() throws Exception {
@@ -195,6 +253,113 @@ class AccountControllerMvcTest {
 
         verify(cardService).performTransaction(eq(userId), any(TransactionRequest.class));
     }
-}
 
+    @Test
+    @WithMockUserPrincipal
+    void performTransaction_WithReplayedIdempotencyKey_204() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1234")
+                .toPanLast4("5678")
+                .amount(new BigDecimal("10.00"))
+                .build();
+
+        when(cardService.performTransaction(eq(userId), any(TransactionRequest.class), eq("key-1")))
+                .thenReturn(new TransactionResult(UUID.randomUUID(), true));
+
+        mockMvc.perform(post("/account/transaction")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        verify(cardService).performTransaction(eq(userId), any(TransactionRequest.class), eq("key-1"));
+    }
+
+    @Test
+    @WithMockUserPrincipal
+    void performTransactions_200() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID transferId = UUID.randomUUID();
+        final List<TransactionRequest> requests = List.of(
+                new TransactionRequest("1234", "5678", new BigDecimal("10.00")),
+                new TransactionRequest("5678", "1234", new BigDecimal("1000.00"))
+        );
+
+        when(cardService.performTransactions(eq(userId), anyList())).thenReturn(List.of(
+                new TransactionItemResult(TransactionItemResult.Status.APPLIED, transferId, null),
+                new TransactionItemResult(TransactionItemResult.Status.REJECTED, null, "The card is not enough funds")
+        ));
+
+        mockMvc.perform(post("/account/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[0].transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].message").value("The card is not enough funds"));
+
+        verify(cardService).performTransactions(eq(userId), anyList());
+    }
+
+    @Test
+    @WithMockUserPrincipal
+    void submitTransaction_202() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID transferId = UUID.randomUUID();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1234")
+                .toPanLast4("5678")
+                .amount(new BigDecimal("10.00"))
+                .build();
+
+        when(cardService.submitTransaction(eq(userId), any(TransactionRequest.class))).thenReturn(
+                TransferOrderData.builder().id(transferId).status(TransferStatus.PENDING).build()
+        );
 
+        mockMvc.perform(post("/account/transactions/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/account/transactions/" + transferId))
+                .andExpect(jsonPath("$.id").value(transferId.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(cardService).submitTransaction(eq(userId), any(TransactionRequest.class));
+    }
+
+    @Test
+    @WithMockUserPrincipal
+    void getTransaction_200() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID transferId = UUID.randomUUID();
+
+        when(cardService.getTransaction(userId, transferId)).thenReturn(TransferOrderData.builder()
+                .id(transferId)
+                .status(TransferStatus.REJECTED)
+                .message("The card is not enough funds")
+                .build());
+
+        mockMvc.perform(get("/account/transactions/{id}", transferId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("REJECTED"))
+                .andExpect(jsonPath("$.message").value("The card is not enough funds"));
+
+        verify(cardService).getTransaction(userId, transferId);
+    }
+
+    @Test
+    @WithMockUserPrincipal
+    void getTransaction_404() throws Exception {
+        final UUID userId = CONTEXT_PRINCIPAL.get().getId();
+        final UUID transferId = UUID.randomUUID();
+
+        when(cardService.getTransaction(userId, transferId))
+                .thenThrow(new ResourceNotFoundException("Transaction not found"));
+
+        mockMvc.perform(get("/account/transactions/{id}", transferId))
+                .andExpect(status().isNotFound());
+    }
+}
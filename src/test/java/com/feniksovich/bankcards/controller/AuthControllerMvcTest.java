@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.feniksovich.bankcards.dto.auth.AuthResponse;
 import com.feniksovich.bankcards.dto.auth.SignInRequest;
 import com.feniksovich.bankcards.dto.auth.SignUpRequest;
+import com.feniksovich.bankcards.exception.ServiceOverloadedException;
 import com.feniksovich.bankcards.service.auth.AuthService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,7 @@ import java.time.Instant;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -106,6 +108,24 @@ class AuthControllerMvcTest {
         verify(authService).signIn(any());
     }
 
+    @Test
+    void signIn_503_whenPasswordHashingOverloaded() throws Exception {
+        final SignInRequest req = SignInRequest.builder()
+                .phoneNumber("9990000000")
+                .password("very_secure_pass")
+                .build();
+
+        when(authService.signIn(any()))
+                .thenThrow(new ServiceOverloadedException("Too many sign-in attempts", Duration.ofMillis(1500)));
+
+        mockMvc.perform(post("/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("Too many sign-in attempts"));
+    }
+
     @Test
     void signOut_200_withDefaultParameter() throws Exception {
         doNothing().when(authService).signOut(any(Boolean.class));
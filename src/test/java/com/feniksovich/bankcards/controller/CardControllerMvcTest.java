@@ -1,6 +1,7 @@
 package com.feniksovich.bankcards.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardCreateRequest;
 import com.feniksovich.bankcards.dto.card.CardData;
 import com.feniksovich.bankcards.service.card.CardService;
@@ -18,11 +19,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -106,6 +109,48 @@ class CardControllerMvcTest {
         verify(cardService).getAllOwned(eq(userId), any());
     }
 
+    @Test
+    void scrollAllCards_200() throws Exception {
+        final UUID cardId = UUID.randomUUID();
+        final CardData card = CardData.builder()
+                .id(cardId)
+                .panLast4("1234")
+                .balance(new BigDecimal("100.00"))
+                .build();
+
+        when(cardService.scrollAll("cursor-1", 50, true))
+                .thenReturn(new CursorPage<>(List.of(card), "cursor-2", 1_000_000L));
+
+        mockMvc.perform(get("/cards/scroll")
+                        .param("cursor", "cursor-1")
+                        .param("size", "50")
+                        .param("approximateTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(cardId.toString()))
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"))
+                .andExpect(jsonPath("$.approximateTotal").value(1_000_000));
+    }
+
+    @Test
+    void scrollAllCards_WhenPageSizeTooLarge_400() throws Exception {
+        mockMvc.perform(get("/cards/scroll").param("size", "101"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cardService);
+    }
+
+    @Test
+    void scrollCardsByUserId_200() throws Exception {
+        final UUID userId = UUID.randomUUID();
+
+        when(cardService.scrollAllOwned(userId, null, 20)).thenReturn(new CursorPage<>(List.of(), null));
+
+        mockMvc.perform(get("/cards/search/scroll").param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
     @Test
     void getCard_200() throws Exception {
         final UUID cardId = UUID.randomUUID();
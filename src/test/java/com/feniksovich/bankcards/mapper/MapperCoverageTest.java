@@ -0,0 +1,175 @@
+package com.feniksovich.bankcards.mapper;
+
+import com.feniksovich.bankcards.dto.auth.SignUpRequest;
+import com.feniksovich.bankcards.dto.user.UserUpdateRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.CardLedgerEntry;
+import com.feniksovich.bankcards.entity.TransferOrder;
+import com.feniksovich.bankcards.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards generated mappers against silently dropped fields: every source field is filled
+ * with a sample value, and every target field except the explicitly skipped ones must carry
+ * the value of the source field with the same name. Request fields must all reach the entity.
+ */
+class MapperCoverageTest {
+
+    private final CardMapper cardMapper = new CardMapperImpl();
+    private final UserMapper userMapper = new UserMapperImpl();
+
+    @Test
+    void toCardData_ShouldMapAllFields() throws Exception {
+        final Card card = filled(Card.class);
+        assertAllFieldsMapped(card, cardMapper.toCardData(card), Set.of());
+    }
+
+    @Test
+    void toCardTransactionData_ShouldMapAllFields() throws Exception {
+        final CardLedgerEntry entry = filled(CardLedgerEntry.class);
+        assertAllFieldsMapped(entry, cardMapper.toCardTransactionData(entry), Set.of());
+    }
+
+    @Test
+    void toTransferOrderData_ShouldMapAllFields() throws Exception {
+        final TransferOrder order = filled(TransferOrder.class);
+        assertAllFieldsMapped(order, cardMapper.toTransferOrderData(order), Set.of());
+    }
+
+    @Test
+    void toUserData_ShouldMapAllFields() throws Exception {
+        final User user = filled(User.class);
+        assertAllFieldsMapped(user, userMapper.toUserData(user), Set.of());
+    }
+
+    @Test
+    void toUser_ShouldMapAllRequestFields() throws Exception {
+        final SignUpRequest request = filled(SignUpRequest.class);
+        final User user = userMapper.toUser(request);
+        assertAllFieldsMapped(request, user, Set.of("id", "role", "createdAt", "updatedAt"));
+        assertNoSourceFieldDropped(request, user);
+    }
+
+    @Test
+    void updateUser_ShouldMapAllRequestFields() throws Exception {
+        final UserUpdateRequest request = filled(UserUpdateRequest.class);
+        final User user = new User();
+        userMapper.updateUser(request, user);
+        assertAllFieldsMapped(
+                request, user, Set.of("id", "phoneNumber", "password", "role", "createdAt", "updatedAt")
+        );
+        assertNoSourceFieldDropped(request, user);
+    }
+
+    @Test
+    void updateUser_WhenFieldIsNull_ShouldKeepCurrentValue() {
+        final User user = User.builder().firstName("Иван").lastName("Иванов").build();
+
+        userMapper.updateUser(UserUpdateRequest.builder().lastName("Петров").build(), user);
+
+        assertThat(user.getFirstName()).isEqualTo("Иван");
+        assertThat(user.getLastName()).isEqualTo("Петров");
+    }
+
+    @Test
+    void toZonedDateTime_ShouldUseSystemZone() {
+        final Instant instant = Instant.parse("2030-01-01T12:00:00Z");
+
+        assertThat(DateTimeMappings.toZonedDateTime(instant)).isEqualTo(instant.atZone(ZoneId.systemDefault()));
+        assertThat(DateTimeMappings.toZonedDateTime(null)).isNull();
+    }
+
+    private static void assertAllFieldsMapped(Object source, Object target, Set<String> skipped) throws Exception {
+        for (Field targetField : instanceFields(target.getClass())) {
+            if (skipped.contains(targetField.getName())) {
+                continue;
+            }
+            final Field sourceField = findField(source.getClass(), targetField.getName());
+            assertThat(sourceField)
+                    .as("%s.%s has no source field", target.getClass().getSimpleName(), targetField.getName())
+                    .isNotNull();
+
+            final Object expected = sourceField.get(source);
+            Object actual = targetField.get(target);
+            if (actual instanceof ZonedDateTime zonedDateTime && expected instanceof Instant) {
+                actual = zonedDateTime.toInstant();
+            }
+            assertThat(actual)
+                    .as("%s.%s is not mapped", target.getClass().getSimpleName(), targetField.getName())
+                    .isEqualTo(expected);
+        }
+    }
+
+    private static void assertNoSourceFieldDropped(Object source, Object target) {
+        for (Field sourceField : instanceFields(source.getClass())) {
+            assertThat(findField(target.getClass(), sourceField.getName()))
+                    .as("%s.%s is dropped", source.getClass().getSimpleName(), sourceField.getName())
+                    .isNotNull();
+        }
+    }
+
+    private static <T> T filled(Class<T> type) throws Exception {
+        final T instance = type.getDeclaredConstructor().newInstance();
+        for (Field field : instanceFields(type)) {
+            final Object value = sampleValue(field.getType());
+            if (value != null) {
+                field.set(instance, value);
+            }
+        }
+        return instance;
+    }
+
+    private static Object sampleValue(Class<?> type) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (type == UUID.class) {
+            return UUID.randomUUID();
+        } else if (type == String.class) {
+            return "value-" + random.nextInt(1000);
+        } else if (type == BigDecimal.class) {
+            return BigDecimal.valueOf(random.nextLong(1, 1_000_000), 2);
+        } else if (type == LocalDate.class) {
+            return LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365));
+        } else if (type == Instant.class) {
+            return Instant.now().minusSeconds(random.nextInt(86_400)).truncatedTo(ChronoUnit.MICROS);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return true;
+        } else if (type == int.class || type == Integer.class) {
+            return random.nextInt(1, 100);
+        } else if (type == long.class || type == Long.class) {
+            return random.nextLong(1, 100);
+        } else if (type.isEnum()) {
+            final Object[] constants = type.getEnumConstants();
+            return constants[constants.length - 1];
+        }
+        return null;
+    }
+
+    private static Field[] instanceFields(Class<?> type) {
+        return Arrays.stream(type.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .peek(field -> field.setAccessible(true))
+                .toArray(Field[]::new);
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        return Arrays.stream(instanceFields(type))
+                .filter(field -> field.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+}
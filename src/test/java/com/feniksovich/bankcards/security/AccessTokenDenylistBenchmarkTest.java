@@ -0,0 +1,78 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.RevokedAccessToken;
+import com.feniksovich.bankcards.repository.RevokedAccessTokenRepository;
+import com.feniksovich.bankcards.testutil.Microbenchmark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Micro-benchmark of the access-token denylist check performed on every authenticated request,
+ * for tokens that are not revoked (the common case) and for revoked ones.
+ * <p>
+ * Opt-in: run with {@code mvn test -Dstress=true -Dtest=AccessTokenDenylistBenchmarkTest}
+ * and compare the logged time and allocated bytes per check.
+ */
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class AccessTokenDenylistBenchmarkTest {
+
+    private static final int REVOKED = 10_000;
+    private static final int TOKENS = 1024;
+    private static final int WARMUP_ITERATIONS = 1_000_000;
+    private static final int ITERATIONS = 10_000_000;
+
+    @Test
+    void isRevoked_WhenTokenNotRevoked_ShouldNotAllocate() {
+        final Instant expiresAt = Instant.now().plusSeconds(600);
+        final List<RevokedAccessToken> revoked = new ArrayList<>();
+        for (int i = 0; i < REVOKED; i++) {
+            revoked.add(new RevokedAccessToken(UUID.randomUUID(), expiresAt));
+        }
+        final RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(revoked);
+        final AccessTokenDenylist denylist =
+                new AccessTokenDenylist(repository, TransactionOperations.withoutTransaction());
+        denylist.rebuildFilter();
+
+        final JwtToken[] live = new JwtToken[TOKENS];
+        final JwtToken[] denied = new JwtToken[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            live[i] = token(UUID.randomUUID(), expiresAt);
+            denied[i] = token(revoked.get(i).getId(), expiresAt);
+        }
+
+        final long negativeAllocated = run("Token not revoked", denylist, live, false);
+        run("Token revoked", denylist, denied, true);
+
+        assertThat(negativeAllocated).isZero();
+    }
+
+    private static long run(String name, AccessTokenDenylist denylist, JwtToken[] tokens, boolean expected) {
+        final int[] matched = new int[1];
+        final Microbenchmark.Result<Boolean> result = Microbenchmark.run(name, WARMUP_ITERATIONS, ITERATIONS, i -> {
+            final boolean revoked = denylist.isRevoked(tokens[i & (TOKENS - 1)]);
+            if (revoked) {
+                matched[0]++;
+            }
+            return revoked;
+        });
+        assertThat(matched[0]).isEqualTo(expected ? WARMUP_ITERATIONS + ITERATIONS : 0);
+        return result.bytesPerOp();
+    }
+
+    private static JwtToken token(UUID id, Instant expiresAt) {
+        return JwtToken.accessToken(id, UUID.randomUUID(), Instant.now(), expiresAt, Set.of(), 0);
+    }
+}
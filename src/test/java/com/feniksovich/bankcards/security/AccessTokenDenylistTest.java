@@ -0,0 +1,106 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.RevokedAccessToken;
+import com.feniksovich.bankcards.repository.RevokedAccessTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessTokenDenylistTest {
+
+    @Mock
+    private RevokedAccessTokenRepository repository;
+
+    private AccessTokenDenylist denylist;
+    private Instant expiresAt;
+
+    @BeforeEach
+    void setup() {
+        denylist = new AccessTokenDenylist(repository, TransactionOperations.withoutTransaction());
+        expiresAt = Instant.now().plusSeconds(600);
+    }
+
+    @Test
+    void isRevoked_WhenTokenRevoked_ShouldReturnTrue() {
+        final UUID revokedId = UUID.randomUUID();
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of(new RevokedAccessToken(revokedId, expiresAt)));
+        denylist.start();
+
+        assertThat(denylist.isRevoked(token(revokedId))).isTrue();
+        assertThat(denylist.isRevoked(token(UUID.randomUUID()))).isFalse();
+
+        // Checks are served from memory
+        verify(repository, times(1)).findAllByExpiresAtAfter(any());
+    }
+
+    @Test
+    void revoke_ShouldRejectTokenBeforeNextRebuild() {
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of());
+        denylist.rebuildFilter();
+        final UUID id = UUID.randomUUID();
+
+        denylist.revoke(id, expiresAt);
+
+        assertThat(denylist.isRevoked(token(id))).isTrue();
+        verify(repository).revoke(id, expiresAt);
+        verify(repository, times(1)).findAllByExpiresAtAfter(any());
+    }
+
+    @Test
+    void revoke_WhenTokenAlreadyExpired_ShouldNotPersist() {
+        denylist.revoke(UUID.randomUUID(), Instant.now().minusSeconds(1));
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void rebuildFilter_ShouldPurgeExpiredTokensAndForgetThem() {
+        final UUID id = UUID.randomUUID();
+        when(repository.findAllByExpiresAtAfter(any()))
+                .thenReturn(List.of(new RevokedAccessToken(id, expiresAt)))
+                .thenReturn(List.of());
+        denylist.rebuildFilter();
+
+        denylist.rebuildFilter();
+
+        assertThat(denylist.isRevoked(token(id))).isFalse();
+        verify(repository, times(2)).deleteExpiredBefore(argThat(before -> !before.isAfter(Instant.now())));
+    }
+
+    @Test
+    void mightContain_ShouldNeverMissAddedIdsAndRarelyMatchOthers() {
+        final UuidBloomFilter filter = new UuidBloomFilter(10_000);
+        final List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final UUID id = UUID.randomUUID();
+            filter.add(id);
+            added.add(id);
+        }
+
+        assertThat(added).allMatch(filter::mightContain);
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    private JwtToken token(UUID id) {
+        return JwtToken.accessToken(id, UUID.randomUUID(), Instant.now(), expiresAt, Set.of(), 0);
+    }
+}
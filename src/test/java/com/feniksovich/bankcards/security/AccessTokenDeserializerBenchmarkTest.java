@@ -0,0 +1,53 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.security.serialization.AccessTokenDeserializer;
+import com.feniksovich.bankcards.security.serialization.AccessTokenSerializer;
+import com.feniksovich.bankcards.testutil.Microbenchmark;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Micro-benchmark of access-token deserialization with and without the verified token cache,
+ * i.e. the CPU spent per authenticated request on parsing and HMAC verification.
+ * <p>
+ * Opt-in: run with {@code mvn test -Dstress=true -Dtest=AccessTokenDeserializerBenchmarkTest}
+ * and compare the logged time and allocated bytes per deserialization.
+ */
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class AccessTokenDeserializerBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 100_000;
+    private static final int ITERATIONS = 500_000;
+
+    @Test
+    void deserialize_WhenCacheEnabled_ShouldProduceSameToken() throws Exception {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final MACVerifier verifier = new MACVerifier(secret);
+        final Instant now = Instant.now();
+        final String token = new AccessTokenSerializer(new MACSigner(secret), JWSAlgorithm.HS256).serialize(
+                JwtToken.accessToken(UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(600), Role.USER.getAuthorities(), 0)
+        );
+
+        final AccessTokenDeserializer verifying = new AccessTokenDeserializer(verifier, 0);
+        final AccessTokenDeserializer caching = new AccessTokenDeserializer(verifier, 10_000);
+        final JwtToken uncached = Microbenchmark.run(
+                "Verify on every request", WARMUP_ITERATIONS, ITERATIONS, _ -> verifying.deserialize(token)
+        ).last();
+        final JwtToken cached = Microbenchmark.run(
+                "Verified token cache", WARMUP_ITERATIONS, ITERATIONS, _ -> caching.deserialize(token)
+        ).last();
+
+        assertThat(cached).isEqualTo(uncached);
+    }
+}
@@ -0,0 +1,104 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.security.serialization.AccessTokenDeserializer;
+import com.feniksovich.bankcards.security.serialization.AccessTokenSerializer;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.util.Base64URL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessTokenDeserializerTest {
+
+    private AccessTokenSerializer serializer;
+    private MACVerifier verifier;
+
+    @BeforeEach
+    void setup() throws Exception {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        serializer = new AccessTokenSerializer(new MACSigner(secret), JWSAlgorithm.HS256);
+        verifier = new MACVerifier(secret);
+    }
+
+    @Test
+    void deserialize_WhenTokenCached_ShouldReturnSameVerifiedToken() {
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(verifier, 10);
+        final JwtToken token = accessToken(Instant.now().plusSeconds(60));
+        final String serialized = serializer.serialize(token);
+
+        final JwtToken first = deserializer.deserialize(serialized);
+        final JwtToken second = deserializer.deserialize(serialized);
+
+        assertThat(first).isEqualTo(token);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void deserialize_WhenSignatureTampered_ShouldRejectEvenIfOriginalCached() {
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(verifier, 10);
+        final String serialized = serializer.serialize(accessToken(Instant.now().plusSeconds(60)));
+        deserializer.deserialize(serialized);
+
+        // The last character carries padding bits, so a character inside the signature is replaced
+        final int index = serialized.length() - 10;
+        final char replacement = serialized.charAt(index) == 'A' ? 'B' : 'A';
+        final String tampered = serialized.substring(0, index) + replacement + serialized.substring(index + 1);
+
+        assertThat(deserializer.deserialize(tampered)).isNull();
+    }
+
+    @Test
+    void deserialize_WhenHeaderNamesForeignAlgorithm_ShouldRejectInsteadOfFailing() {
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(verifier, 10);
+        final String serialized = serializer.serialize(accessToken(Instant.now().plusSeconds(60)));
+        final String[] parts = serialized.split("\\.");
+        final String header = Base64URL.encode("{\"alg\":\"ES256\"}").toString();
+
+        assertThat(deserializer.deserialize(header + "." + parts[1] + "." + parts[2])).isNull();
+    }
+
+    @Test
+    void deserialize_WhenTokenExpired_ShouldNotCacheIt() {
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(verifier, 10);
+        final String serialized = serializer.serialize(accessToken(Instant.now().minusSeconds(1)));
+
+        final JwtToken first = deserializer.deserialize(serialized);
+        final JwtToken second = deserializer.deserialize(serialized);
+
+        assertThat(first.isExpired()).isTrue();
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+    }
+
+    @Test
+    void deserialize_WhenTokensCarrySameAuthorities_ShouldShareAuthoritySet() {
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(verifier, 0);
+
+        final JwtToken first = deserializer.deserialize(serializer.serialize(accessToken(Instant.now().plusSeconds(60))));
+        final JwtToken second = deserializer.deserialize(serializer.serialize(accessToken(Instant.now().plusSeconds(60))));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.authorities()).isSameAs(first.authorities());
+    }
+
+    private static JwtToken accessToken(Instant expiresAt) {
+        // Serialized claims carry second precision
+        final Instant createdAt = Instant.ofEpochSecond(Instant.now().getEpochSecond());
+        return JwtToken.accessToken(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                createdAt,
+                Instant.ofEpochSecond(expiresAt.getEpochSecond()),
+                Role.USER.getAuthorities(),
+                0
+        );
+    }
+}
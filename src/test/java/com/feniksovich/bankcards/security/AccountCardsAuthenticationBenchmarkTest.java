@@ -0,0 +1,145 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.entity.User;
+import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.security.factory.AccessTokenFactory;
+import com.feniksovich.bankcards.security.serialization.AccessTokenSerializer;
+import com.feniksovich.bankcards.service.card.CardService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Latency benchmark of {@code GET /account/cards} through the full security filter chain
+ * with the user loaded on every request, loaded through the principal cache, and built
+ * from access-token claims in the stateless mode. Each mode runs in its own context.
+ * <p>
+ * Requires the datasource from {@code application.yml} to be reachable, so it is
+ * opt-in: run with {@code mvn test -Dstress=true -Dtest=AccountCardsAuthenticationBenchmarkTest}
+ * and compare the logged median and p99 latency of the modes.
+ */
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class AccountCardsAuthenticationBenchmarkTest {
+
+    private static final int CARDS = 5;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int REQUESTS = 10_000;
+
+    @Nested
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    @TestPropertySource(properties = {
+            "security.authentication.mode=lookup",
+            "security.principal-cache.enabled=false"
+    })
+    class LookupWithoutCache extends Benchmark {}
+
+    @Nested
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    @TestPropertySource(properties = {
+            "security.authentication.mode=lookup",
+            "security.principal-cache.enabled=true"
+    })
+    class LookupWithCache extends Benchmark {}
+
+    @Nested
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    @TestPropertySource(properties = "security.authentication.mode=stateless")
+    class Stateless extends Benchmark {}
+
+    @Slf4j
+    abstract static class Benchmark {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private CardService cardService;
+
+        @Autowired
+        private AccessTokenFactory accessTokenFactory;
+
+        @Autowired
+        private AccessTokenSerializer accessTokenSerializer;
+
+        @Value("${security.authentication.mode}")
+        private String mode;
+
+        @Value("${security.principal-cache.enabled}")
+        private boolean principalCache;
+
+        private User user;
+        private String authorization;
+
+        @BeforeEach
+        void setup() {
+            user = userRepository.save(User.builder()
+                    .phoneNumber(String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)))
+                    .password("benchmark")
+                    .firstName("Authentication")
+                    .lastName("Benchmark")
+                    .role(Role.USER)
+                    .build());
+            for (int i = 0; i < CARDS; i++) {
+                cardService.create(user.getId());
+            }
+            authorization = "Bearer " + accessTokenSerializer.serialize(
+                    accessTokenFactory.generate(UserPrincipal.of(user), 0)
+            );
+        }
+
+        @AfterEach
+        void cleanup() {
+            // Cards are removed by ON DELETE CASCADE foreign key
+            userRepository.deleteById(user.getId());
+        }
+
+        @Test
+        void getCards() throws Exception {
+            for (int i = 0; i < WARMUP_REQUESTS; i++) {
+                request();
+            }
+
+            final long[] latencies = new long[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                final long startedAt = System.nanoTime();
+                request();
+                latencies[i] = System.nanoTime() - startedAt;
+            }
+
+            Arrays.sort(latencies);
+            log.info("GET /account/cards, mode {}, principal cache {}: median {} us, p99 {} us",
+                    mode, principalCache,
+                    TimeUnit.NANOSECONDS.toMicros(latencies[REQUESTS / 2]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[REQUESTS * 99 / 100]));
+        }
+
+        private void request() throws Exception {
+            mockMvc.perform(get("/account/cards").header(HttpHeaders.AUTHORIZATION, authorization))
+                    .andExpect(status().isOk());
+        }
+    }
+}
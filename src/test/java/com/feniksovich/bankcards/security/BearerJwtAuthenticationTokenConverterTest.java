@@ -0,0 +1,96 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.security.serialization.AccessTokenDeserializer;
+import com.feniksovich.bankcards.security.serialization.RefreshTokenDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BearerJwtAuthenticationTokenConverterTest {
+
+    private static final String JWS = "header.payload.signature";
+    private static final String JWE = "header.key.iv.ciphertext.tag";
+
+    @Mock
+    private AccessTokenDeserializer accessTokenDeserializer;
+
+    @Mock
+    private RefreshTokenDeserializer refreshTokenDeserializer;
+
+    private BearerJwtAuthenticationTokenConverter converter;
+    private JwtToken jwtToken;
+
+    @BeforeEach
+    void setup() {
+        converter = new BearerJwtAuthenticationTokenConverter(accessTokenDeserializer, refreshTokenDeserializer);
+        final Instant now = Instant.now();
+        jwtToken = JwtToken.accessToken(
+                UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(60), Role.USER.getAuthorities(), 0
+        );
+    }
+
+    @Test
+    void convert_WhenTokenHasThreeSegments_ShouldUseOnlyAccessTokenDeserializer() {
+        when(accessTokenDeserializer.deserialize(JWS)).thenReturn(jwtToken);
+
+        final Authentication authentication = converter.convert(request("Bearer " + JWS));
+
+        assertThat(authentication.getCredentials()).isEqualTo(jwtToken);
+        verifyNoInteractions(refreshTokenDeserializer);
+    }
+
+    @Test
+    void convert_WhenTokenHasFiveSegments_ShouldUseOnlyRefreshTokenDeserializer() {
+        when(refreshTokenDeserializer.deserialize(JWE)).thenReturn(jwtToken);
+
+        final Authentication authentication = converter.convert(request("Bearer " + JWE));
+
+        assertThat(authentication.getCredentials()).isEqualTo(jwtToken);
+        verifyNoInteractions(accessTokenDeserializer);
+    }
+
+    @Test
+    void convert_WhenAccessTokenInvalid_ShouldNotTryRefreshTokenDeserializer() {
+        when(accessTokenDeserializer.deserialize(JWS)).thenReturn(null);
+
+        assertThatThrownBy(() -> converter.convert(request("Bearer " + JWS)))
+                .isInstanceOf(BadCredentialsException.class);
+        verifyNoInteractions(refreshTokenDeserializer);
+    }
+
+    @Test
+    void convert_WhenTokenShapeUnknown_ShouldRejectWithoutDeserializing() {
+        assertThatThrownBy(() -> converter.convert(request("Bearer garbage")))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> converter.convert(request("Bearer a.b.c.d.e.f")))
+                .isInstanceOf(BadCredentialsException.class);
+        verifyNoInteractions(accessTokenDeserializer, refreshTokenDeserializer);
+    }
+
+    @Test
+    void convert_WhenNoBearerToken_ShouldReturnNull() {
+        assertThat(converter.convert(new MockHttpServletRequest())).isNull();
+        assertThat(converter.convert(request("Basic credentials"))).isNull();
+    }
+
+    private static MockHttpServletRequest request(String authorization) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        return request;
+    }
+}
@@ -0,0 +1,85 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.exception.ServiceOverloadedException;
+import com.feniksovich.bankcards.security.crypto.BoundedPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void matches_ShouldDelegateHashingToPool() {
+        try (BoundedPasswordEncoder encoder =
+                     new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, Duration.ofSeconds(1))) {
+            final String hash = encoder.encode("password");
+
+            assertThat(encoder.matches("password", hash)).isTrue();
+            assertThat(encoder.matches("wrong", hash)).isFalse();
+        }
+    }
+
+    @Test
+    void encode_WhenQueueFull_ShouldRejectWithServiceOverloadedException() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BlockingPasswordEncoder delegate = new BlockingPasswordEncoder(started, release);
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, Duration.ofSeconds(3));
+             ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            final CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"), callers);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            final CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> encoder.encode("b"), callers);
+            final CompletableFuture<String> third = CompletableFuture.supplyAsync(() -> encoder.encode("c"), callers);
+
+            // The only thread is busy: one call waits in the queue, the other one is rejected at once
+            CompletableFuture.anyOf(second, third).handle((_, _) -> null).get(5, TimeUnit.SECONDS);
+            release.countDown();
+
+            final List<Throwable> failures = Stream.of(second, third)
+                    .map(future -> future.handle((_, ex) -> ex).join())
+                    .filter(Objects::nonNull)
+                    .toList();
+            assertThat(failures).singleElement()
+                    .extracting(Throwable::getCause)
+                    .isInstanceOfSatisfying(ServiceOverloadedException.class,
+                            ex -> assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(3)));
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        }
+    }
+
+    /**
+     * Encoder whose hashing blocks until released.
+     */
+    private record BlockingPasswordEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
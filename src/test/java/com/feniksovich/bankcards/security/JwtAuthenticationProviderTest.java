@@ -0,0 +1,204 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.service.auth.UserRefreshTokenService;
+import com.feniksovich.bankcards.service.user.UserChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.feniksovich.bankcards.testutil.SecurityPropertiesBuilder.securityProperties;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationProviderTest {
+
+    @Mock
+    private ExtendedUserDetailsService userDetailsService;
+
+    @Mock
+    private UserRefreshTokenService refreshTokenService;
+
+    @Mock
+    private UserRevocationRegistry revocationRegistry;
+
+    @Mock
+    private TokenGenerationRegistry generationRegistry;
+
+    @Mock
+    private AccessTokenDenylist accessTokenDenylist;
+
+    private UUID userId;
+    private UserPrincipal principal;
+    private JwtToken accessToken;
+
+    @BeforeEach
+    void setup() {
+        userId = UUID.randomUUID();
+        principal = new UserPrincipal(userId, "1234567890", "password", Role.USER.getAuthorities());
+        final Instant now = Instant.now();
+        accessToken = JwtToken.accessToken(
+                UUID.randomUUID(), userId, now, now.plusSeconds(60), Role.USER.getAuthorities(), 0
+        );
+    }
+
+    @Test
+    void authenticate_WhenPrincipalCached_ShouldLoadUserOnce() {
+        final JwtAuthenticationProvider provider = provider(true);
+        when(userDetailsService.loadUserById(userId)).thenReturn(principal);
+
+        final Authentication first = provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+        final Authentication second = provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+
+        assertThat(first.getPrincipal()).isSameAs(principal);
+        assertThat(second.getPrincipal()).isSameAs(principal);
+        assertThat(second.isAuthenticated()).isTrue();
+        verify(userDetailsService, times(1)).loadUserById(userId);
+    }
+
+    @Test
+    void authenticate_WhenUserChanged_ShouldLoadUserAgain() {
+        final PrincipalCache cache = principalCache(true);
+        final JwtAuthenticationProvider provider = new JwtAuthenticationProvider(
+                userDetailsService, refreshTokenService, cache, revocationRegistry, generationRegistry,
+                accessTokenDenylist, SecurityProperties.AuthenticationMode.LOOKUP
+        );
+        when(userDetailsService.loadUserById(userId)).thenReturn(principal);
+
+        provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+        cache.onUserChanged(new UserChangedEvent(userId));
+        provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+
+        verify(userDetailsService, times(2)).loadUserById(userId);
+    }
+
+    @Test
+    void authenticate_WhenUserDeleted_ShouldNotCacheMissingUser() {
+        final JwtAuthenticationProvider provider = provider(true);
+        when(userDetailsService.loadUserById(userId)).thenThrow(new UsernameNotFoundException("User not found"));
+
+        assertThatThrownBy(() -> provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken)))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken)))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        verify(userDetailsService, times(2)).loadUserById(userId);
+    }
+
+    @Test
+    void authenticate_WhenCacheDisabled_ShouldLoadUserOnEveryRequest() {
+        final JwtAuthenticationProvider provider = provider(false);
+        when(userDetailsService.loadUserById(userId)).thenReturn(principal);
+
+        provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+        provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+
+        verify(userDetailsService, times(2)).loadUserById(userId);
+    }
+
+    @Test
+    void authenticate_WhenStatelessMode_ShouldBuildPrincipalFromClaimsWithoutLookup() {
+        final JwtAuthenticationProvider provider = statelessProvider();
+
+        final Authentication authentication =
+                provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken));
+
+        final UserPrincipal claimsPrincipal = (UserPrincipal) authentication.getPrincipal();
+        assertThat(claimsPrincipal.getId()).isEqualTo(userId);
+        assertThat(claimsPrincipal.getAuthorities()).isEqualTo(accessToken.authorities());
+        assertThat(authentication.isAuthenticated()).isTrue();
+        verify(revocationRegistry).isRevoked(accessToken);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void authenticate_WhenStatelessModeAndUserRevoked_ShouldThrowBadCredentialsException() {
+        final JwtAuthenticationProvider provider = statelessProvider();
+        when(revocationRegistry.isRevoked(accessToken)).thenReturn(true);
+
+        assertThatThrownBy(() -> provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken)))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("revoked");
+
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void authenticate_WhenStatelessModeAndRefreshToken_ShouldLoadUser() {
+        final JwtAuthenticationProvider provider = statelessProvider();
+        final JwtToken refreshToken = JwtToken.refreshToken(
+                UUID.randomUUID(), userId, accessToken.createdAt(), accessToken.expiresAt(), Set.of(), 0
+        );
+        when(refreshTokenService.isTracked(refreshToken)).thenReturn(true);
+        when(userDetailsService.loadUserById(userId)).thenReturn(principal);
+
+        final Authentication authentication =
+                provider.authenticate(JwtAuthenticationToken.unauthenticated(refreshToken));
+
+        assertThat(authentication.getPrincipal()).isSameAs(principal);
+        verifyNoInteractions(revocationRegistry);
+    }
+
+    @Test
+    void authenticate_WhenTokenGenerationOutdated_ShouldThrowBadCredentialsException() {
+        final JwtAuthenticationProvider provider = provider(true);
+        when(generationRegistry.isOutdated(accessToken)).thenReturn(true);
+
+        assertThatThrownBy(() -> provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken)))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("revoked");
+
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void authenticate_WhenAccessTokenDenylisted_ShouldThrowBadCredentialsException() {
+        final JwtAuthenticationProvider provider = statelessProvider();
+        when(accessTokenDenylist.isRevoked(accessToken)).thenReturn(true);
+
+        assertThatThrownBy(() -> provider.authenticate(JwtAuthenticationToken.unauthenticated(accessToken)))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("revoked");
+
+        verifyNoInteractions(userDetailsService, revocationRegistry);
+    }
+
+    private JwtAuthenticationProvider provider(boolean cacheEnabled) {
+        return new JwtAuthenticationProvider(
+                userDetailsService, refreshTokenService, principalCache(cacheEnabled), revocationRegistry,
+                generationRegistry, accessTokenDenylist,
+                SecurityProperties.AuthenticationMode.LOOKUP
+        );
+    }
+
+    private JwtAuthenticationProvider statelessProvider() {
+        return new JwtAuthenticationProvider(
+                userDetailsService, refreshTokenService, principalCache(false), revocationRegistry,
+                generationRegistry, accessTokenDenylist,
+                SecurityProperties.AuthenticationMode.STATELESS
+        );
+    }
+
+    private static PrincipalCache principalCache(boolean enabled) {
+        return new PrincipalCache(
+                securityProperties()
+                        .principalCache(new SecurityProperties.PrincipalCacheProperties(enabled, 100, Duration.ofMinutes(1)))
+                        .build(),
+                new SimpleMeterRegistry()
+        );
+    }
+}
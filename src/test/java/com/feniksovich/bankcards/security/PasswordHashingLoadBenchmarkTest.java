@@ -0,0 +1,141 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.exception.ServiceOverloadedException;
+import com.feniksovich.bankcards.security.crypto.BoundedPasswordEncoder;
+import com.feniksovich.bankcards.security.serialization.AccessTokenDeserializer;
+import com.feniksovich.bankcards.security.serialization.AccessTokenSerializer;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of authenticated GET latency during a sign-in storm, with BCrypt running
+ * on request threads and on the bounded hashing pool.
+ * <p>
+ * Request threads are modelled by a pool of the size of the Tomcat default. Sign-ins
+ * arrive far faster than the processor can hash them; GETs arrive at a fixed rate and
+ * cost one access-token verification. The latency of a GET includes the time spent
+ * waiting for a free request thread.
+ * <p>
+ * Opt-in: run with {@code mvn test -Dstress=true -Dtest=PasswordHashingLoadBenchmarkTest}
+ * and compare the logged GET latency percentiles of the phases.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class PasswordHashingLoadBenchmarkTest {
+
+    private static final int BCRYPT_ROUNDS = 12;
+    private static final int REQUEST_THREADS = 200;
+    private static final Duration PHASE = Duration.ofSeconds(10);
+    private static final Duration SIGN_IN_INTERVAL = Duration.ofMillis(5);
+    private static final Duration GET_INTERVAL = Duration.ofMillis(10);
+
+    @Test
+    void get_WhenSignInStorm_ShouldKeepLatencyWithBoundedHashing() throws Exception {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final AccessTokenDeserializer deserializer = new AccessTokenDeserializer(new MACVerifier(secret), 0);
+        final Instant now = Instant.now();
+        final String token = new AccessTokenSerializer(new MACSigner(secret), JWSAlgorithm.HS256).serialize(
+                JwtToken.accessToken(UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(600), Role.USER.getAuthorities(), 0)
+        );
+        final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(BCRYPT_ROUNDS);
+        final String hash = bcrypt.encode("password");
+
+        final long[] idle = run("No sign-ins", null, hash, deserializer, token);
+        final long[] bounded;
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                bcrypt, Runtime.getRuntime().availableProcessors(), 32, Duration.ofSeconds(1)
+        )) {
+            bounded = run("Sign-in storm, bounded hashing pool", encoder, hash, deserializer, token);
+        }
+        // Last: hashes left on request threads keep the processor busy after the phase ends
+        final long[] unbounded = run("Sign-in storm, hashing on request threads", bcrypt, hash, deserializer, token);
+
+        assertThat(idle).isNotEmpty();
+        assertThat(percentile(bounded, 0.99)).isLessThan(percentile(unbounded, 0.99));
+    }
+
+    private static long[] run(
+            String name,
+            PasswordEncoder encoder,
+            String hash,
+            AccessTokenDeserializer deserializer,
+            String token
+    ) throws InterruptedException {
+        final ExecutorService requestThreads = new ThreadPoolExecutor(
+                REQUEST_THREADS, REQUEST_THREADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("request-", 0).daemon().factory()
+        );
+        final AtomicLong signedIn = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final List<Future<Long>> gets = new ArrayList<>();
+
+        final long endsAt = System.nanoTime() + PHASE.toNanos();
+        long nextSignIn = System.nanoTime();
+        long nextGet = System.nanoTime();
+        while (System.nanoTime() < endsAt) {
+            final long current = System.nanoTime();
+            if (encoder != null && current >= nextSignIn) {
+                requestThreads.submit(() -> {
+                    try {
+                        encoder.matches("password", hash);
+                        signedIn.incrementAndGet();
+                    } catch (ServiceOverloadedException ex) {
+                        rejected.incrementAndGet();
+                    }
+                });
+                nextSignIn += SIGN_IN_INTERVAL.toNanos();
+            }
+            if (current >= nextGet) {
+                final long submittedAt = current;
+                gets.add(requestThreads.submit(() -> {
+                    deserializer.deserialize(token);
+                    return System.nanoTime() - submittedAt;
+                }));
+                nextGet += GET_INTERVAL.toNanos();
+            }
+            Thread.sleep(1);
+        }
+        requestThreads.shutdownNow();
+
+        // GETs still waiting for a request thread when the phase ends are counted as timed out
+        final long[] latencies = gets.stream()
+                .filter(get -> get.state() == Future.State.SUCCESS)
+                .mapToLong(Future::resultNow)
+                .sorted()
+                .toArray();
+        log.info("{}: {} of {} GETs served, p50 {} ms, p99 {} ms; {} sign-ins served, {} rejected with 503",
+                name, latencies.length, gets.size(),
+                TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 0.5)),
+                TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 0.99)),
+                signedIn.get(), rejected.get());
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        // Not a single GET served: the latency is at least the whole phase
+        return sorted.length == 0 ? PHASE.toNanos() : sorted[(int) ((sorted.length - 1) * percentile)];
+    }
+}
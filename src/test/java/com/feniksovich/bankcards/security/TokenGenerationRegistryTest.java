@@ -0,0 +1,106 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.entity.UserTokenGeneration;
+import com.feniksovich.bankcards.repository.UserTokenGenerationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.feniksovich.bankcards.testutil.SecurityPropertiesBuilder.securityProperties;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenGenerationRegistryTest {
+
+    private static final Duration REFRESH_TOKEN_EXPIRATION = Duration.ofDays(90);
+
+    @Mock
+    private UserTokenGenerationRepository repository;
+
+    private TokenGenerationRegistry registry;
+    private UUID userId;
+
+    @BeforeEach
+    void setup() {
+        registry = new TokenGenerationRegistry(
+                repository,
+                TransactionOperations.withoutTransaction(),
+                securityProperties()
+                        .refreshToken(new SecurityProperties.TokenProperties(null, REFRESH_TOKEN_EXPIRATION))
+                        .build()
+        );
+        userId = UUID.randomUUID();
+    }
+
+    @Test
+    void isOutdated_WhenTokenOfPreviousGeneration_ShouldReturnTrue() {
+        when(repository.findAllByChangedAtAfter(any())).thenReturn(List.of(generation(userId, 2, Instant.now())));
+        registry.start();
+
+        assertThat(registry.isOutdated(token(userId, 1))).isTrue();
+        assertThat(registry.isOutdated(token(userId, 2))).isFalse();
+        assertThat(registry.isOutdated(token(UUID.randomUUID(), 0))).isFalse();
+
+        // Checks are served from memory
+        verify(repository, times(1)).findAllByChangedAtAfter(any());
+    }
+
+    @Test
+    void advance_ShouldRejectPreviousGenerationBeforeNextRefresh() {
+        when(repository.findAllByChangedAtAfter(any())).thenReturn(List.of());
+        registry.refreshGenerations();
+        when(repository.findById(userId)).thenReturn(Optional.of(generation(userId, 1, Instant.now())));
+
+        assertThat(registry.advance(userId)).isEqualTo(1);
+
+        assertThat(registry.isOutdated(token(userId, 0))).isTrue();
+        verify(repository).advance(eq(userId), any());
+        verify(repository, times(1)).findAllByChangedAtAfter(any());
+    }
+
+    @Test
+    void currentForIssue_ShouldReadGenerationFromDatabase() {
+        when(repository.findById(userId)).thenReturn(Optional.of(generation(userId, 3, Instant.now())));
+
+        assertThat(registry.currentForIssue(userId)).isEqualTo(3);
+        assertThat(registry.currentForIssue(UUID.randomUUID())).isZero();
+    }
+
+    @Test
+    void refreshGenerations_ShouldForgetGenerationsOlderThanRefreshTokenLifetime() {
+        final Instant longAgo = Instant.now().minus(REFRESH_TOKEN_EXPIRATION).minusSeconds(60);
+        when(repository.findById(userId)).thenReturn(Optional.of(generation(userId, 1, longAgo)));
+        when(repository.findAllByChangedAtAfter(any())).thenReturn(List.of());
+        registry.currentForIssue(userId);
+
+        registry.refreshGenerations();
+
+        // Every token of the previous generation has expired by now
+        assertThat(registry.isOutdated(token(userId, 0))).isFalse();
+    }
+
+    private static UserTokenGeneration generation(UUID userId, int generation, Instant changedAt) {
+        return UserTokenGeneration.builder()
+                .userId(userId)
+                .generation(generation)
+                .changedAt(changedAt)
+                .build();
+    }
+
+    private static JwtToken token(UUID userId, int generation) {
+        final Instant now = Instant.now();
+        return JwtToken.accessToken(UUID.randomUUID(), userId, now, now.plusSeconds(60), Set.of(), generation);
+    }
+}
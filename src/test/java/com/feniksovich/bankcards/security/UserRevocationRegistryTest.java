@@ -0,0 +1,109 @@
+package com.feniksovich.bankcards.security;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.entity.UserRevocation;
+import com.feniksovich.bankcards.repository.UserRevocationRepository;
+import com.feniksovich.bankcards.service.user.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.feniksovich.bankcards.testutil.SecurityPropertiesBuilder.securityProperties;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserRevocationRegistryTest {
+
+    private static final Duration ACCESS_TOKEN_EXPIRATION = Duration.ofMinutes(15);
+
+    @Mock
+    private UserRevocationRepository repository;
+
+    private UserRevocationRegistry registry;
+    private UUID userId;
+    private Instant revokedAt;
+
+    @BeforeEach
+    void setup() {
+        registry = registry(SecurityProperties.AuthenticationMode.STATELESS);
+        userId = UUID.randomUUID();
+        revokedAt = Instant.now().minusSeconds(60);
+    }
+
+    @Test
+    void isRevoked_WhenTokenIssuedBeforeRevocation_ShouldReturnTrue() {
+        when(repository.findAllByRevokedAtAfter(any())).thenReturn(List.of(new UserRevocation(userId, revokedAt)));
+        registry.start();
+
+        assertThat(registry.isRevoked(token(userId, revokedAt.minusSeconds(1)))).isTrue();
+        assertThat(registry.isRevoked(token(userId, revokedAt.plusSeconds(1)))).isFalse();
+        assertThat(registry.isRevoked(token(UUID.randomUUID(), revokedAt.minusSeconds(1)))).isFalse();
+
+        // Checks are served from memory
+        verify(repository, times(1)).findAllByRevokedAtAfter(any());
+    }
+
+    @Test
+    void refreshRevocations_ShouldPurgeRevocationsOlderThanAccessTokenLifetime() {
+        when(repository.findAllByRevokedAtAfter(any())).thenReturn(List.of());
+
+        registry.refreshRevocations();
+
+        verify(repository).deleteRevokedBefore(argThat(before ->
+                !before.isAfter(Instant.now().minus(ACCESS_TOKEN_EXPIRATION))));
+        verify(repository).findAllByRevokedAtAfter(any());
+    }
+
+    @Test
+    void onUserChanged_WhenUserRevokedOnThisNode_ShouldRejectTokensBeforeNextRefresh() {
+        when(repository.findAllByRevokedAtAfter(any())).thenReturn(List.of());
+        registry.refreshRevocations();
+        when(repository.findById(userId)).thenReturn(Optional.of(new UserRevocation(userId, revokedAt)));
+
+        registry.onUserChanged(new UserChangedEvent(userId));
+
+        assertThat(registry.isRevoked(token(userId, revokedAt.minusSeconds(1)))).isTrue();
+        verify(repository, times(1)).findAllByRevokedAtAfter(any());
+    }
+
+    @Test
+    void refreshRevocations_WhenLookupMode_ShouldNotQueryDatabase() {
+        registry = registry(SecurityProperties.AuthenticationMode.LOOKUP);
+
+        registry.start();
+        registry.refreshRevocations();
+        registry.onUserChanged(new UserChangedEvent(userId));
+
+        verifyNoInteractions(repository);
+    }
+
+    private UserRevocationRegistry registry(SecurityProperties.AuthenticationMode mode) {
+        return new UserRevocationRegistry(
+                repository,
+                TransactionOperations.withoutTransaction(),
+                securityProperties()
+                        .accessToken(new SecurityProperties.TokenProperties(null, ACCESS_TOKEN_EXPIRATION))
+                        .authentication(new SecurityProperties.AuthenticationProperties(
+                                mode, Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(5)
+                        ))
+                        .build()
+        );
+    }
+
+    private static JwtToken token(UUID userId, Instant createdAt) {
+        return JwtToken.accessToken(
+                UUID.randomUUID(), userId, createdAt, createdAt.plus(ACCESS_TOKEN_EXPIRATION), Set.of(), 0
+        );
+    }
+}
@@ -5,8 +5,10 @@ import com.feniksovich.bankcards.dto.auth.SignInRequest;
 import com.feniksovich.bankcards.dto.auth.SignUpRequest;
 import com.feniksovich.bankcards.dto.user.UserData;
 import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.security.AccessTokenDenylist;
 import com.feniksovich.bankcards.security.JwtAuthenticationToken;
 import com.feniksovich.bankcards.security.JwtToken;
+import com.feniksovich.bankcards.security.TokenGenerationRegistry;
 import com.feniksovich.bankcards.security.UserPrincipal;
 import com.feniksovich.bankcards.security.factory.AccessTokenFactory;
 import com.feniksovich.bankcards.security.factory.RefreshTokenFactory;
@@ -18,6 +20,8 @@ import com.feniksovich.bankcards.service.user.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -46,6 +50,12 @@ class AuthServiceTest {
     @Mock
     private UserRefreshTokenService userRefreshTokenService;
 
+    @Mock
+    private TokenGenerationRegistry tokenGenerationRegistry;
+
+    @Mock
+    private AccessTokenDenylist accessTokenDenylist;
+
     @Mock
     private AuthenticationManager authenticationManager;
 
@@ -100,7 +110,8 @@ class AuthServiceTest {
                 userId,
                 now,
                 accessExpiresAt,
-                USER_ROLE_AUTHORITIES
+                USER_ROLE_AUTHORITIES,
+                0
         );
 
         refreshToken = JwtToken.refreshToken(
@@ -108,7 +119,8 @@ class AuthServiceTest {
                 userId,
                 now,
                 refreshExpiresAt,
-                USER_ROLE_AUTHORITIES
+                USER_ROLE_AUTHORITIES,
+                0
         );
 
         jwtAuthenticationToken = JwtAuthenticationToken.authenticated(refreshToken, userPrincipal);
@@ -131,8 +143,10 @@ class AuthServiceTest {
                 .build();
 
         when(userService.register(request)).thenReturn(userData);
-        when(accessTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(accessToken);
-        when(refreshTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(refreshToken);
+        when(accessTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(accessToken);
+        when(refreshTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(refreshToken);
         when(accessTokenSerializer.serialize(accessToken)).thenReturn("serializedAccessToken");
         when(refreshTokenSerializer.serialize(refreshToken)).thenReturn("serializedRefreshToken");
 
@@ -140,8 +154,10 @@ class AuthServiceTest {
 
         assertThat(result).isEqualTo(expectedResponse);
         verify(userService).register(request);
-        verify(accessTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
-        verify(refreshTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
+        verify(accessTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
+        verify(refreshTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
         verify(accessTokenSerializer).serialize(accessToken);
         verify(refreshTokenSerializer).serialize(refreshToken);
         verify(userRefreshTokenService).track(refreshToken);
@@ -167,8 +183,10 @@ class AuthServiceTest {
 
         when(authenticationManager.authenticate(authToken)).thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(userPrincipal);
-        when(accessTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(accessToken);
-        when(refreshTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(refreshToken);
+        when(accessTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(accessToken);
+        when(refreshTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(refreshToken);
         when(accessTokenSerializer.serialize(accessToken)).thenReturn("serializedAccessToken");
         when(refreshTokenSerializer.serialize(refreshToken)).thenReturn("serializedRefreshToken");
 
@@ -176,32 +194,40 @@ class AuthServiceTest {
 
         assertThat(result).isEqualTo(expectedResponse);
         verify(authenticationManager).authenticate(authToken);
-        verify(accessTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
-        verify(refreshTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
+        verify(accessTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
+        verify(refreshTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
         verify(accessTokenSerializer).serialize(accessToken);
         verify(refreshTokenSerializer).serialize(refreshToken);
         verify(userRefreshTokenService).track(refreshToken);
     }
 
     @Test
-    void signOut_WhenGloballyTrue_ShouldInvalidateAllTokens() {
+    void signOut_WhenGloballyTrue_ShouldAdvanceTokenGenerationAndDeleteRefreshTokens() {
         SecurityContextHolder.setContext(securityContext);
         when(securityContext.getAuthentication()).thenReturn(jwtAuthenticationToken);
 
         authService.signOut(true);
 
-        verify(userRefreshTokenService).invalidateAll(userPrincipal.getId());
+        final InOrder inOrder = inOrder(tokenGenerationRegistry, userRefreshTokenService);
+        inOrder.verify(tokenGenerationRegistry).advance(userPrincipal.getId());
+        inOrder.verify(userRefreshTokenService).invalidateAll(userPrincipal.getId());
+        verifyNoInteractions(accessTokenDenylist);
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
 
     @Test
-    void signOut_WhenGloballyFalse_ShouldInvalidateCurrentToken() {
+    void signOut_WhenGloballyFalse_ShouldInvalidateCurrentTokensPair() {
         SecurityContextHolder.setContext(securityContext);
         when(securityContext.getAuthentication()).thenReturn(jwtAuthenticationToken);
 
+        when(accessTokenFactory.getExpiration()).thenReturn(ACCESS_TOKEN_EXPIRATION);
+
         authService.signOut(false);
 
         verify(userRefreshTokenService).invalidate(refreshToken);
+        verify(accessTokenDenylist).revoke(refreshToken.id(), refreshToken.createdAt().plus(ACCESS_TOKEN_EXPIRATION));
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
 
@@ -215,7 +241,8 @@ class AuthServiceTest {
                 userPrincipal.getId(),
                 Instant.now(),
                 Instant.now().plus(ACCESS_TOKEN_EXPIRATION),
-                USER_ROLE_AUTHORITIES
+                USER_ROLE_AUTHORITIES,
+                0
         );
 
         final JwtToken newRefreshToken = JwtToken.refreshToken(
@@ -223,7 +250,8 @@ class AuthServiceTest {
                 userPrincipal.getId(),
                 Instant.now(),
                 Instant.now().plus(REFRESH_TOKEN_EXPIRATION),
-                USER_ROLE_AUTHORITIES
+                USER_ROLE_AUTHORITIES,
+                0
         );
 
         final AuthResponse expectedResponse = AuthResponse.builder()
@@ -233,8 +261,9 @@ class AuthServiceTest {
                 .refreshTokenExpiresAt(newRefreshToken.expiresAt())
                 .build();
 
-        when(accessTokenFactory.generate(userPrincipal)).thenReturn(newAccessToken);
-        when(refreshTokenFactory.generate(userPrincipal)).thenReturn(newRefreshToken);
+        when(tokenGenerationRegistry.currentForIssue(userPrincipal.getId())).thenReturn(3);
+        when(accessTokenFactory.generate(any(UUID.class), eq(userPrincipal), eq(3))).thenReturn(newAccessToken);
+        when(refreshTokenFactory.generate(any(UUID.class), eq(userPrincipal), eq(3))).thenReturn(newRefreshToken);
         when(accessTokenSerializer.serialize(newAccessToken)).thenReturn("newSerializedAccessToken");
         when(refreshTokenSerializer.serialize(newRefreshToken)).thenReturn("newSerializedRefreshToken");
 
@@ -242,8 +271,9 @@ class AuthServiceTest {
 
         assertThat(result).isEqualTo(expectedResponse);
         verify(userRefreshTokenService).invalidate(refreshToken);
-        verify(accessTokenFactory).generate(userPrincipal);
-        verify(refreshTokenFactory).generate(userPrincipal);
+        final ArgumentCaptor<UUID> pairId = ArgumentCaptor.forClass(UUID.class);
+        verify(accessTokenFactory).generate(pairId.capture(), eq(userPrincipal), eq(3));
+        verify(refreshTokenFactory).generate(eq(pairId.getValue()), eq(userPrincipal), eq(3));
         verify(accessTokenSerializer).serialize(newAccessToken);
         verify(refreshTokenSerializer).serialize(newRefreshToken);
         verify(userRefreshTokenService).track(newRefreshToken);
@@ -266,8 +296,10 @@ class AuthServiceTest {
                 .build();
 
         when(userService.register(request)).thenReturn(userData);
-        when(accessTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(accessToken);
-        when(refreshTokenFactory.generate(argThat(p -> p.getId().equals(userData.getId())))).thenReturn(refreshToken);
+        when(accessTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(accessToken);
+        when(refreshTokenFactory.generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0)))
+                .thenReturn(refreshToken);
         when(accessTokenSerializer.serialize(accessToken)).thenReturn("serializedAccessToken");
         when(refreshTokenSerializer.serialize(refreshToken)).thenReturn("serializedRefreshToken");
 
@@ -275,8 +307,10 @@ class AuthServiceTest {
 
         assertThat(result).isEqualTo(expectedResponse);
         verify(userService).register(request);
-        verify(accessTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
-        verify(refreshTokenFactory).generate(argThat(p -> p.getId().equals(userData.getId())));
+        verify(accessTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
+        verify(refreshTokenFactory)
+                .generate(any(UUID.class), argThat(p -> p.getId().equals(userData.getId())), eq(0));
         verify(accessTokenSerializer).serialize(accessToken);
         verify(refreshTokenSerializer).serialize(refreshToken);
         verify(userRefreshTokenService).track(refreshToken);
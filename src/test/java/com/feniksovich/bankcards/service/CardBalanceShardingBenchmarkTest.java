@@ -0,0 +1,136 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.entity.User;
+import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.service.card.CardService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of credit throughput to a single hot card as the number of its balance shards grows.
+ * <p>
+ * Requires the datasource from {@code application.yml} to be reachable, so it is
+ * opt-in: run with {@code mvn test -Dstress=true -Dtest=CardBalanceShardingBenchmarkTest}
+ * and compare the logged transfers/s for each shards count.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class CardBalanceShardingBenchmarkTest {
+
+    private static final int SOURCE_CARDS = 32;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS = 5_000;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UUID userId;
+    private CardData hotCard;
+    private final List<String> sourcePanLast4s = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        final User user = userRepository.save(User.builder()
+                .phoneNumber(String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)))
+                .password("benchmark")
+                .firstName("Sharding")
+                .lastName("Benchmark")
+                .role(Role.USER)
+                .build());
+        userId = user.getId();
+        hotCard = cardService.create(userId);
+
+        for (int i = 0; i < SOURCE_CARDS; i++) {
+            final CardData cardData = cardService.create(userId);
+            final Card card = cardRepository.findById(cardData.getId()).orElseThrow();
+            card.setBalance(INITIAL_BALANCE);
+            cardRepository.save(card);
+            sourcePanLast4s.add(cardData.getPanLast4());
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        // Cards, sub-balances and ledger entries are removed by ON DELETE CASCADE foreign keys
+        userRepository.deleteById(userId);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 4, 8, 16})
+    void performTransaction_WhenCreditingHotCard_ShouldScaleWithShards(int shards) throws InterruptedException {
+        cardService.setBalanceShards(hotCard.getId(), shards);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(TRANSFERS);
+        final AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    cardService.performTransaction(userId, creditToHotCard());
+                } catch (Exception ex) {
+                    log.error("Unexpected transfer failure", ex);
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        final double throughput = TRANSFERS / (elapsedNanos / 1_000_000_000.0);
+        log.info("Credits to a card with {} shards: {} transfers in {} ms ({} transfers/s)",
+                shards, TRANSFERS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", throughput));
+
+        assertThat(failed.get()).isZero();
+        assertThat(cardService.getById(hotCard.getId()).getBalance())
+                .isEqualByComparingTo(BigDecimal.valueOf(TRANSFERS));
+    }
+
+    private TransactionRequest creditToHotCard() {
+        return TransactionRequest.builder()
+                .fromPanLast4(sourcePanLast4s.get(ThreadLocalRandom.current().nextInt(SOURCE_CARDS)))
+                .toPanLast4(hotCard.getPanLast4())
+                .amount(BigDecimal.ONE)
+                .build();
+    }
+}
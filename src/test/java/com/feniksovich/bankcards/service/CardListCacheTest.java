@@ -0,0 +1,153 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.service.card.CardListCache;
+import com.feniksovich.bankcards.service.card.CardsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardListCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UUID userId;
+    private List<CardData> cards;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        userId = UUID.randomUUID();
+        cards = List.of(CardData.builder().id(UUID.randomUUID()).panLast4("1234").balance(BigDecimal.TEN).build());
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_WhenListCached_ShouldNotLoadAgainAndReportHitRatio() {
+        final CardListCache cache = cache(true, 10, Duration.ofMinutes(1));
+
+        assertThat(cache.get(userId, loader(cards))).isEqualTo(cards);
+        assertThat(cache.get(userId, loader(cards))).isEqualTo(cards);
+        assertThat(cache.get(userId, loader(cards))).isEqualTo(cards);
+
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cards.cache.gets").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cards.cache.gets").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cards.cache.ratio").tag("result", "hit").gauge().value())
+                .isEqualTo(2.0 / 3);
+        assertThat(cache.missRatio()).isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    void get_WhenTtlExpired_ShouldReload() {
+        final CardListCache cache = cache(true, 10, Duration.ZERO);
+
+        cache.get(userId, loader(cards));
+        cache.get(userId, loader(cards));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_WhenMaxUsersExceeded_ShouldEvictLeastRecentlyUsedList() {
+        final CardListCache cache = cache(true, 2, Duration.ofMinutes(1));
+        final UUID secondUserId = UUID.randomUUID();
+        final UUID thirdUserId = UUID.randomUUID();
+
+        cache.get(userId, loader(cards));
+        cache.get(secondUserId, loader(cards));
+        cache.get(userId, loader(cards));
+        cache.get(thirdUserId, loader(cards));
+        cache.get(userId, loader(cards));
+        cache.get(secondUserId, loader(cards));
+
+        // The second user was the least recently used when the third one was added
+        assertThat(loads).hasValue(4);
+        assertThat(meterRegistry.get("cards.cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void onCardsChanged_ShouldEvictOnlyListOfChangedUser() {
+        final CardListCache cache = cache(true, 10, Duration.ofMinutes(1));
+        final UUID otherUserId = UUID.randomUUID();
+        cache.get(userId, loader(cards));
+        cache.get(otherUserId, loader(cards));
+
+        cache.onCardsChanged(new CardsChangedEvent(userId));
+        cache.get(userId, loader(cards));
+        cache.get(otherUserId, loader(cards));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void get_WhenCardsChangedDuringLoad_ShouldNotCacheLoadedList() {
+        final CardListCache cache = cache(true, 10, Duration.ofMinutes(1));
+
+        final List<CardData> stale = cache.get(userId, () -> {
+            loads.incrementAndGet();
+            // A transfer commits after the list was read from the database
+            cache.onCardsChanged(new CardsChangedEvent(userId));
+            return cards;
+        });
+        cache.get(userId, loader(cards));
+
+        assertThat(stale).isEqualTo(cards);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_WhenListNotCacheable_ShouldRememberItWithoutLoadingAgain() {
+        final CardListCache cache = cache(true, 10, Duration.ofMinutes(1));
+
+        assertThat(cache.get(userId, loader(null))).isNull();
+        assertThat(cache.get(userId, loader(null))).isNull();
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.missRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    void get_WhenDisabled_ShouldNotLoad() {
+        final CardListCache cache = cache(false, 10, Duration.ofMinutes(1));
+
+        assertThat(cache.get(userId, loader(cards))).isNull();
+
+        assertThat(loads).hasValue(0);
+        assertThat(cache.hitRatio()).isZero();
+    }
+
+    private Supplier<List<CardData>> loader(List<CardData> result) {
+        return () -> {
+            loads.incrementAndGet();
+            return result;
+        };
+    }
+
+    private CardListCache cache(boolean enabled, int maxUsers, Duration ttl) {
+        return new CardListCache(
+                new CardProperties(
+                        new CardProperties.ConcurrencyProperties(
+                                CardProperties.ConcurrencyMode.PESSIMISTIC, 1, Duration.ZERO, Duration.ZERO
+                        ),
+                        new CardProperties.LedgerProperties(false, 1000, Duration.ofSeconds(1)),
+                        new CardProperties.IdempotencyProperties(Duration.ofHours(1), 100, 1000, Duration.ofMinutes(1)),
+                        new CardProperties.LockingProperties(false, 16, true, Duration.ofSeconds(1)),
+                        new CardProperties.AsyncProperties(4, 100, Duration.ofSeconds(30), 100),
+                        new CardProperties.EngineProperties(2, 16, 16, Duration.ofSeconds(5)),
+                        new CardProperties.CacheProperties(enabled, maxUsers, 100, ttl)
+                ),
+                meterRegistry
+        );
+    }
+}
@@ -0,0 +1,150 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.entity.User;
+import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.service.card.CardService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test of concurrent transfers against a real database.
+ * <p>
+ * Requires the datasource from {@code application.yml} to be reachable, so it is
+ * opt-in: run with {@code mvn test -Dstress=true -Dtest=CardServiceConcurrencyTest}
+ * (e.g. inside the docker compose {@code test} profile). Add
+ * {@code -Dcards.concurrency.mode=optimistic} to benchmark the optimistic mode and
+ * {@code -Dcards.ledger.deferred-credits=true} to benchmark deferred ledger credits.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class CardServiceConcurrencyTest {
+
+    private static final int CARDS = 8;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS = 5_000;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000);
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UUID userId;
+    private final List<String> panLast4s = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        final User user = userRepository.save(User.builder()
+                .phoneNumber(String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)))
+                .password("stress-test")
+                .firstName("Stress")
+                .lastName("Test")
+                .role(Role.USER)
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < CARDS; i++) {
+            final CardData cardData = cardService.create(userId);
+            final Card card = cardRepository.findById(cardData.getId()).orElseThrow();
+            card.setBalance(INITIAL_BALANCE);
+            cardRepository.save(card);
+            panLast4s.add(cardData.getPanLast4());
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        // Cards are removed by the ON DELETE CASCADE foreign key
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void performTransaction_WhenConcurrentTransfers_ShouldConserveTotalBalance() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(TRANSFERS);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    cardService.performTransaction(userId, randomTransfer());
+                    succeeded.incrementAndGet();
+                } catch (CardOperationException | ResourceConflictException ex) {
+                    // Insufficient funds and exhausted optimistic retries are legitimate outcomes
+                    rejected.incrementAndGet();
+                } catch (Exception ex) {
+                    log.error("Unexpected transfer failure", ex);
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        final double throughput = TRANSFERS / (elapsedNanos / 1_000_000_000.0);
+        log.info("Transfers: {} succeeded, {} rejected, {} failed in {} ms ({} transfers/s)",
+                succeeded.get(), rejected.get(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", throughput));
+
+        // Balances reported by the service include ledger credits that are not folded yet
+        final BigDecimal total = cardService.getAllOwned(userId, Pageable.unpaged())
+                .stream()
+                .map(CardData::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        assertThat(failed.get()).isZero();
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)));
+    }
+
+    private TransactionRequest randomTransfer() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int from = random.nextInt(CARDS);
+        final int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+        return TransactionRequest.builder()
+                .fromPanLast4(panLast4s.get(from))
+                .toPanLast4(panLast4s.get(to))
+                .amount(BigDecimal.valueOf(random.nextInt(1, 50)))
+                .build();
+    }
+}
@@ -1,30 +1,67 @@
 package com.feniksovich.bankcards.service;
 
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.CursorPage;
 import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.CardTransactionData;
+import com.feniksovich.bankcards.dto.card.TransactionItemResult;
 import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.dto.card.TransactionResult;
+import com.feniksovich.bankcards.dto.card.TransferOrderData;
 import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.CardLedgerEntry;
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import com.feniksovich.bankcards.entity.TransferOrder;
+import com.feniksovich.bankcards.entity.TransferStatus;
 import com.feniksovich.bankcards.entity.User;
 import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
 import com.feniksovich.bankcards.exception.ResourceNotFoundException;
+import com.feniksovich.bankcards.mapper.CardMapper;
+import com.feniksovich.bankcards.mapper.CardMapperImpl;
+import com.feniksovich.bankcards.repository.CardAmount;
+import com.feniksovich.bankcards.repository.CardBalanceShardRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepositoryCustom;
 import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.CardView;
+import com.feniksovich.bankcards.repository.TransferOrderRepository;
 import com.feniksovich.bankcards.repository.UserRepository;
 import com.feniksovich.bankcards.security.crypto.CryptoService;
+import com.feniksovich.bankcards.service.card.CardListCache;
+import com.feniksovich.bankcards.service.card.CardLockManager;
+import com.feniksovich.bankcards.service.card.CardMutationExecutor;
 import com.feniksovich.bankcards.service.card.CardServiceImpl;
+import com.feniksovich.bankcards.service.card.CardsChangedEvent;
+import com.feniksovich.bankcards.service.card.PartitionedTransferEngine;
+import com.feniksovich.bankcards.service.card.TransferIdempotencyRegistry;
+import com.feniksovich.bankcards.service.card.TransferSubmittedEvent;
 import com.feniksovich.bankcards.util.CardUtil;
+import com.feniksovich.bankcards.util.CursorUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -40,14 +77,44 @@ class CardServiceTest {
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardLedgerRepository ledgerRepository;
+
+    @Mock
+    private CardBalanceShardRepository shardRepository;
+
     @Mock
     private UserRepository userRepository;
 
     @Mock
     private CryptoService cryptoService;
 
+    @Spy
+    private CardMapper cardMapper = new CardMapperImpl();
+
     @Mock
-    private ModelMapper modelMapper;
+    private TransferIdempotencyRegistry idempotencyRegistry;
+
+    @Mock
+    private TransferOrderRepository orderRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PartitionedTransferEngine transferEngine;
+
+    @Spy
+    private CardProperties cardProperties = cardProperties(CardProperties.ConcurrencyMode.PESSIMISTIC, 1, false);
+
+    @Spy
+    private CardMutationExecutor mutationExecutor = mutationExecutor(cardProperties);
+
+    @Spy
+    private CardLockManager lockManager = new CardLockManager(cardProperties, new SimpleMeterRegistry());
+
+    @Spy
+    private CardListCache cardListCache = new CardListCache(cardProperties, new SimpleMeterRegistry());
 
     @InjectMocks
     private CardServiceImpl cardService;
@@ -93,26 +160,25 @@ class CardServiceTest {
 
     @Test
     void getById_WhenCardExists_ShouldReturnCardData() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(existingCard));
-        when(modelMapper.map(existingCard, CardData.class)).thenReturn(existingCardData);
+        when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(view(existingCard)));
 
         final CardData result = cardService.getById(cardId);
 
         assertThat(result).isEqualTo(existingCardData);
-        verify(cardRepository).findById(cardId);
-        verify(modelMapper).map(existingCard, CardData.class);
+        verify(cardRepository).findViewById(cardId);
+        verifyNoInteractions(cardMapper);
     }
 
     @Test
     void getById_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findViewById(cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.getById(cardId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(cardRepository).findById(cardId);
-        verifyNoMoreInteractions(modelMapper);
+        verify(cardRepository).findViewById(cardId);
+        verifyNoMoreInteractions(cardMapper);
     }
 
     @Test
@@ -134,18 +200,20 @@ class CardServiceTest {
         when(cardRepository.existsByUserIdAndPanLast4(userId, "3456")).thenReturn(false);
         when(cryptoService.encrypt(generatedPan)).thenReturn(encryptedPan);
         when(cardRepository.save(any(Card.class))).thenReturn(savedCard);
-        when(modelMapper.map(savedCard, CardData.class)).thenReturn(existingCardData);
 
         try (final MockedStatic<CardUtil> util = mockStatic(CardUtil.class)) {
             util.when(CardUtil::generateCardPan).thenReturn(generatedPan);
             final CardData result = cardService.create(userId);
-            assertThat(result).isEqualTo(existingCardData);
+            assertThat(result.getId()).isEqualTo(cardId);
+            assertThat(result.getPanLast4()).isEqualTo("3456");
+            assertThat(result.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
         }
 
         verify(userRepository).findById(userId);
         verify(cryptoService).encrypt(anyString());
         verify(cardRepository).save(any(Card.class));
-        verify(modelMapper).map(savedCard, CardData.class);
+        verify(cardMapper).toCardData(savedCard);
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(userId));
     }
 
     @Test
@@ -157,148 +225,265 @@ class CardServiceTest {
                 .hasMessageContaining("not found");
 
         verify(userRepository).findById(userId);
-        verifyNoMoreInteractions(cardRepository, cryptoService, modelMapper);
+        verifyNoMoreInteractions(cardRepository, cryptoService, cardMapper);
     }
 
     @Test
     void delete_WhenCardExistsAndZeroBalance_ShouldDeleteCard() {
         existingCard.setBalance(BigDecimal.ZERO);
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(existingCard));
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.of(existingCard));
         doNothing().when(cardRepository).deleteById(cardId);
 
         cardService.delete(cardId);
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findLockedById(cardId);
         verify(cardRepository).deleteById(cardId);
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(userId));
     }
 
     @Test
     void delete_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.delete(cardId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findLockedById(cardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
     @Test
     void delete_WhenCardHasNonZeroBalance_ShouldThrowCardOperationException() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(existingCard));
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.of(existingCard));
 
         assertThatThrownBy(() -> cardService.delete(cardId))
                 .isInstanceOf(CardOperationException.class)
                 .hasMessageContaining("non-zero balance");
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findLockedById(cardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
+    @Test
+    void delete_WhenCrossPartitionCreditPending_ShouldThrowCardOperationException() {
+        final CardServiceImpl partitionedService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PARTITIONED, 1, false), new SimpleMeterRegistry()
+        );
+        final CardAmount pending = mock(CardAmount.class);
+        when(pending.getCardId()).thenReturn(cardId);
+        when(pending.getAmount()).thenReturn(BigDecimal.valueOf(100));
+        existingCard.setBalance(BigDecimal.ZERO);
+
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.of(existingCard));
+        // The debit is committed, the credit waits for the destination partition
+        when(ledgerRepository.sumPendingCredits(List.of(cardId))).thenReturn(List.of(pending));
+
+        assertThatThrownBy(() -> partitionedService.delete(cardId))
+                .isInstanceOf(CardOperationException.class)
+                .hasMessageContaining("non-zero balance");
+
+        verify(cardRepository, never()).deleteById(any());
+    }
+
     @Test
     void getAll_WhenCardsExist_ShouldReturnPageOfCardData() {
         final Pageable pageable = PageRequest.of(0, 10);
-        final List<Card> cards = List.of(existingCard);
-        final Page<Card> cardPage = new PageImpl<>(cards, pageable, 1);
+        final Page<CardView> cardPage = new PageImpl<>(List.of(view(existingCard)), pageable, 1);
 
-        when(cardRepository.findAll(pageable)).thenReturn(cardPage);
-        when(modelMapper.map(existingCard, CardData.class)).thenReturn(existingCardData);
+        when(cardRepository.findAllViews(pageable)).thenReturn(cardPage);
 
         final Page<CardData> result = cardService.getAll(pageable);
 
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent().getFirst()).isEqualTo(existingCardData);
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAll(pageable);
-        verify(modelMapper).map(existingCard, CardData.class);
+        verify(cardRepository).findAllViews(pageable);
+        verifyNoInteractions(cardMapper);
+    }
+
+    @Test
+    void scrollAll_WhenMoreCardsThanPageSize_ShouldReturnNextCursorWithoutCounting() {
+        final CardView nextCard = new CardView(
+                UUID.randomUUID(), userId, "5678", LocalDate.now(), "IVANOV IVAN", BigDecimal.ZERO, false, 0
+        );
+        final UUID first = new UUID(0L, 0L);
+
+        when(cardRepository.findViewsAfter(first, first, Limit.of(2))).thenReturn(List.of(view(existingCard), nextCard));
+        when(cardRepository.approximateCount()).thenReturn(42L);
+
+        final CursorPage<CardData> result = cardService.scrollAll(null, 1, true);
+
+        assertThat(result.getContent()).containsExactly(existingCardData);
+        assertThat(result.getNextCursor()).isEqualTo(CursorUtil.encode(userId.toString(), cardId.toString()));
+        assertThat(result.getApproximateTotal()).isEqualTo(42L);
+        verify(cardRepository, never()).count();
+    }
+
+    @Test
+    void scrollAll_WhenCursorPassed_ShouldContinueAfterCursorKey() {
+        when(cardRepository.findViewsAfter(userId, cardId, Limit.of(21))).thenReturn(List.of());
+
+        final CursorPage<CardData> result = cardService.scrollAll(
+                CursorUtil.encode(userId.toString(), cardId.toString()), 20, false
+        );
+
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getApproximateTotal()).isNull();
+        verify(cardRepository, never()).approximateCount();
     }
 
     @Test
     void setBlockedById_WhenCardExists_ShouldUpdateBlockedStatus() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(existingCard));
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.of(existingCard));
         when(cardRepository.save(existingCard)).thenReturn(existingCard);
 
         cardService.setBlockedById(cardId, true);
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findLockedById(cardId);
         verify(cardRepository).save(existingCard);
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(userId));
     }
 
     @Test
     void setBlockedById_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.setBlockedById(cardId, true))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findLockedById(cardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
     @Test
     void getOwnById_WhenCardExists_ShouldReturnCardData() {
-        when(cardRepository.findByUserIdAndId(userId, cardId)).thenReturn(Optional.of(existingCard));
-        when(modelMapper.map(existingCard, CardData.class)).thenReturn(existingCardData);
+        when(cardRepository.findViewByUserIdAndId(userId, cardId)).thenReturn(Optional.of(view(existingCard)));
 
         final CardData result = cardService.getOwnById(userId, cardId);
 
         assertThat(result).isEqualTo(existingCardData);
-        verify(cardRepository).findByUserIdAndId(userId, cardId);
-        verify(modelMapper).map(existingCard, CardData.class);
+        verify(cardRepository).findViewByUserIdAndId(userId, cardId);
+        verifyNoInteractions(cardMapper);
     }
 
     @Test
     void getOwnById_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
-        when(cardRepository.findByUserIdAndId(userId, cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findViewByUserIdAndId(userId, cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.getOwnById(userId, cardId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(cardRepository).findByUserIdAndId(userId, cardId);
-        verifyNoMoreInteractions(modelMapper);
+        verify(cardRepository).findViewByUserIdAndId(userId, cardId);
+        verifyNoMoreInteractions(cardMapper);
     }
 
     @Test
     void getAllOwned_WhenCardsExist_ShouldReturnPageOfCardData() {
         final Pageable pageable = PageRequest.of(0, 10);
-        final List<Card> cards = List.of(existingCard);
-        final Page<Card> cardPage = new PageImpl<>(cards, pageable, 1);
+        final Page<CardView> cardPage = new PageImpl<>(List.of(view(existingCard)), pageable, 1);
 
-        when(cardRepository.findAllByUserId(userId, pageable)).thenReturn(cardPage);
-        when(modelMapper.map(existingCard, CardData.class)).thenReturn(existingCardData);
+        when(cardRepository.findAllViewsByUserId(userId, pageable)).thenReturn(cardPage);
 
         final Page<CardData> result = cardService.getAllOwned(userId, pageable);
 
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent().getFirst()).isEqualTo(existingCardData);
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByUserId(userId, pageable);
-        verify(modelMapper).map(existingCard, CardData.class);
+        verify(cardRepository).findAllViewsByUserId(userId, pageable);
+        verifyNoInteractions(cardMapper);
+    }
+
+    @Test
+    void scrollAllOwned_WhenLastPage_ShouldReturnNoNextCursor() {
+        when(cardRepository.findViewsByUserIdAfter(userId, new UUID(0L, 0L), Limit.of(11)))
+                .thenReturn(List.of(view(existingCard)));
+
+        final CursorPage<CardData> result = cardService.scrollAllOwned(userId, null, 10);
+
+        assertThat(result.getContent()).containsExactly(existingCardData);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void scrollAllOwned_WhenCursorOfAnotherUser_ShouldThrowResponseStatusException() {
+        final String cursor = CursorUtil.encode(UUID.randomUUID().toString(), cardId.toString());
+
+        assertThatThrownBy(() -> cardService.scrollAllOwned(userId, cursor, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Invalid cursor");
+
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getAllOwned_WhenCacheEnabled_ShouldServeRepeatedReadsFromCachedList() {
+        final CardServiceImpl cachedService = cachedCardService();
+        final Card otherCard = transactionCard("5678", BigDecimal.TEN);
+        when(cardRepository.findViewsByUserIdAfter(userId, new UUID(0L, 0L), Limit.of(101)))
+                .thenReturn(List.of(view(existingCard), view(otherCard)));
+
+        final Page<CardData> firstPage = cachedService.getAllOwned(userId, PageRequest.of(0, 1));
+        final Page<CardData> secondPage = cachedService.getAllOwned(userId, PageRequest.of(1, 1));
+        final CardData card = cachedService.getOwnById(userId, cardId);
+
+        assertThat(firstPage.getContent()).containsExactly(existingCardData);
+        assertThat(firstPage.getTotalElements()).isEqualTo(2);
+        assertThat(secondPage.getContent()).extracting(CardData::getPanLast4).containsExactly("5678");
+        assertThat(card).isEqualTo(existingCardData);
+        verify(cardRepository, times(1)).findViewsByUserIdAfter(userId, new UUID(0L, 0L), Limit.of(101));
+        verifyNoMoreInteractions(cardRepository);
+    }
+
+    @Test
+    void getOwnById_WhenCachedListHasNoSuchCard_ShouldThrowResourceNotFoundException() {
+        final CardServiceImpl cachedService = cachedCardService();
+        when(cardRepository.findViewsByUserIdAfter(userId, new UUID(0L, 0L), Limit.of(101)))
+                .thenReturn(List.of(view(existingCard)));
+
+        assertThatThrownBy(() -> cachedService.getOwnById(userId, UUID.randomUUID()))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("not found");
+
+        verify(cardRepository, never()).findViewByUserIdAndId(any(), any());
+    }
+
+    @Test
+    void getAllOwned_WhenSortRequested_ShouldBypassCache() {
+        final CardServiceImpl cachedService = cachedCardService();
+        final Pageable pageable = PageRequest.of(0, 10, Sort.by("balance"));
+        when(cardRepository.findAllViewsByUserId(userId, pageable))
+                .thenReturn(new PageImpl<>(List.of(view(existingCard)), pageable, 1));
+
+        final Page<CardData> result = cachedService.getAllOwned(userId, pageable);
+
+        assertThat(result.getContent()).containsExactly(existingCardData);
+        verify(cardRepository, never()).findViewsByUserIdAfter(any(), any(), any());
     }
 
     @Test
     void setBlockedOwnById_WhenCardExists_ShouldUpdateBlockedStatus() {
-        when(cardRepository.findByUserIdAndId(userId, cardId)).thenReturn(Optional.of(existingCard));
+        when(cardRepository.findLockedByUserIdAndId(userId, cardId)).thenReturn(Optional.of(existingCard));
         when(cardRepository.save(existingCard)).thenReturn(existingCard);
 
         cardService.setBlockedOwnById(userId, cardId, true);
 
-        verify(cardRepository).findByUserIdAndId(userId, cardId);
+        verify(cardRepository).findLockedByUserIdAndId(userId, cardId);
         verify(cardRepository).save(existingCard);
     }
 
     @Test
     void setBlockedOwnById_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
-        when(cardRepository.findByUserIdAndId(userId, cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findLockedByUserIdAndId(userId, cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.setBlockedOwnById(userId, cardId, true))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(cardRepository).findByUserIdAndId(userId, cardId);
+        verify(cardRepository).findLockedByUserIdAndId(userId, cardId);
         verifyNoMoreInteractions(cardRepository);
     }
 
@@ -328,15 +513,19 @@ class CardServiceTest {
                 .amount(BigDecimal.valueOf(100))
                 .build();
 
-        when(cardRepository.findByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(fromCard, toCard));
         when(cardRepository.saveAll(anyList())).thenReturn(List.of(fromCard, toCard));
 
         cardService.performTransaction(userId, request);
 
-        verify(cardRepository).findByUserIdAndPanLast4(userId, "1111");
-        verify(cardRepository).findByUserIdAndPanLast4(userId, "2222");
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("300");
+        verify(cardRepository).findAllForTransfer(userId, List.of("1111", "2222"), "1111");
         verify(cardRepository).saveAll(anyList());
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.size() == 2
+                && postings.stream().allMatch(CardLedgerRepositoryCustom.Posting::applied)));
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(userId));
     }
 
     @Test
@@ -347,13 +536,15 @@ class CardServiceTest {
                 .amount(BigDecimal.valueOf(100))
                 .build();
 
-        when(cardRepository.findByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(existingCard));
+        existingCard.setPanLast4("1111");
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "1111"), "1111"))
+                .thenReturn(List.of(existingCard));
 
         assertThatThrownBy(() -> cardService.performTransaction(userId, request))
                 .isInstanceOf(CardOperationException.class)
                 .hasMessageContaining("same card");
 
-        verify(cardRepository, times(2)).findByUserIdAndPanLast4(userId, "1111");
+        verify(cardRepository).findAllForTransfer(userId, List.of("1111", "1111"), "1111");
         verifyNoMoreInteractions(cardRepository);
     }
 
@@ -374,15 +565,15 @@ class CardServiceTest {
                 .amount(BigDecimal.valueOf(100))
                 .build();
 
-        when(cardRepository.findByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(blockedCard));
-        when(cardRepository.findByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(existingCard));
+        existingCard.setPanLast4("2222");
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(blockedCard, existingCard));
 
         assertThatThrownBy(() -> cardService.performTransaction(userId, request))
                 .isInstanceOf(CardOperationException.class)
                 .hasMessageContaining("blocked");
 
-        verify(cardRepository).findByUserIdAndPanLast4(userId, "1111");
-        verify(cardRepository).findByUserIdAndPanLast4(userId, "2222");
+        verify(cardRepository).findAllForTransfer(userId, List.of("1111", "2222"), "1111");
         verifyNoMoreInteractions(cardRepository);
     }
 
@@ -403,15 +594,670 @@ class CardServiceTest {
                 .amount(BigDecimal.valueOf(100))
                 .build();
 
-        when(cardRepository.findByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(lowBalanceCard));
-        when(cardRepository.findByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(existingCard));
+        existingCard.setPanLast4("2222");
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(lowBalanceCard, existingCard));
 
         assertThatThrownBy(() -> cardService.performTransaction(userId, request))
                 .isInstanceOf(CardOperationException.class)
                 .hasMessageContaining("not enough funds");
 
-        verify(cardRepository).findByUserIdAndPanLast4(userId, "1111");
+        verify(cardRepository).findAllForTransfer(userId, List.of("1111", "2222"), "1111");
+        verifyNoMoreInteractions(cardRepository);
+    }
+
+    @Test
+    void performTransaction_WhenCardNotFound_ShouldThrowResourceNotFoundException() {
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        existingCard.setPanLast4("1111");
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(existingCard));
+
+        assertThatThrownBy(() -> cardService.performTransaction(userId, request))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("not found");
+
+        verify(cardRepository).findAllForTransfer(userId, List.of("1111", "2222"), "1111");
+        // A destination with sub-balances is not locked, so it is looked up separately
         verify(cardRepository).findByUserIdAndPanLast4(userId, "2222");
         verifyNoMoreInteractions(cardRepository);
     }
+
+    @Test
+    void performTransaction_WhenOptimisticConflictResolvedOnRetry_ShouldPerformTransaction() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CardServiceImpl optimisticCardService = optimisticCardService(meterRegistry);
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.findAllByUserIdAndPanLast4In(userId, List.of("1111", "2222")))
+                .thenReturn(List.of(fromCard, toCard));
+        when(cardRepository.saveAll(anyList()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, fromCard.getId()))
+                .thenReturn(List.of(fromCard, toCard));
+
+        optimisticCardService.performTransaction(userId, request);
+
+        verify(cardRepository, times(2)).findAllByUserIdAndPanLast4In(userId, List.of("1111", "2222"));
+        verify(cardRepository, never()).findAllForTransfer(any(), anyList(), any());
+        assertThat(meterRegistry.counter("cards.concurrency.retries", "operation", "transfer").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void setBlockedById_WhenOptimisticConflictPersists_ShouldThrowResourceConflictException() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CardServiceImpl optimisticCardService = optimisticCardService(meterRegistry);
+
+        when(cardRepository.findById(cardId)).thenAnswer(_ -> {
+            existingCard.setBlocked(false);
+            return Optional.of(existingCard);
+        });
+        when(cardRepository.save(existingCard))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, cardId));
+
+        assertThatThrownBy(() -> optimisticCardService.setBlockedById(cardId, true))
+                .isInstanceOf(ResourceConflictException.class);
+
+        verify(cardRepository, times(3)).findById(cardId);
+        verify(cardRepository, never()).findLockedById(any());
+        assertThat(meterRegistry.counter("cards.concurrency.retries", "operation", "block").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.counter("cards.concurrency.retries.exhausted", "operation", "block").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void performTransaction_WhenConditionalUpdatesApplied_ShouldNotReadCards() {
+        final CardServiceImpl conditionalCardService = conditionalCardService();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("2222")
+                .toPanLast4("1111")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.creditIfActive(eq(userId), eq("1111"), eq(BigDecimal.valueOf(100)), any()))
+                .thenReturn(1);
+        when(cardRepository.debitIfAvailable(eq(userId), eq("2222"), eq(BigDecimal.valueOf(100)), any()))
+                .thenReturn(1);
+
+        final UUID fromCardId = UUID.randomUUID();
+        final UUID toCardId = UUID.randomUUID();
+        when(cardRepository.findIdByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(fromCardId));
+        when(cardRepository.findIdByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(toCardId));
+
+        conditionalCardService.performTransaction(userId, request);
+
+        // Rows are updated in ascending PAN order regardless of the transfer direction
+        final InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).creditIfActive(eq(userId), eq("1111"), eq(BigDecimal.valueOf(100)), any());
+        inOrder.verify(cardRepository).debitIfAvailable(eq(userId), eq("2222"), eq(BigDecimal.valueOf(100)), any());
+        // Postings reference the updated rows by id
+        verify(cardRepository).findIdByUserIdAndPanLast4(userId, "2222");
+        verify(cardRepository).findIdByUserIdAndPanLast4(userId, "1111");
+        verifyNoMoreInteractions(cardRepository);
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.stream().allMatch(posting ->
+                posting.cardId().equals(posting.direction() == LedgerDirection.DEBIT ? fromCardId : toCardId))));
+    }
+
+    @Test
+    void performTransaction_WhenConditionalDebitRejected_ShouldReportSameReason() {
+        final CardServiceImpl conditionalCardService = conditionalCardService();
+        final Card blockedCard = transactionCard("1111", BigDecimal.valueOf(500));
+        blockedCard.setBlocked(true);
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.debitIfAvailable(eq(userId), eq("1111"), eq(BigDecimal.valueOf(100)), any()))
+                .thenReturn(0);
+        when(cardRepository.findByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(blockedCard));
+        when(cardRepository.findByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(toCard));
+
+        assertThatThrownBy(() -> conditionalCardService.performTransaction(userId, request))
+                .isInstanceOf(CardOperationException.class)
+                .hasMessageContaining("blocked");
+
+        verify(cardRepository, never()).creditIfActive(any(), any(), any(), any());
+    }
+
+    @Test
+    void performTransaction_WhenCreditsDeferred_ShouldOnlyDebitSourceCard() {
+        final CardServiceImpl deferredCardService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PESSIMISTIC, 1, true), new SimpleMeterRegistry()
+        );
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.findPanLast4sInLockOrder(userId, List.of("1111", "2222")))
+                .thenReturn(List.of("2222", "1111"));
+        when(cardRepository.findSharedByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(toCard));
+        when(cardRepository.findLockedByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(fromCard));
+
+        deferredCardService.performTransaction(userId, request);
+
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("200");
+        // Rows are locked in id order: the destination only for share, so credits to it do not queue
+        final InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findSharedByUserIdAndPanLast4(userId, "2222");
+        inOrder.verify(cardRepository).findLockedByUserIdAndPanLast4(userId, "1111");
+        verify(cardRepository).save(fromCard);
+        verify(cardRepository, never()).findLockedByUserIdAndPanLast4(userId, "2222");
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.stream().anyMatch(posting ->
+                posting.direction() == LedgerDirection.CREDIT && !posting.applied()
+                        && posting.cardId().equals(toCard.getId()))));
+    }
+
+    @Test
+    void performTransaction_WhenConditionalCreditsDeferred_ShouldShareLockDestinationCard() {
+        final CardServiceImpl deferredCardService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.CONDITIONAL, 1, true), new SimpleMeterRegistry()
+        );
+        final UUID fromCardId = UUID.randomUUID();
+        final UUID toCardId = UUID.randomUUID();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.debitIfAvailable(eq(userId), eq("1111"), eq(BigDecimal.valueOf(100)), any()))
+                .thenReturn(1);
+        when(cardRepository.lockIfActive(eq(userId), eq("2222"), any())).thenReturn(Optional.of(toCardId));
+        when(cardRepository.findIdByUserIdAndPanLast4(userId, "1111")).thenReturn(Optional.of(fromCardId));
+        when(cardRepository.findIdByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(toCardId));
+
+        deferredCardService.performTransaction(userId, request);
+
+        final InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).debitIfAvailable(eq(userId), eq("1111"), eq(BigDecimal.valueOf(100)), any());
+        inOrder.verify(cardRepository).lockIfActive(eq(userId), eq("2222"), any());
+        verify(cardRepository, never()).creditIfActive(any(), any(), any(), any());
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.stream().anyMatch(posting ->
+                posting.direction() == LedgerDirection.CREDIT && !posting.applied()
+                        && posting.cardId().equals(toCardId))));
+    }
+
+    @Test
+    void delete_WhenCreditsDeferred_ShouldLockCardInOptimisticMode() {
+        final CardServiceImpl deferredCardService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.OPTIMISTIC, 1, true), new SimpleMeterRegistry()
+        );
+        existingCard.setBalance(BigDecimal.ZERO);
+        when(cardRepository.findLockedById(cardId)).thenReturn(Optional.of(existingCard));
+
+        deferredCardService.delete(cardId);
+
+        // Waits for transfers that share-lock the card, so their pending credits are seen
+        verify(cardRepository).findLockedById(cardId);
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository).deleteById(cardId);
+    }
+
+    @Test
+    void getOwnById_WhenCreditsDeferred_ShouldIncludePendingCredits() {
+        final CardServiceImpl deferredCardService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PESSIMISTIC, 1, true), new SimpleMeterRegistry()
+        );
+        final CardAmount pending = mock(CardAmount.class);
+        when(pending.getCardId()).thenReturn(cardId);
+        when(pending.getAmount()).thenReturn(BigDecimal.valueOf(50));
+
+        when(cardRepository.findViewByUserIdAndId(userId, cardId)).thenReturn(Optional.of(view(existingCard)));
+        when(ledgerRepository.sumPendingCredits(List.of(cardId))).thenReturn(List.of(pending));
+
+        final CardData result = deferredCardService.getOwnById(userId, cardId);
+
+        assertThat(result.getBalance()).isEqualByComparingTo(existingCard.getBalance().add(BigDecimal.valueOf(50)));
+    }
+
+    @Test
+    void performTransaction_WhenIdempotencyKeyCompleted_ShouldReplayWithoutTransfer() {
+        final UUID transferId = UUID.randomUUID();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(idempotencyRegistry.findCompleted(userId, "key-1", request)).thenReturn(Optional.of(transferId));
+
+        final TransactionResult result = cardService.performTransaction(userId, request, "key-1");
+
+        assertThat(result.getTransferId()).isEqualTo(transferId);
+        assertThat(result.isReplayed()).isTrue();
+        verify(idempotencyRegistry, never()).claim(any(), any(), any(), any());
+        verifyNoInteractions(cardRepository, ledgerRepository);
+    }
+
+    @Test
+    void performTransaction_WhenIdempotencyKeyNew_ShouldClaimKeyAndTransfer() {
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(idempotencyRegistry.findCompleted(userId, "key-1", request)).thenReturn(Optional.empty());
+        when(idempotencyRegistry.claim(eq(userId), eq("key-1"), eq(request), any())).thenReturn(true);
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(fromCard, toCard));
+
+        final TransactionResult result = cardService.performTransaction(userId, request, "key-1");
+
+        assertThat(result.isReplayed()).isFalse();
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("300");
+        verify(idempotencyRegistry).claim(userId, "key-1", request, result.getTransferId());
+        verify(idempotencyRegistry).remember(userId, "key-1", request, result.getTransferId());
+    }
+
+    @Test
+    void performTransactions_WhenOneTransferRejected_ShouldApplyOthersInOneFlush() {
+        final Card firstCard = transactionCard("1111", BigDecimal.valueOf(100));
+        final Card secondCard = transactionCard("2222", BigDecimal.ZERO);
+        final List<TransactionRequest> requests = List.of(
+                new TransactionRequest("1111", "2222", BigDecimal.valueOf(80)),
+                new TransactionRequest("1111", "2222", BigDecimal.valueOf(80)),
+                new TransactionRequest("2222", "3333", BigDecimal.valueOf(10)),
+                new TransactionRequest("2222", "1111", BigDecimal.valueOf(30))
+        );
+
+        when(cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(eq(userId), anyCollection()))
+                .thenReturn(List.of(firstCard, secondCard));
+
+        final List<TransactionItemResult> results = cardService.performTransactions(userId, requests);
+
+        assertThat(results).extracting(TransactionItemResult::getStatus).containsExactly(
+                TransactionItemResult.Status.APPLIED,
+                TransactionItemResult.Status.REJECTED,
+                TransactionItemResult.Status.REJECTED,
+                TransactionItemResult.Status.APPLIED
+        );
+        assertThat(results.get(1).getMessage()).contains("not enough funds");
+        assertThat(results.get(2).getMessage()).contains("not found");
+        assertThat(firstCard.getBalance()).isEqualByComparingTo("50");
+        assertThat(secondCard.getBalance()).isEqualByComparingTo("50");
+        verify(cardRepository).findAllByUserIdAndPanLast4InOrderByIdAsc(eq(userId), anyCollection());
+        verify(cardRepository).saveAll(List.of(firstCard, secondCard));
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.size() == 4));
+    }
+
+    @Test
+    void performTransaction_WhenInProcessLocksEnabled_ShouldLockResolvedCardsBeforeTransfer() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CardServiceImpl lockingCardService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PESSIMISTIC, 1, false, true), meterRegistry
+        );
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.findIdsByUserIdAndPanLast4In(userId, List.of("1111", "2222")))
+                .thenReturn(List.of(fromCard.getId(), toCard.getId()));
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(fromCard, toCard));
+
+        lockingCardService.performTransaction(userId, request);
+
+        final InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findIdsByUserIdAndPanLast4In(userId, List.of("1111", "2222"));
+        inOrder.verify(cardRepository).findAllForTransfer(userId, List.of("1111", "2222"), "1111");
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(meterRegistry.timer("cards.lock.wait", "operation", "transfer").count()).isEqualTo(1);
+    }
+
+    @Test
+    void performTransaction_WhenDestinationSharded_ShouldCreditShardWithoutLockingCard() {
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card hotCard = transactionCard("2222", BigDecimal.valueOf(200));
+        hotCard.setBalanceShards(4);
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(fromCard));
+        when(cardRepository.findByUserIdAndPanLast4(userId, "2222")).thenReturn(Optional.of(hotCard));
+        when(shardRepository.credit(eq(hotCard.getId()), intThat(shard -> shard >= 0 && shard < 4),
+                eq(BigDecimal.valueOf(100)))).thenReturn(1);
+
+        cardService.performTransaction(userId, request);
+
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(hotCard.getBalance()).isEqualByComparingTo("200");
+        verify(cardRepository).saveAll(List.of(fromCard));
+    }
+
+    @Test
+    void performTransaction_WhenShardedSourceShort_ShouldConsolidateBeforeDebit() {
+        final Card hotCard = transactionCard("1111", BigDecimal.valueOf(50));
+        hotCard.setBalanceShards(4);
+        final Card toCard = transactionCard("2222", BigDecimal.ZERO);
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(hotCard, toCard));
+        when(shardRepository.drain(hotCard.getId())).thenReturn(BigDecimal.valueOf(150));
+
+        cardService.performTransaction(userId, request);
+
+        assertThat(hotCard.getBalance()).isEqualByComparingTo("100");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void getById_WhenCardSharded_ShouldReturnSumOfSubBalances() {
+        existingCard.setBalanceShards(2);
+        final CardAmount shards = mock(CardAmount.class);
+        when(shards.getCardId()).thenReturn(cardId);
+        when(shards.getAmount()).thenReturn(BigDecimal.valueOf(250));
+
+        when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(view(existingCard)));
+        when(shardRepository.sumByCardIds(List.of(cardId))).thenReturn(List.of(shards));
+
+        final CardData result = cardService.getById(cardId);
+
+        assertThat(result.getBalance()).isEqualByComparingTo(existingCard.getBalance().add(BigDecimal.valueOf(250)));
+        verify(ledgerRepository).sumPendingCredits(List.of(cardId));
+    }
+
+    @Test
+    void submitTransaction_WhenValidRequest_ShouldSavePendingOrderAndPublishEvent() {
+        final UUID transferId = UUID.randomUUID();
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        when(orderRepository.save(any(TransferOrder.class))).thenAnswer(invocation -> {
+            final TransferOrder order = invocation.getArgument(0);
+            return TransferOrder.builder()
+                    .id(transferId)
+                    .userId(order.getUserId())
+                    .fromPanLast4(order.getFromPanLast4())
+                    .toPanLast4(order.getToPanLast4())
+                    .amount(order.getAmount())
+                    .status(order.getStatus())
+                    .build();
+        });
+
+        final TransferOrderData result = cardService.submitTransaction(userId, request);
+
+        assertThat(result.getId()).isEqualTo(transferId);
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.PENDING);
+        verify(orderRepository).save(argThat(order -> order.getStatus() == TransferStatus.PENDING
+                && order.getUserId().equals(userId)
+                && order.getAmount().compareTo(BigDecimal.valueOf(100)) == 0));
+        verify(eventPublisher).publishEvent(new TransferSubmittedEvent(transferId, userId, "1111"));
+        verifyNoInteractions(cardRepository, ledgerRepository);
+    }
+
+    @Test
+    void processTransaction_WhenOrderPending_ShouldCompleteOrderInTransferTransaction() {
+        final TransferOrder order = pendingOrder(BigDecimal.valueOf(100));
+        final Card fromCard = transactionCard("1111", BigDecimal.valueOf(500));
+        final Card toCard = transactionCard("2222", BigDecimal.valueOf(200));
+
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderRepository.complete(eq(order.getId()), eq(TransferStatus.COMPLETED), isNull(), any()))
+                .thenReturn(1);
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111"))
+                .thenReturn(List.of(fromCard, toCard));
+
+        cardService.processTransaction(order.getId());
+
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("300");
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.stream()
+                .allMatch(posting -> posting.transferId().equals(order.getId()))));
+    }
+
+    @Test
+    void processTransaction_WhenInsufficientFunds_ShouldRejectOrderWithReason() {
+        final TransferOrder order = pendingOrder(BigDecimal.valueOf(1000));
+
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderRepository.complete(eq(order.getId()), eq(TransferStatus.COMPLETED), isNull(), any()))
+                .thenReturn(1);
+        when(cardRepository.findAllForTransfer(userId, List.of("1111", "2222"), "1111")).thenReturn(List.of(
+                transactionCard("1111", BigDecimal.valueOf(500)), transactionCard("2222", BigDecimal.ZERO)
+        ));
+
+        cardService.processTransaction(order.getId());
+
+        verify(orderRepository).complete(
+                eq(order.getId()), eq(TransferStatus.REJECTED), eq("The card is not enough funds"), any()
+        );
+        verifyNoInteractions(ledgerRepository);
+    }
+
+    @Test
+    void processTransaction_WhenOrderAlreadyProcessed_ShouldNotTransfer() {
+        final TransferOrder order = pendingOrder(BigDecimal.valueOf(100));
+
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(orderRepository.complete(eq(order.getId()), eq(TransferStatus.COMPLETED), isNull(), any()))
+                .thenReturn(0);
+
+        cardService.processTransaction(order.getId());
+
+        verifyNoInteractions(cardRepository, ledgerRepository);
+    }
+
+    @Test
+    void performTransaction_WhenPartitionedMode_ShouldDelegateToTransferEngine() {
+        final CardServiceImpl partitionedService = cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PARTITIONED, 1, false), new SimpleMeterRegistry()
+        );
+        final TransactionRequest request = TransactionRequest.builder()
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(BigDecimal.valueOf(100))
+                .build();
+
+        partitionedService.performTransaction(userId, request);
+
+        verify(transferEngine).transfer(eq(userId), eq(request), any(UUID.class));
+        verify(eventPublisher).publishEvent(new CardsChangedEvent(userId));
+        verifyNoInteractions(cardRepository, ledgerRepository);
+    }
+
+    @Test
+    void getOwnTransactions_WhenMoreEntriesThanPageSize_ShouldReturnNextCursor() {
+        final Instant now = Instant.parse("2030-01-01T12:00:00Z");
+        final List<CardLedgerEntry> entries = List.of(
+                ledgerEntry(30L, now), ledgerEntry(20L, now), ledgerEntry(10L, now.minusSeconds(60))
+        );
+
+        when(cardRepository.existsByUserIdAndId(userId, cardId)).thenReturn(true);
+        when(ledgerRepository.findHistoryPage(
+                eq(cardId), eq(Instant.EPOCH), any(Instant.class), any(Instant.class), eq(Long.MAX_VALUE), eq(3)
+        )).thenReturn(entries);
+
+        final CursorPage<CardTransactionData> result = cardService.getOwnTransactions(userId, cardId, null, null, null, 2);
+
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getNextCursor()).isEqualTo(CursorUtil.encode(now.toString(), "20"));
+    }
+
+    @Test
+    void getOwnTransactions_WhenCursorPassed_ShouldContinueAfterCursorKey() {
+        final Instant createdAt = Instant.parse("2030-01-01T12:00:00Z");
+
+        when(cardRepository.existsByUserIdAndId(userId, cardId)).thenReturn(true);
+        when(ledgerRepository.findHistoryPage(
+                eq(cardId), any(Instant.class), any(Instant.class), eq(createdAt), eq(20L), eq(3)
+        )).thenReturn(List.of());
+
+        final CursorPage<CardTransactionData> result = cardService.getOwnTransactions(
+                userId, cardId, null, null, CursorUtil.encode(createdAt.toString(), "20"), 2
+        );
+
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getOwnTransactions_WhenCursorMalformed_ShouldThrowResponseStatusException() {
+        when(cardRepository.existsByUserIdAndId(userId, cardId)).thenReturn(true);
+
+        assertThatThrownBy(() -> cardService.getOwnTransactions(userId, cardId, null, null, "not-a-cursor", 20))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Invalid cursor");
+
+        verifyNoInteractions(ledgerRepository);
+    }
+
+    @Test
+    void getOwnTransactions_WhenCardNotOwned_ShouldThrowResourceNotFoundException() {
+        when(cardRepository.existsByUserIdAndId(userId, cardId)).thenReturn(false);
+
+        assertThatThrownBy(() -> cardService.getOwnTransactions(userId, cardId, null, null, null, 20))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        verifyNoInteractions(ledgerRepository);
+    }
+
+    private CardServiceImpl optimisticCardService(SimpleMeterRegistry meterRegistry) {
+        return cardService(cardProperties(CardProperties.ConcurrencyMode.OPTIMISTIC, 3, false), meterRegistry);
+    }
+
+    private CardServiceImpl conditionalCardService() {
+        return cardService(
+                cardProperties(CardProperties.ConcurrencyMode.CONDITIONAL, 1, false), new SimpleMeterRegistry()
+        );
+    }
+
+    private CardServiceImpl cachedCardService() {
+        return cardService(
+                cardProperties(CardProperties.ConcurrencyMode.PESSIMISTIC, 1, false, false, true),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private CardServiceImpl cardService(CardProperties properties, SimpleMeterRegistry meterRegistry) {
+        final CardMutationExecutor executor = new CardMutationExecutor(
+                TransactionOperations.withoutTransaction(), properties, meterRegistry
+        );
+        return new CardServiceImpl(
+                cardRepository, ledgerRepository, shardRepository, userRepository, cryptoService, cardMapper,
+                executor, new CardLockManager(properties, meterRegistry), idempotencyRegistry, orderRepository,
+                eventPublisher, transferEngine, new CardListCache(properties, meterRegistry), properties
+        );
+    }
+
+    private Card transactionCard(String panLast4, BigDecimal balance) {
+        return Card.builder()
+                .id(UUID.randomUUID())
+                .user(existingUser)
+                .panLast4(panLast4)
+                .balance(balance)
+                .blocked(false)
+                .expiresAt(LocalDate.now().plusYears(1))
+                .build();
+    }
+
+    private static CardView view(Card card) {
+        return new CardView(
+                card.getId(), card.getUser().getId(), card.getPanLast4(), card.getExpiresAt(), card.getCardHolder(),
+                card.getBalance(), card.isBlocked(), card.getBalanceShards()
+        );
+    }
+
+    private CardLedgerEntry ledgerEntry(long id, Instant createdAt) {
+        return CardLedgerEntry.builder()
+                .id(id)
+                .cardId(cardId)
+                .amount(BigDecimal.TEN)
+                .direction(LedgerDirection.CREDIT)
+                .createdAt(createdAt)
+                .transferId(UUID.randomUUID())
+                .applied(true)
+                .build();
+    }
+
+    private TransferOrder pendingOrder(BigDecimal amount) {
+        return TransferOrder.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .fromPanLast4("1111")
+                .toPanLast4("2222")
+                .amount(amount)
+                .status(TransferStatus.PENDING)
+                .build();
+    }
+
+    private static CardMutationExecutor mutationExecutor(CardProperties properties) {
+        return new CardMutationExecutor(
+                TransactionOperations.withoutTransaction(), properties, new SimpleMeterRegistry()
+        );
+    }
+
+    private static CardProperties cardProperties(
+            CardProperties.ConcurrencyMode mode,
+            int maxAttempts,
+            boolean deferredCredits
+    ) {
+        return cardProperties(mode, maxAttempts, deferredCredits, false);
+    }
+
+    private static CardProperties cardProperties(
+            CardProperties.ConcurrencyMode mode,
+            int maxAttempts,
+            boolean deferredCredits,
+            boolean inProcessLocks
+    ) {
+        return cardProperties(mode, maxAttempts, deferredCredits, inProcessLocks, false);
+    }
+
+    private static CardProperties cardProperties(
+            CardProperties.ConcurrencyMode mode,
+            int maxAttempts,
+            boolean deferredCredits,
+            boolean inProcessLocks,
+            boolean cardListCache
+    ) {
+        return new CardProperties(
+                new CardProperties.ConcurrencyProperties(mode, maxAttempts, Duration.ZERO, Duration.ZERO),
+                new CardProperties.LedgerProperties(deferredCredits, 1000, Duration.ofSeconds(1)),
+                new CardProperties.IdempotencyProperties(Duration.ofHours(1), 100, 1000, Duration.ofMinutes(1)),
+                new CardProperties.LockingProperties(inProcessLocks, 16, true, Duration.ofSeconds(1)),
+                new CardProperties.AsyncProperties(4, 100, Duration.ofSeconds(30), 100),
+                new CardProperties.EngineProperties(2, 16, 16, Duration.ofSeconds(5)),
+                new CardProperties.CacheProperties(cardListCache, 100, 100, Duration.ofSeconds(30))
+        );
+    }
 }
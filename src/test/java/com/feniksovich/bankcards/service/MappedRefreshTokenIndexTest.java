@@ -0,0 +1,132 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.service.auth.MappedRefreshTokenIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedRefreshTokenIndexTest {
+
+    @TempDir
+    private Path directory;
+
+    private final Instant now = Instant.now();
+    private final Instant expiresAt = now.plusSeconds(3600);
+
+    @Test
+    void contains_WhenTokenPut_ShouldFindItUntilRemoved() throws IOException {
+        try (MappedRefreshTokenIndex index = index(16)) {
+            final UUID id = UUID.randomUUID();
+
+            index.put(id, UUID.randomUUID(), expiresAt);
+
+            assertThat(index.contains(id, now)).isTrue();
+            assertThat(index.contains(UUID.randomUUID(), now)).isFalse();
+            assertThat(index.contains(id, expiresAt)).isFalse();
+            assertThat(index.remove(id)).isTrue();
+            assertThat(index.contains(id, now)).isFalse();
+            assertThat(index.size()).isZero();
+        }
+    }
+
+    @Test
+    void remove_WhenChainsOverlap_ShouldKeepEveryOtherTokenReachable() throws IOException {
+        try (MappedRefreshTokenIndex index = index(64)) {
+            final List<UUID> ids = new ArrayList<>();
+            for (int i = 0; i < 48; i++) {
+                final UUID id = UUID.randomUUID();
+                index.put(id, UUID.randomUUID(), expiresAt);
+                ids.add(id);
+            }
+
+            // At three quarters load the chains collide, so removals shift entries back
+            for (int i = 0; i < ids.size(); i += 2) {
+                index.remove(ids.get(i));
+            }
+
+            for (int i = 0; i < ids.size(); i++) {
+                assertThat(index.contains(ids.get(i), now)).isEqualTo(i % 2 == 1);
+            }
+            assertThat(index.size()).isEqualTo(24);
+        }
+    }
+
+    @Test
+    void open_WhenReopened_ShouldKeepTokensWithoutReloading() throws IOException {
+        final UUID id = UUID.randomUUID();
+        try (MappedRefreshTokenIndex index = index(16)) {
+            index.put(id, UUID.randomUUID(), expiresAt);
+        }
+
+        try (MappedRefreshTokenIndex index = index(16)) {
+            assertThat(index.contains(id, now)).isTrue();
+            assertThat(index.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void open_WhenCapacityChanged_ShouldThrowIllegalStateException() throws IOException {
+        index(16).close();
+
+        assertThatThrownBy(() -> index(64)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void removeAll_ShouldRemoveOnlyTokensOfUser() throws IOException {
+        try (MappedRefreshTokenIndex index = index(64)) {
+            final UUID userId = UUID.randomUUID();
+            final UUID otherId = UUID.randomUUID();
+            for (int i = 0; i < 20; i++) {
+                index.put(UUID.randomUUID(), userId, expiresAt);
+            }
+            index.put(otherId, UUID.randomUUID(), expiresAt);
+
+            assertThat(index.removeAll(userId)).isEqualTo(20);
+
+            assertThat(index.contains(otherId, now)).isTrue();
+            assertThat(index.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void removeExpired_ShouldFreeSlotsOfExpiredTokens() throws IOException {
+        try (MappedRefreshTokenIndex index = index(64)) {
+            final UUID liveId = UUID.randomUUID();
+            for (int i = 0; i < 20; i++) {
+                index.put(UUID.randomUUID(), UUID.randomUUID(), now.minusSeconds(1));
+            }
+            index.put(liveId, UUID.randomUUID(), expiresAt);
+
+            assertThat(index.removeExpired(now)).isEqualTo(20);
+
+            assertThat(index.contains(liveId, now)).isTrue();
+            assertThat(index.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void put_WhenLoadLimitReached_ShouldThrowIllegalStateException() throws IOException {
+        try (MappedRefreshTokenIndex index = index(16)) {
+            for (int i = 0; i < 12; i++) {
+                index.put(UUID.randomUUID(), UUID.randomUUID(), expiresAt);
+            }
+
+            assertThatThrownBy(() -> index.put(UUID.randomUUID(), UUID.randomUUID(), expiresAt))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("full");
+        }
+    }
+
+    private MappedRefreshTokenIndex index(long capacity) throws IOException {
+        return new MappedRefreshTokenIndex(directory.resolve("refresh-tokens.idx"), capacity);
+    }
+}
@@ -0,0 +1,189 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.entity.User;
+import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.exception.ResourceConflictException;
+import com.feniksovich.bankcards.repository.CardBalanceShardRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.service.card.CardService;
+import com.feniksovich.bankcards.service.card.PartitionedTransferEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load benchmark of the partitioned single-writer transfer engine against the configured
+ * {@code cards.concurrency.mode} on the same set of cards.
+ * <p>
+ * Requires the datasource from {@code application.yml} to be reachable, so it is
+ * opt-in: run with {@code mvn test -Dstress=true -Dtest=PartitionedTransferEngineBenchmarkTest}
+ * and compare the logged transfers/s of both runs.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class PartitionedTransferEngineBenchmarkTest {
+
+    private static final int CARDS = 32;
+    private static final int THREADS = 64;
+    private static final int TRANSFERS = 10_000;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardLedgerRepository ledgerRepository;
+
+    @Autowired
+    private CardBalanceShardRepository shardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private CardProperties cardProperties;
+
+    private UUID userId;
+    private PartitionedTransferEngine engine;
+    private final List<String> panLast4s = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        final User user = userRepository.save(User.builder()
+                .phoneNumber(String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)))
+                .password("benchmark")
+                .firstName("Engine")
+                .lastName("Benchmark")
+                .role(Role.USER)
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < CARDS; i++) {
+            final CardData cardData = cardService.create(userId);
+            final Card card = cardRepository.findById(cardData.getId()).orElseThrow();
+            card.setBalance(INITIAL_BALANCE);
+            cardRepository.save(card);
+            panLast4s.add(cardData.getPanLast4());
+        }
+
+        engine = new PartitionedTransferEngine(
+                cardRepository, ledgerRepository, shardRepository, transactionOperations,
+                new CardProperties(
+                        new CardProperties.ConcurrencyProperties(
+                                CardProperties.ConcurrencyMode.PARTITIONED,
+                                cardProperties.concurrency().maxAttempts(),
+                                cardProperties.concurrency().initialBackoff(),
+                                cardProperties.concurrency().maxBackoff()
+                        ),
+                        cardProperties.ledger(),
+                        cardProperties.idempotency(),
+                        cardProperties.locking(),
+                        cardProperties.async(),
+                        cardProperties.engine(),
+                        cardProperties.cache()
+                )
+        );
+        engine.start();
+    }
+
+    @AfterEach
+    void cleanup() {
+        engine.stop();
+        // Cards and ledger entries are removed by ON DELETE CASCADE foreign keys
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void transfer_WhenComparedWithConfiguredMode_ShouldConserveTotalBalance() throws InterruptedException {
+        run(cardProperties.concurrency().mode().name(), request -> cardService.performTransaction(userId, request));
+        run("PARTITIONED engine", request -> engine.transfer(userId, request, UUID.randomUUID()));
+
+        // Credits handed off to the ledger snapshotter are included in the balances reported by the service
+        final BigDecimal total = cardService.getAllOwned(userId, Pageable.unpaged())
+                .stream()
+                .map(CardData::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)));
+    }
+
+    private void run(String name, Consumer<TransactionRequest> transfer) throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(TRANSFERS);
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < TRANSFERS; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    transfer.accept(randomTransfer());
+                } catch (CardOperationException | ResourceConflictException ex) {
+                    rejected.incrementAndGet();
+                } catch (Exception ex) {
+                    log.error("Unexpected transfer failure", ex);
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        final double throughput = TRANSFERS / (elapsedNanos / 1_000_000_000.0);
+        log.info("{}: {} transfers ({} rejected) in {} ms ({} transfers/s)",
+                name, TRANSFERS, rejected.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                String.format("%.1f", throughput));
+        assertThat(failed.get()).isZero();
+    }
+
+    private TransactionRequest randomTransfer() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int from = random.nextInt(CARDS);
+        final int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+        return TransactionRequest.builder()
+                .fromPanLast4(panLast4s.get(from))
+                .toPanLast4(panLast4s.get(to))
+                .amount(BigDecimal.valueOf(random.nextInt(1, 50)))
+                .build();
+    }
+}
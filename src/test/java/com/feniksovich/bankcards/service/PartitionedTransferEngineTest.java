@@ -0,0 +1,163 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.config.CardProperties;
+import com.feniksovich.bankcards.dto.card.TransactionRequest;
+import com.feniksovich.bankcards.entity.Card;
+import com.feniksovich.bankcards.entity.LedgerDirection;
+import com.feniksovich.bankcards.exception.CardOperationException;
+import com.feniksovich.bankcards.repository.CardBalanceShardRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepository;
+import com.feniksovich.bankcards.repository.CardLedgerRepositoryCustom;
+import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.service.card.PartitionedTransferEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionedTransferEngineTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardLedgerRepository ledgerRepository;
+
+    @Mock
+    private CardBalanceShardRepository shardRepository;
+
+    private PartitionedTransferEngine engine;
+    private UUID userId;
+
+    @BeforeEach
+    void setup() {
+        userId = UUID.randomUUID();
+        engine = new PartitionedTransferEngine(
+                cardRepository, ledgerRepository, shardRepository, TransactionOperations.withoutTransaction(),
+                new CardProperties(
+                        new CardProperties.ConcurrencyProperties(
+                                CardProperties.ConcurrencyMode.PARTITIONED, 1, Duration.ZERO, Duration.ZERO
+                        ),
+                        new CardProperties.LedgerProperties(false, 1000, Duration.ofSeconds(1)),
+                        new CardProperties.IdempotencyProperties(Duration.ofHours(1), 100, 1000, Duration.ofMinutes(1)),
+                        new CardProperties.LockingProperties(false, 16, true, Duration.ofSeconds(1)),
+                        new CardProperties.AsyncProperties(4, 100, Duration.ofSeconds(30), 100),
+                        new CardProperties.EngineProperties(2, 16, 16, Duration.ofSeconds(5)),
+                        new CardProperties.CacheProperties(false, 100, 100, Duration.ofSeconds(30))
+                )
+        );
+        engine.start();
+    }
+
+    @AfterEach
+    void cleanup() {
+        engine.stop();
+    }
+
+    @Test
+    void transfer_WhenCardsInSamePartition_ShouldApplyBothBalancesInOneCommit() {
+        final List<String> panLast4s = panLast4sInPartitions(0, 0);
+        final Card fromCard = card(panLast4s.get(0), BigDecimal.valueOf(500));
+        final Card toCard = card(panLast4s.get(1), BigDecimal.valueOf(200));
+
+        when(cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(userId, Set.copyOf(panLast4s)))
+                .thenReturn(List.of(fromCard, toCard));
+
+        engine.transfer(userId, request(panLast4s, 100), UUID.randomUUID());
+
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("300");
+        verify(cardRepository).saveAll(List.of(fromCard, toCard));
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.size() == 2
+                && postings.stream().allMatch(CardLedgerRepositoryCustom.Posting::applied)));
+        verify(ledgerRepository, never()).applyPendingCredits(anyCollection());
+    }
+
+    @Test
+    void transfer_WhenCardsInDifferentPartitions_ShouldHandOffCreditToDestinationPartition() {
+        final List<String> panLast4s = panLast4sInPartitions(0, 1);
+        final Card fromCard = card(panLast4s.get(0), BigDecimal.valueOf(500));
+        final Card toCard = card(panLast4s.get(1), BigDecimal.valueOf(200));
+        final UUID transferId = UUID.randomUUID();
+
+        when(cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(userId, Set.of(panLast4s.get(0))))
+                .thenReturn(List.of(fromCard));
+        when(cardRepository.findAllByUserIdAndPanLast4In(userId, Set.of(panLast4s.get(1))))
+                .thenReturn(List.of(toCard));
+
+        engine.transfer(userId, request(panLast4s, 100), transferId);
+
+        assertThat(fromCard.getBalance()).isEqualByComparingTo("400");
+        assertThat(toCard.getBalance()).isEqualByComparingTo("200");
+        verify(cardRepository).saveAll(List.of(fromCard));
+        verify(ledgerRepository).appendAll(argThat(postings -> postings.stream().anyMatch(posting ->
+                posting.direction() == LedgerDirection.CREDIT && !posting.applied())));
+        verify(ledgerRepository).applyPendingCredits(List.of(transferId));
+    }
+
+    @Test
+    void transfer_WhenInsufficientFunds_ShouldThrowCardOperationException() {
+        final List<String> panLast4s = panLast4sInPartitions(1, 1);
+
+        when(cardRepository.findAllByUserIdAndPanLast4InOrderByIdAsc(userId, Set.copyOf(panLast4s)))
+                .thenReturn(List.of(
+                        card(panLast4s.get(0), BigDecimal.valueOf(50)), card(panLast4s.get(1), BigDecimal.ZERO)
+                ));
+
+        assertThatThrownBy(() -> engine.transfer(userId, request(panLast4s, 100), UUID.randomUUID()))
+                .isInstanceOf(CardOperationException.class)
+                .hasMessageContaining("not enough funds");
+
+        verify(cardRepository, never()).saveAll(anyList());
+        verify(ledgerRepository, never()).appendAll(anyCollection());
+    }
+
+    // Picks last 4 PAN digits of two different user cards that hash to the given partitions
+    private List<String> panLast4sInPartitions(int fromPartition, int toPartition) {
+        final List<String> candidates = IntStream.range(1000, 10000).mapToObj(String::valueOf).toList();
+        final String fromPanLast4 = candidates.stream()
+                .filter(panLast4 -> engine.partitionOf(userId, panLast4) == fromPartition)
+                .findFirst()
+                .orElseThrow();
+        final String toPanLast4 = candidates.stream()
+                .filter(panLast4 -> !panLast4.equals(fromPanLast4))
+                .filter(panLast4 -> engine.partitionOf(userId, panLast4) == toPartition)
+                .findFirst()
+                .orElseThrow();
+        return List.of(fromPanLast4, toPanLast4);
+    }
+
+    private TransactionRequest request(List<String> panLast4s, long amount) {
+        return TransactionRequest.builder()
+                .fromPanLast4(panLast4s.get(0))
+                .toPanLast4(panLast4s.get(1))
+                .amount(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+    private static Card card(String panLast4, BigDecimal balance) {
+        return Card.builder()
+                .id(UUID.randomUUID())
+                .panLast4(panLast4)
+                .balance(balance)
+                .blocked(false)
+                .expiresAt(LocalDate.now().plusYears(1))
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.dto.card.CardData;
+import com.feniksovich.bankcards.dto.user.UserData;
+import com.feniksovich.bankcards.entity.Role;
+import com.feniksovich.bankcards.entity.User;
+import com.feniksovich.bankcards.mapper.CardMapper;
+import com.feniksovich.bankcards.mapper.UserMapper;
+import com.feniksovich.bankcards.repository.CardRepository;
+import com.feniksovich.bankcards.repository.CardView;
+import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.service.card.CardService;
+import com.feniksovich.bankcards.testutil.Microbenchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark of read-only card and user pages loaded as managed entities and mapped to DTOs
+ * against the same pages selected straight into constructor projections.
+ * <p>
+ * Requires the datasource from {@code application.yml} to be reachable, so it is
+ * opt-in: run with {@code mvn test -Dstress=true -Dtest=ReadProjectionBenchmarkTest}
+ * and compare the logged latency and allocated bytes per page load.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class ReadProjectionBenchmarkTest {
+
+    private static final int CARDS = 100;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1_000;
+    private static final Pageable PAGE = PageRequest.of(0, 50);
+    // Other users may exist in the database, so both queries must return the same page of them
+    private static final Pageable USERS_PAGE = PageRequest.of(0, 50, Sort.by("id"));
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+    private UUID userId;
+
+    @BeforeEach
+    void setup() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        final User user = userRepository.save(User.builder()
+                .phoneNumber(String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L)))
+                .password("benchmark")
+                .firstName("Projection")
+                .lastName("Benchmark")
+                .role(Role.USER)
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < CARDS; i++) {
+            cardService.create(userId);
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        // Cards are removed by ON DELETE CASCADE foreign key
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void cardsPage_WhenComparedWithEntityMapping_ShouldReturnSameData() {
+        final Page<CardData> entities = run("Cards: entities + mapper", () ->
+                cardRepository.findAllByUserId(userId, PAGE).map(cardMapper::toCardData)
+        );
+        final Page<CardData> projections = run("Cards: constructor projection", () ->
+                cardRepository.findAllViewsByUserId(userId, PAGE).map(CardView::toCardData)
+        );
+
+        assertThat(projections.getContent()).containsExactlyInAnyOrderElementsOf(entities.getContent());
+    }
+
+    @Test
+    void usersPage_WhenComparedWithEntityMapping_ShouldReturnSameData() {
+        final Page<UserData> entities = run("Users: entities + mapper", () ->
+                userRepository.findAll(USERS_PAGE).map(userMapper::toUserData)
+        );
+        final Page<UserData> projections = run("Users: constructor projection", () ->
+                userRepository.findAllData(USERS_PAGE)
+        );
+
+        assertThat(projections.getContent()).containsExactlyElementsOf(entities.getContent());
+        assertThat(projections.getTotalElements()).isEqualTo(entities.getTotalElements());
+    }
+
+    private <T> T run(String name, Supplier<T> page) {
+        return Microbenchmark.run(name, WARMUP_ITERATIONS, ITERATIONS, _ ->
+                readOnlyTransaction.execute(_ -> page.get())
+        ).last();
+    }
+}
@@ -0,0 +1,96 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.repository.UserRefreshTokenRepository;
+import com.feniksovich.bankcards.service.auth.RefreshTokenPartitionMaintainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static com.feniksovich.bankcards.testutil.SecurityPropertiesBuilder.securityProperties;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenPartitionMaintainerTest {
+
+    private static final int PURGE_BATCH_SIZE = 2;
+
+    @Mock
+    private UserRefreshTokenRepository repository;
+
+    private RefreshTokenPartitionMaintainer maintainer;
+    private YearMonth current;
+
+    @BeforeEach
+    void setup() {
+        maintainer = new RefreshTokenPartitionMaintainer(
+                repository,
+                TransactionOperations.withoutTransaction(),
+                securityProperties()
+                        .refreshToken(new SecurityProperties.TokenProperties(null, Duration.ofDays(60)))
+                        .refreshTokenRegistry(new SecurityProperties.RefreshTokenRegistryProperties(
+                                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofHours(1), PURGE_BATCH_SIZE,
+                                SecurityProperties.RefreshTokenStore.DATABASE, null
+                        ))
+                        .build()
+        );
+        current = YearMonth.now();
+    }
+
+    @Test
+    void maintain_ShouldCreateMissingPartitionsForRefreshTokenLifetime() {
+        when(repository.findMonthlyPartitions()).thenReturn(List.of(current));
+
+        maintainer.maintain();
+
+        final YearMonth last = YearMonth.from(LocalDateTime.now().plusDays(60));
+        for (YearMonth month = current.plusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+            verify(repository).createMonthlyPartition(month);
+        }
+        verify(repository, never()).createMonthlyPartition(current);
+        verify(repository, never()).createMonthlyPartition(last.plusMonths(1));
+    }
+
+    @Test
+    void maintain_ShouldDropOnlyPartitionsBeforeCurrentMonth() {
+        when(repository.findMonthlyPartitions()).thenReturn(List.of(
+                current.minusMonths(2), current.minusMonths(1), current, current.plusMonths(1), current.plusMonths(2)
+        ));
+
+        maintainer.maintain();
+
+        verify(repository).dropMonthlyPartition(current.minusMonths(2));
+        verify(repository).dropMonthlyPartition(current.minusMonths(1));
+        verify(repository, times(2)).dropMonthlyPartition(any());
+    }
+
+    @Test
+    void maintain_WhenPartitionCreationFails_ShouldContinueWithOtherMonths() {
+        when(repository.findMonthlyPartitions()).thenReturn(List.of());
+        doThrow(new IllegalStateException("Lock timeout")).when(repository).createMonthlyPartition(current);
+
+        maintainer.maintain();
+
+        verify(repository).createMonthlyPartition(current.plusMonths(1));
+        verify(repository).deleteExpiredUnpartitioned(any(), anyInt());
+    }
+
+    @Test
+    void maintain_ShouldPurgeDefaultPartitionInBatchesUntilEmpty() {
+        when(repository.findMonthlyPartitions()).thenReturn(List.of());
+        when(repository.deleteExpiredUnpartitioned(any(), eq(PURGE_BATCH_SIZE)))
+                .thenReturn(PURGE_BATCH_SIZE, PURGE_BATCH_SIZE, 1, 0);
+
+        maintainer.maintain();
+
+        verify(repository, times(4)).deleteExpiredUnpartitioned(any(), eq(PURGE_BATCH_SIZE));
+    }
+}
@@ -0,0 +1,120 @@
+package com.feniksovich.bankcards.service;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+import com.feniksovich.bankcards.repository.UserRefreshTokenRepository;
+import com.feniksovich.bankcards.security.JwtToken;
+import com.feniksovich.bankcards.service.auth.MappedUserRefreshTokenService;
+import com.feniksovich.bankcards.service.auth.UserRefreshTokenService;
+import com.feniksovich.bankcards.service.auth.UserRefreshTokenServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.feniksovich.bankcards.testutil.SecurityPropertiesBuilder.securityProperties;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmark of the refresh-token registry backed by the database with an on-heap id map
+ * against the off-heap index mapped from a local file: heap retained by the live tokens
+ * and the latency distribution of {@code isTracked}.
+ * <p>
+ * Opt-in: run with {@code mvn test -Dstress=true -Dtest=RefreshTokenStoreBenchmarkTest}
+ * ({@code -Dtokens=N} changes the number of live tokens) and compare the logged numbers.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class RefreshTokenStoreBenchmarkTest {
+
+    private static final int TOKENS = Integer.getInteger("tokens", 2_000_000);
+    private static final int WARMUP_LOOKUPS = 1_000_000;
+    private static final int LOOKUPS = 2_000_000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void isTracked_ShouldFindEveryTrackedTokenInBothStores() throws Exception {
+        final Instant now = Instant.now();
+        final JwtToken[] tokens = new JwtToken[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = JwtToken.refreshToken(
+                    UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(3600), Set.of(), 0
+            );
+        }
+
+        final UserRefreshTokenServiceImpl database = new UserRefreshTokenServiceImpl(
+                mock(UserRefreshTokenRepository.class), TransactionOperations.withoutTransaction()
+        );
+        run("Database with on-heap map", database, tokens, database::flush);
+
+        final MappedUserRefreshTokenService mapped = new MappedUserRefreshTokenService(properties());
+        try {
+            run("Off-heap mapped index", mapped, tokens, mapped::flush);
+        } finally {
+            mapped.stop();
+        }
+    }
+
+    private static void run(String name, UserRefreshTokenService store, JwtToken[] tokens, Runnable flush) {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final long heapBefore = usedHeapAfterGc(memory);
+        for (JwtToken token : tokens) {
+            // Copied ids, as in production the tracked token does not outlive the request
+            store.track(JwtToken.refreshToken(
+                    copy(token.id()), copy(token.userId()), token.createdAt(), token.expiresAt(), Set.of(), 0
+            ));
+        }
+        flush.run();
+        final long heapAfter = usedHeapAfterGc(memory);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+            assertThat(store.isTracked(tokens[random.nextInt(tokens.length)])).isTrue();
+        }
+        final long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            final JwtToken token = tokens[random.nextInt(tokens.length)];
+            final long startedAt = System.nanoTime();
+            final boolean tracked = store.isTracked(token);
+            latencies[i] = System.nanoTime() - startedAt;
+            assertThat(tracked).isTrue();
+        }
+        Arrays.sort(latencies);
+
+        log.info("{}: {} tokens, {} MB heap retained, isTracked p50 {} ns, p99 {} ns, p99.9 {} ns",
+                name, tokens.length, (heapAfter - heapBefore) / (1024 * 1024),
+                latencies[LOOKUPS / 2], latencies[(int) (LOOKUPS * 0.99)], latencies[(int) (LOOKUPS * 0.999)]);
+    }
+
+    private static UUID copy(UUID id) {
+        return new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private SecurityProperties properties() {
+        return securityProperties()
+                .refreshTokenRegistry(new SecurityProperties.RefreshTokenRegistryProperties(
+                        null, null, null, 0, SecurityProperties.RefreshTokenStore.MAPPED,
+                        new SecurityProperties.MappedIndexProperties(
+                                directory.resolve("refresh-tokens.idx").toString(), TOKENS * 2L
+                        )
+                ))
+                .build();
+    }
+}
@@ -7,13 +7,16 @@ import com.feniksovich.bankcards.service.auth.UserRefreshTokenServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,7 +28,6 @@ class UserRefreshTokenServiceTest {
     @Mock
     private UserRefreshTokenRepository repository;
 
-    @InjectMocks
     private UserRefreshTokenServiceImpl userRefreshTokenService;
 
     private JwtToken refreshToken;
@@ -35,16 +37,12 @@ class UserRefreshTokenServiceTest {
 
     @BeforeEach
     void setup() {
+        userRefreshTokenService = new UserRefreshTokenServiceImpl(repository, TransactionOperations.withoutTransaction());
+
         userId = UUID.randomUUID();
         tokenId = UUID.randomUUID();
-        
-        refreshToken = JwtToken.refreshToken(
-                tokenId,
-                userId,
-                Instant.now(),
-                Instant.now().plus(90, ChronoUnit.DAYS),
-                Collections.emptyList()
-        );
+
+        refreshToken = refreshToken(tokenId, userId);
 
         userRefreshToken = UserRefreshToken.builder()
                 .id(tokenId)
@@ -54,26 +52,34 @@ class UserRefreshTokenServiceTest {
     }
 
     @Test
-    void track_WhenValidToken_ShouldSaveToken() {
-        when(repository.save(any(UserRefreshToken.class))).thenReturn(userRefreshToken);
-
+    void track_WhenValidToken_ShouldTrackWithoutIoAndPersistOnFlush() {
         userRefreshTokenService.track(refreshToken);
 
-        verify(repository).save(any(UserRefreshToken.class));
+        assertThat(userRefreshTokenService.isTracked(refreshToken)).isTrue();
+        verifyNoInteractions(repository);
+
+        userRefreshTokenService.flush();
+
+        final ArgumentCaptor<Collection<UserRefreshToken>> captor = ArgumentCaptor.captor();
+        verify(repository).insertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement().satisfies(token -> {
+            assertThat(token.getId()).isEqualTo(tokenId);
+            assertThat(token.getUserId()).isEqualTo(userId);
+        });
     }
 
     @Test
-    void isTracked_WhenTokenExists_ShouldReturnTrue() {
-        when(repository.existsById(tokenId)).thenReturn(true);
+    void isTracked_WhenTokenLoadedOnStart_ShouldReturnTrueWithoutQuery() {
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of(userRefreshToken));
 
-        final boolean result = userRefreshTokenService.isTracked(refreshToken);
+        userRefreshTokenService.start();
 
-        assertThat(result).isTrue();
-        verify(repository).existsById(tokenId);
+        assertThat(userRefreshTokenService.isTracked(refreshToken)).isTrue();
+        verify(repository, never()).existsById(any());
     }
 
     @Test
-    void isTracked_WhenTokenNotExists_ShouldReturnFalse() {
+    void isTracked_WhenTokenUnknown_ShouldCheckTable() {
         when(repository.existsById(tokenId)).thenReturn(false);
 
         final boolean result = userRefreshTokenService.isTracked(refreshToken);
@@ -83,20 +89,85 @@ class UserRefreshTokenServiceTest {
     }
 
     @Test
-    void invalidate_WhenValidToken_ShouldDeleteToken() {
-        doNothing().when(repository).deleteById(tokenId);
+    void invalidate_WhenTokenPersisted_ShouldRejectBeforeFlushAndDeleteOnFlush() {
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of(userRefreshToken));
+        userRefreshTokenService.start();
+
+        userRefreshTokenService.invalidate(refreshToken);
+
+        assertThat(userRefreshTokenService.isTracked(refreshToken)).isFalse();
+        verify(repository, never()).existsById(any());
 
+        userRefreshTokenService.flush();
+
+        verify(repository).deleteAllByIdInBatch(List.of(tokenId));
+    }
+
+    @Test
+    void invalidate_WhenTrackedInSameFlushWindow_ShouldNotPersistToken() {
+        userRefreshTokenService.track(refreshToken);
         userRefreshTokenService.invalidate(refreshToken);
 
-        verify(repository).deleteById(tokenId);
+        userRefreshTokenService.flush();
+
+        verify(repository).insertAll(List.of());
+        verify(repository).deleteAllByIdInBatch(List.of(tokenId));
     }
 
     @Test
-    void invalidateAll_WhenValidUserId_ShouldDeleteAllUserTokens() {
-        doNothing().when(repository).deleteAllByUserId(userId);
+    void invalidateAll_WhenValidUserId_ShouldRejectAllUserTokensAndDeleteOnFlush() {
+        final JwtToken otherToken = refreshToken(UUID.randomUUID(), userId);
+        userRefreshTokenService.track(refreshToken);
+        userRefreshTokenService.track(otherToken);
 
         userRefreshTokenService.invalidateAll(userId);
 
-        verify(repository).deleteAllByUserId(userId);
+        assertThat(userRefreshTokenService.isTracked(refreshToken)).isFalse();
+        assertThat(userRefreshTokenService.isTracked(otherToken)).isFalse();
+        verify(repository, never()).existsById(any());
+
+        userRefreshTokenService.flush();
+
+        verify(repository).deleteAllByUserIdIn(List.of(userId));
+    }
+
+    @Test
+    void reload_WhenInvalidatedAfterFlush_ShouldNotBringTokenBack() {
+        when(repository.findAllByExpiresAtAfter(any())).thenReturn(List.of(userRefreshToken));
+        // The token is invalidated while its row is still in the table
+        doAnswer(_ -> {
+            userRefreshTokenService.invalidate(refreshToken);
+            return null;
+        }).when(repository).insertAll(any());
+        userRefreshTokenService.track(refreshToken(UUID.randomUUID(), UUID.randomUUID()));
+
+        userRefreshTokenService.reload();
+
+        assertThat(userRefreshTokenService.isTracked(refreshToken)).isFalse();
+    }
+
+    @Test
+    void flush_WhenPersistenceFails_ShouldRetryOnNextFlush() {
+        userRefreshTokenService.track(refreshToken);
+        doThrow(new IllegalStateException("Connection refused"))
+                .doNothing()
+                .when(repository).insertAll(any());
+
+        userRefreshTokenService.flush();
+        userRefreshTokenService.flush();
+        userRefreshTokenService.flush();
+
+        verify(repository, times(2)).insertAll(List.of(userRefreshToken));
+    }
+
+    private static JwtToken refreshToken(UUID tokenId, UUID userId) {
+        return JwtToken.refreshToken(
+                tokenId,
+                userId,
+                Instant.now(),
+                Instant.now().plus(90, ChronoUnit.DAYS),
+                Collections.emptyList(),
+                0
+        );
     }
 }
@@ -7,15 +7,20 @@ import com.feniksovich.bankcards.entity.Role;
 import com.feniksovich.bankcards.entity.User;
 import com.feniksovich.bankcards.exception.ResourceConflictException;
 import com.feniksovich.bankcards.exception.ResourceNotFoundException;
+import com.feniksovich.bankcards.mapper.UserMapper;
+import com.feniksovich.bankcards.mapper.UserMapperImpl;
 import com.feniksovich.bankcards.repository.UserRepository;
+import com.feniksovich.bankcards.security.UserRevocationRegistry;
+import com.feniksovich.bankcards.service.user.UserChangedEvent;
 import com.feniksovich.bankcards.service.user.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -39,8 +44,14 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Spy
+    private UserMapper userMapper = new UserMapperImpl();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
-    private ModelMapper modelMapper;
+    private UserRevocationRegistry revocationRegistry;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -79,35 +90,25 @@ class UserServiceTest {
                 .password(rawPassword)
                 .build();
 
-        final User user = User.builder()
-                .id(UUID.randomUUID())
-                .lastName("Иванов")
-                .firstName("Иван")
-                .phoneNumber("1234567890")
-                .password(encodedPassword)
-                .build();
-
-        final UserData userData = UserData.builder()
-                .id(user.getId())
-                .lastName("Иванов")
-                .firstName("Иван")
-                .phoneNumber("1234567890")
-                .build();
+        final UUID userId = UUID.randomUUID();
 
         when(userRepository.existsByPhoneNumber(request.getPhoneNumber())).thenReturn(false);
         when(passwordEncoder.encode(rawPassword)).thenReturn(encodedPassword);
-        when(modelMapper.map(request, User.class)).thenReturn(user);
-        when(userRepository.save(user)).thenReturn(user);
-        when(modelMapper.map(user, UserData.class)).thenReturn(userData);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            final User user = invocation.getArgument(0);
+            user.setId(userId);
+            return user;
+        });
 
         final UserData result = userService.register(request);
 
-        assertThat(result).isEqualTo(userData);
+        assertThat(result.getId()).isEqualTo(userId);
+        assertThat(result.getLastName()).isEqualTo("Иванов");
+        assertThat(result.getFirstName()).isEqualTo("Иван");
+        assertThat(result.getPhoneNumber()).isEqualTo("1234567890");
         verify(userRepository).existsByPhoneNumber(request.getPhoneNumber());
         verify(passwordEncoder).encode(rawPassword);
-        verify(modelMapper).map(request, User.class);
-        verify(userRepository).save(user);
-        verify(modelMapper).map(user, UserData.class);
+        verify(userRepository).save(argThat(user -> user.getPassword().equals(encodedPassword)));
     }
 
     @Test
@@ -123,81 +124,77 @@ class UserServiceTest {
                 .hasMessageContaining("already exists");
 
         verify(userRepository).existsByPhoneNumber(request.getPhoneNumber());
-        verifyNoMoreInteractions(userRepository, modelMapper);
+        verifyNoMoreInteractions(userRepository, userMapper);
     }
 
     @Test
     void getById_WhenUserExists_ShouldReturnUserData() {
         final UUID userId = existingUser.getId();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(modelMapper.map(existingUser, UserData.class)).thenReturn(existingUserData);
+        when(userRepository.findDataById(userId)).thenReturn(Optional.of(existingUserData));
 
         final UserData result = userService.getById(userId);
 
         assertThat(result).isEqualTo(existingUserData);
-        verify(userRepository).findById(userId);
-        verify(modelMapper).map(existingUser, UserData.class);
+        verify(userRepository).findDataById(userId);
+        verifyNoInteractions(userMapper);
     }
 
     @Test
     void getById_WhenUserNotFound_ShouldThrowResourceNotFoundException() {
         final UUID userId = UUID.randomUUID();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findDataById(userId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.getById(userId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(userRepository).findById(userId);
-        verifyNoMoreInteractions(modelMapper);
+        verify(userRepository).findDataById(userId);
+        verifyNoMoreInteractions(userMapper);
     }
 
     @Test
     void getByPhoneNumber_WhenUserExists_ShouldReturnUserData() {
         final String phoneNumber = existingUser.getPhoneNumber();
 
-        when(userRepository.findByPhoneNumber(phoneNumber)).thenReturn(Optional.of(existingUser));
-        when(modelMapper.map(existingUser, UserData.class)).thenReturn(existingUserData);
+        when(userRepository.findDataByPhoneNumber(phoneNumber)).thenReturn(Optional.of(existingUserData));
 
         final UserData result = userService.getByPhoneNumber(phoneNumber);
 
         assertThat(result).isEqualTo(existingUserData);
-        verify(userRepository).findByPhoneNumber(phoneNumber);
-        verify(modelMapper).map(existingUser, UserData.class);
+        verify(userRepository).findDataByPhoneNumber(phoneNumber);
+        verifyNoInteractions(userMapper);
     }
 
     @Test
     void getByPhoneNumber_WhenUserNotFound_ShouldThrowResourceNotFoundException() {
         final String phoneNumber = "999999999";
 
-        when(userRepository.findByPhoneNumber(phoneNumber)).thenReturn(Optional.empty());
+        when(userRepository.findDataByPhoneNumber(phoneNumber)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.getByPhoneNumber(phoneNumber))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("not found");
 
-        verify(userRepository).findByPhoneNumber(phoneNumber);
-        verifyNoMoreInteractions(modelMapper);
+        verify(userRepository).findDataByPhoneNumber(phoneNumber);
+        verifyNoMoreInteractions(userMapper);
     }
 
     @Test
     void getAll_WhenUsersExist_ShouldReturnPageOfUserData() {
         final Pageable pageable = PageRequest.of(0, 10);
-        final List<User> users = List.of(existingUser);
-        final Page<User> userPage = new PageImpl<>(users, pageable, 1);
+        final Page<UserData> userPage = new PageImpl<>(List.of(existingUserData), pageable, 1);
 
-        when(userRepository.findAll(pageable)).thenReturn(userPage);
-        when(modelMapper.map(existingUser, UserData.class)).thenReturn(existingUserData);
+        when(userRepository.findAllData(pageable)).thenReturn(userPage);
 
         final Page<UserData> result = userService.getAll(pageable);
 
         assertThat(result.getContent()).hasSize(1);
         assertThat(result.getContent().getFirst()).isEqualTo(existingUserData);
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(userRepository).findAll(pageable);
-        verify(modelMapper).map(existingUser, UserData.class);
+        verify(userRepository).findAllData(pageable);
+        verifyNoInteractions(userMapper);
     }
 
     @Test
@@ -214,8 +211,10 @@ class UserServiceTest {
         userService.updateById(userId, request);
 
         verify(userRepository).findById(userId);
-        verify(modelMapper).map(request, existingUser);
         verify(userRepository).save(existingUser);
+        assertThat(existingUser.getFirstName()).isEqualTo("Петр");
+        assertThat(existingUser.getLastName()).isEqualTo("Петров");
+        verify(eventPublisher).publishEvent(new UserChangedEvent(userId));
     }
 
     @Test
@@ -233,7 +232,8 @@ class UserServiceTest {
                 .hasMessageContaining("not found");
 
         verify(userRepository).findById(userId);
-        verifyNoMoreInteractions(modelMapper, userRepository);
+        verifyNoMoreInteractions(userMapper, userRepository);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -242,5 +242,7 @@ class UserServiceTest {
         doNothing().when(userRepository).deleteById(userId);
         userService.deleteById(userId);
         verify(userRepository).deleteById(userId);
+        verify(revocationRegistry).revoke(userId);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(userId));
     }
 }
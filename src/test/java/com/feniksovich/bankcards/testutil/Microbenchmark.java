@@ -0,0 +1,62 @@
+package com.feniksovich.bankcards.testutil;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Harness of the opt-in micro-benchmarks: runs an operation on the calling thread
+ * after a warm-up and logs the time and the bytes allocated per operation.
+ * <p>
+ * Allocation is read from {@link com.sun.management.ThreadMXBean}, so it counts
+ * only what the calling thread allocates.
+ */
+@Slf4j
+public final class Microbenchmark {
+
+    private Microbenchmark() {
+    }
+
+    /**
+     * Measured operation result.
+     *
+     * @param last       value returned by the last measured call
+     * @param nanosPerOp average time per call
+     * @param bytesPerOp average bytes allocated per call
+     */
+    public record Result<T>(T last, double nanosPerOp, long bytesPerOp) {}
+
+    /**
+     * @param name             name shown in the log line
+     * @param warmupIterations calls made before measuring
+     * @param iterations       measured calls
+     * @param operation        operation, given the number of the call within its phase
+     * @return result of the measured calls
+     */
+    public static <T> Result<T> run(String name, int warmupIterations, int iterations, IntFunction<T> operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.apply(i);
+        }
+
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().threadId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        final long startedAt = System.nanoTime();
+
+        T last = null;
+        for (int i = 0; i < iterations; i++) {
+            last = operation.apply(i);
+        }
+
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        final Result<T> result = new Result<>(last, (double) elapsedNanos / iterations, allocated / iterations);
+        log.info("{}: {} ns/op, {} B allocated/op, {} ms total",
+                name, String.format("%.1f", result.nanosPerOp()), result.bytesPerOp(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.feniksovich.bankcards.testutil;
+
+import com.feniksovich.bankcards.config.SecurityProperties;
+
+/**
+ * Test builder of {@link SecurityProperties} that sets only the property groups a test needs
+ * and leaves the rest {@code null}.
+ * <p>
+ * A new property group is added here once instead of to every test that builds
+ * {@link SecurityProperties} through its positional constructor.
+ */
+public final class SecurityPropertiesBuilder {
+
+    private SecurityProperties.TokenProperties accessToken;
+    private SecurityProperties.TokenProperties refreshToken;
+    private SecurityProperties.CryptoProperties crypto;
+    private SecurityProperties.AuthenticationProperties authentication;
+    private SecurityProperties.TokenCacheProperties tokenCache;
+    private SecurityProperties.PrincipalCacheProperties principalCache;
+    private SecurityProperties.RefreshTokenRegistryProperties refreshTokenRegistry;
+    private SecurityProperties.PasswordHashingProperties passwordHashing;
+
+    private SecurityPropertiesBuilder() {
+    }
+
+    public static SecurityPropertiesBuilder securityProperties() {
+        return new SecurityPropertiesBuilder();
+    }
+
+    public SecurityPropertiesBuilder accessToken(SecurityProperties.TokenProperties accessToken) {
+        this.accessToken = accessToken;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder refreshToken(SecurityProperties.TokenProperties refreshToken) {
+        this.refreshToken = refreshToken;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder crypto(SecurityProperties.CryptoProperties crypto) {
+        this.crypto = crypto;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder authentication(SecurityProperties.AuthenticationProperties authentication) {
+        this.authentication = authentication;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder tokenCache(SecurityProperties.TokenCacheProperties tokenCache) {
+        this.tokenCache = tokenCache;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder principalCache(SecurityProperties.PrincipalCacheProperties principalCache) {
+        this.principalCache = principalCache;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder refreshTokenRegistry(
+            SecurityProperties.RefreshTokenRegistryProperties refreshTokenRegistry
+    ) {
+        this.refreshTokenRegistry = refreshTokenRegistry;
+        return this;
+    }
+
+    public SecurityPropertiesBuilder passwordHashing(SecurityProperties.PasswordHashingProperties passwordHashing) {
+        this.passwordHashing = passwordHashing;
+        return this;
+    }
+
+    public SecurityProperties build() {
+        return new SecurityProperties(
+                accessToken,
+                refreshToken,
+                crypto,
+                authentication,
+                tokenCache,
+                principalCache,
+                refreshTokenRegistry,
+                passwordHashing
+        );
+    }
+}